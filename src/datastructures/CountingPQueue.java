@@ -0,0 +1,99 @@
+package datastructures;
+
+/**
+ * A priority queue that forwards every operation to another priority queue and counts the
+ * operations that do work: adds, extractMins and changePriority calls. It also records the
+ * largest size the queue reaches. Used to measure how much work an algorithm does.
+ */
+public class CountingPQueue<E> implements PQueue<E> {
+
+    /**
+     * The priority queue that does the work.
+     */
+    private final PQueue<E> queue;
+
+    /**
+     * Number of calls of add, extractMin and changePriority so far.
+     */
+    private long adds, extractMins, changePriorities;
+
+    /**
+     * The largest size of the queue so far.
+     */
+    private int maxSize;
+
+    /**
+     * Creates: a counting priority queue backed by queue.
+     */
+    public CountingPQueue(PQueue<E> queue) {
+        this.queue = queue;
+        maxSize = queue.size();
+    }
+
+    @Override
+    public String toString() {
+        return queue.toString();
+    }
+
+    @Override
+    public int size() {
+        return queue.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return queue.isEmpty();
+    }
+
+    @Override
+    public void add(E e, double priority) throws IllegalArgumentException {
+        queue.add(e, priority);
+        adds++;
+        maxSize = Math.max(maxSize, queue.size());
+    }
+
+    @Override
+    public E peek() {
+        return queue.peek();
+    }
+
+    @Override
+    public E extractMin() {
+        extractMins++;
+        return queue.extractMin();
+    }
+
+    @Override
+    public void changePriority(E e, double p) {
+        changePriorities++;
+        queue.changePriority(e, p);
+    }
+
+    /**
+     * Returns: the number of calls of add so far.
+     */
+    public long adds() {
+        return adds;
+    }
+
+    /**
+     * Returns: the number of calls of extractMin so far.
+     */
+    public long extractMins() {
+        return extractMins;
+    }
+
+    /**
+     * Returns: the number of calls of changePriority so far.
+     */
+    public long changePriorities() {
+        return changePriorities;
+    }
+
+    /**
+     * Returns: the largest number of elements the queue has held.
+     */
+    public int maxSize() {
+        return maxSize;
+    }
+}
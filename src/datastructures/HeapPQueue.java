@@ -0,0 +1,124 @@
+package datastructures;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/** A priority queue implemented as a binary min-heap, with a map from
+ *  each element to its position in the heap so that changePriority()
+ *  takes O(log N) time rather than O(N).
+ */
+public class HeapPQueue<E> implements PQueue<E> {
+
+    /** The heap, in the usual array layout: the children of index i are
+     *  at 2i+1 and 2i+2, and no element has a smaller priority than its
+     *  parent. No element occurs more than once.
+     */
+    private final ArrayList<E> heap;
+
+    /** priorities[i] is the priority of heap.get(i). */
+    private double[] priorities;
+
+    /** Maps each element in the heap to its index in the heap. */
+    private final Map<E, Integer> index;
+
+    /** Creates: an empty queue
+     */
+    public HeapPQueue() {
+        heap = new ArrayList<>();
+        priorities = new double[16];
+        index = new HashMap<>();
+    }
+
+    @Override public int size() { return heap.size(); }
+    @Override public boolean isEmpty() { return heap.isEmpty(); }
+    @Override public E peek() {
+        assert heap.size() > 0;
+        return heap.get(0);
+    }
+
+    @Override
+    public void add(E e, double priority) throws IllegalArgumentException {
+        if (index.containsKey(e)) throw new IllegalArgumentException();
+        int i = heap.size();
+        if (i == priorities.length) {
+            double[] bigger = new double[i * 2];
+            System.arraycopy(priorities, 0, bigger, 0, i);
+            priorities = bigger;
+        }
+        heap.add(e);
+        priorities[i] = priority;
+        index.put(e, i);
+        bubbleUp(i);
+    }
+
+    @Override
+    public E extractMin() {
+        E bestElem = peek();
+        int last = heap.size() - 1;
+        swap(0, last);
+        heap.remove(last);
+        index.remove(bestElem);
+        if (last > 0) bubbleDown(0);
+        return bestElem;
+    }
+
+    @Override
+    public void changePriority(E e, double priority) {
+        Integer i = index.get(e);
+        assert i != null;
+        double old = priorities[i];
+        priorities[i] = priority;
+        if (priority < old) bubbleUp(i);
+        else bubbleDown(i);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < heap.size(); i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(heap.get(i)).append(':').append(priorities[i]);
+        }
+        return sb.append(']').toString();
+    }
+
+    /** Effect: moves the element at index i up until its parent has no
+     *  larger priority. */
+    private void bubbleUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (priorities[parent] <= priorities[i]) return;
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    /** Effect: moves the element at index i down until neither child has
+     *  a smaller priority. */
+    private void bubbleDown(int i) {
+        int n = heap.size();
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= n) return;
+            if (child + 1 < n && priorities[child + 1] < priorities[child]) child++;
+            if (priorities[i] <= priorities[child]) return;
+            swap(i, child);
+            i = child;
+        }
+    }
+
+    /** Effect: swaps the elements at indices i and j, keeping index up to date. */
+    private void swap(int i, int j) {
+        if (i == j) return;
+        E ei = heap.get(i);
+        E ej = heap.get(j);
+        heap.set(i, ej);
+        heap.set(j, ei);
+        double p = priorities[i];
+        priorities[i] = priorities[j];
+        priorities[j] = p;
+        index.put(ej, i);
+        index.put(ei, j);
+    }
+}
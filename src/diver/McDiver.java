@@ -1,7 +1,10 @@
 package diver;
 
 import game.*;
-import graph.ShortestPaths;
+import graph.KShortestPaths;
+import graph.PathCache;
+import graph.ReducedGraph;
+import graph.ReducedGraph.SuperEdge;
 import java.util.AbstractMap.SimpleEntry;
 import java.util.Collection;
 import java.util.Map.Entry;
@@ -282,10 +285,19 @@ public class McDiver implements SewerDiver {
         //First calculate the max coin value possible, the length for the dp and create a mapping
         //between node IDs and node objects!
 
-        //Also generate the optimal paths from any given node to the exit node using dijkstra's!
-        Map<Long,List<Edge>> paths = new HashMap<>();
-        ShortestPaths dijkstra = new ShortestPaths(new Maze((Set<Node>) state.allNodes()));
-        dijkstra.singleSourceDistances(state.exit());
+        Maze maze = new Maze((Set<Node>) state.allNodes());
+        //Only coins, the start and the exit matter to the search below, so run Dijkstra on the
+        //sewer with coinless dead ends trimmed and plain corridors contracted. Distances between
+        //those nodes are unchanged, and paths are expanded back to real edges.
+        ReducedGraph<Node,Edge> reduced = new ReducedGraph<>(maze, state.allNodes(),
+                n -> n.getTile().coins() > 0 || n.equals(state.currentNode())
+                        || n.equals(state.exit()));
+        //Among equally short legs, take the one passing the most coins: it costs no extra steps.
+        //The search below only needs the lengths of the legs, which state.distance looks up, so
+        //Dijkstra only runs from the terminals on the route it picks. Only terminals are
+        //sources, so the cache never evicts.
+        PathCache<Node,SuperEdge<Node,Edge>> legs =
+                new PathCache<>(reduced, n -> n.getTile().coins(), state.allNodes().size());
         Map<Long,Node> map = new HashMap<>();
         Set<Long> coinIds = new HashSet<>();
         Map<Long,Long> exitDist = new HashMap<>();
@@ -300,13 +312,9 @@ public class McDiver implements SewerDiver {
            }
            coins +=node.getTile().originalCoinValue();
            map.put(node.getId(),node);
-            List<Edge> nodePath = dijkstra.bestPath(node);
-            long weight = 0;
-            for(Edge edge: nodePath){
-                weight+=edge.length();
-            }
-            exitDist.put(node.getId(),weight);
-           paths.put(node.getId(),nodePath);
+           if(reduced.contains(node)){
+               exitDist.put(node.getId(),(long) state.distance(state.exit(),node));
+           }
         }
 
 
@@ -331,30 +339,26 @@ public class McDiver implements SewerDiver {
         //path that gets the max coins even faster (and so it can still survive with large numbers
         //of coins)
         //Alright, lets make this cool!
-        Map<Long,Entry<Long,Entry<Long,List<Edge>>>[]> allPaths = new HashMap<>();
+        //Each entry of allPaths maps the id of the other end of a leg to the length of the leg;
+        //the legs themselves are only found for the route picked in the end.
+        Map<Long,Entry<Long,Long>[]> allPaths = new HashMap<>();
         for(Node node: state.allNodes()){
             if(coinIds.contains(node.getId()) || node.getId() == state.currentNode().getId() ||
                     node.getId() == state.exit().getId()){
-                Entry<Long,Entry<Long,List<Edge>>>[] nodePaths = new Entry[coinIds.size()+1];
+                Entry<Long,Long>[] nodePaths = new Entry[coinIds.size()+1];
 
-                dijkstra.singleSourceDistances(node);
                 int i = 0;
                 for(Node other: state.allNodes()){
                     if((coinIds.contains(other.getId()) ||other.getId()==state.currentNode().getId()
                             || other.getId()==state.exit().getId()) && node.getId()!=other.getId()){
-                        List<Edge> nodePath = dijkstra.bestPath(other);
-                        long weight = 0;
-                        for(Edge edge: nodePath){
-                            weight+=edge.length();
-                        }
-                        nodePaths[i++]= new SimpleEntry<>(other.getId(),
-                                new SimpleEntry<>(weight,nodePath));
+                        long weight = state.distance(node,other);
+                        nodePaths[i++]= new SimpleEntry<>(other.getId(),weight);
                     }
                 }
                 //Now simply sort nodePaths using a custom comparator and put it into the map!
 
                 Arrays.sort(nodePaths, Comparator.comparingDouble(a ->
-                        a.getValue().getKey()/(map.get(a.getKey()).getTile().coins() * 1d)));
+                        a.getValue()/(map.get(a.getKey()).getTile().coins() * 1d)));
                 allPaths.put(node.getId(),nodePaths);
 
             }
@@ -372,7 +376,7 @@ public class McDiver implements SewerDiver {
 
         long[] statics = new long[]{coins,0,System.currentTimeMillis()};
         //Alright, time to start the alpha-beta pruning!
-        Entry<Integer,List<Edge>> ans = prune(allPaths,state.currentNode().getId(),map,
+        Entry<Integer,List<Long>> ans = prune(allPaths,state.currentNode().getId(),map,
                 new ArrayList<>(), 0b0,state.currentNode().getTile().originalCoinValue(),
                 statics,state,exitDist);
         /*System.out.println(ans);
@@ -384,8 +388,11 @@ public class McDiver implements SewerDiver {
         //Alright, time to make the moves :D
         //NEVERMIND SCREW THIS PROGRAM, SCREW THE NEED FOR UNNECESSARY EDGE WEIGHTS!!!!
         //Ya... unfortunately most of my work was for naught... at least the end result is ok...
+        List<Edge> pruned = ans == null || ans.getValue() == null ? null
+                : legEdges(legs, map, state.currentNode(), ans.getValue());
+        List<Edge> route = richestRoute(state, maze, pruned);
         Node node = state.currentNode();
-        for(Edge edge: ans.getValue()){
+        for(Edge edge: route){
             state.moveTo(edge.getOther(node));
             node = edge.getOther(node);
         }
@@ -395,11 +402,66 @@ public class McDiver implements SewerDiver {
     }
 
 
+    //How many of the cheapest exit routes to compare against the pruned route
+    private static final int EXIT_ROUTES = 10;
+
+    //prune only counts the coins on the nodes it aims for, and it can run out of time before it
+    //finds a good route. The few cheapest routes to the exit often pass extra coins, so compare
+    //them with the pruned route by the coins actually picked up along the way, and keep the
+    //richest one that fits in the remaining steps. pruned may be null if prune found nothing.
+    private List<Edge> richestRoute(ScramState state, Maze maze, List<Edge> pruned){
+        List<Edge> best = pruned;
+        int bestCoins = pruned == null ? -1 : routeCoins(state.currentNode(), pruned);
+        KShortestPaths<Node,Edge> routes =
+                new KShortestPaths<>(maze, state.currentNode(), state.exit());
+        for(int i = 0; i < EXIT_ROUTES && routes.hasNext(); i++){
+            KShortestPaths.WeightedPath<Edge> route = routes.next();
+            if(route.weight() > state.stepsToGo()){
+                break;
+            }
+            int coins = routeCoins(state.currentNode(), route.edges());
+            if(coins > bestCoins){
+                bestCoins = coins;
+                best = route.edges();
+            }
+        }
+        return best;
+    }
+
+    //The edges of the best legs from start through the terminals with the ids in stops, in order
+    private List<Edge> legEdges(PathCache<Node,SuperEdge<Node,Edge>> legs, Map<Long,Node> map,
+            Node start, List<Long> stops){
+        List<Edge> route = new ArrayList<>();
+        Node node = start;
+        for(long id: stops){
+            Node next = map.get(id);
+            route.addAll(ReducedGraph.expand(legs.path(node,next)));
+            node = next;
+        }
+        return route;
+    }
+
+    //The coins picked up by walking route from start, counting each node only once
+    private int routeCoins(Node start, List<Edge> route){
+        Set<Node> visited = new HashSet<>();
+        visited.add(start);
+        int coins = 0;
+        Node node = start;
+        for(Edge edge: route){
+            node = edge.getOther(node);
+            if(visited.add(node)){
+                coins += node.getTile().coins();
+            }
+        }
+        return coins;
+    }
+
     //Prunes through allPaths to find an optimal path that gets all maxCoins in numMoves time!
     //now optimized with greedy sorting of arrays within allPaths to hopefully find the best path
     //even faster!!!
-    private Entry<Integer,List<Edge>> prune(Map<Long,Entry<Long,Entry<Long,List<Edge>>>[]> allPaths,
-            long id, Map<Long,Node> map, List<Edge> path, long pathWeight, int val, long[] statics,
+    //path holds the ids of the terminals visited so far, after the start
+    private Entry<Integer,List<Long>> prune(Map<Long,Entry<Long,Long>[]> allPaths,
+            long id, Map<Long,Node> map, List<Long> path, long pathWeight, int val, long[] statics,
             ScramState state, Map<Long,Long> exitDist){
 
         if(pathWeight +exitDist.get(id) > state.stepsToGo() || allPaths.isEmpty() ||
@@ -412,27 +474,27 @@ public class McDiver implements SewerDiver {
             return new SimpleEntry<>(val,path);
         }
 
-        Entry<Long,Entry<Long,List<Edge>>>[] paths = allPaths.remove(id);
+        Entry<Long,Long>[] paths = allPaths.remove(id);
         int coins;
         long newPathWeight;
-        List<Edge> newPath;
+        List<Long> newPath;
         int bestCoins = -1;
-        Entry<Integer,List<Edge>> bestAns = null;
-        for(Entry<Long,Entry<Long,List<Edge>>> node: paths){
+        Entry<Integer,List<Long>> bestAns = null;
+        for(Entry<Long,Long> node: paths){
             if(!allPaths.containsKey(node.getKey())){
                 continue;
             }
             coins= val + map.get(node.getKey()).getTile().coins();
             newPath = new ArrayList<>(path);
-            newPath.addAll(node.getValue().getValue());
+            newPath.add(node.getKey());
             //Stupid traversal in order to account for stupid edge weights...this is so stupid! >:(
             //Yay, I fixed it so now I no longer have to do a stupid for loop :/
-            newPathWeight = pathWeight +node.getValue().getKey();
+            newPathWeight = pathWeight +node.getValue();
             if(coins < statics[1] && newPathWeight + exitDist.get(node.getKey()) >=
-                    state.stepsToGo() + allPaths.get(node.getKey())[0].getValue().getKey()){
+                    state.stepsToGo() + allPaths.get(node.getKey())[0].getValue()){
                 continue;
             }
-            Entry<Integer,List<Edge>> ans = prune(allPaths, node.getKey(), map, newPath,
+            Entry<Integer,List<Long>> ans = prune(allPaths, node.getKey(), map, newPath,
                     newPathWeight, coins, statics, state,exitDist);
             if(ans.getKey() >= bestCoins){
                 bestCoins = ans.getKey();
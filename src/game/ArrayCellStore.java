@@ -0,0 +1,55 @@
+package game;
+
+/**
+ * A CellStore in three primitive arrays on the heap: 4 bytes per cell.
+ */
+final class ArrayCellStore implements CellStore {
+
+    private final byte[] types;
+    private final char[] coins;
+    private final byte[] weights;
+
+    /**
+     * Constructor: a store of size cells, all 0.
+     */
+    ArrayCellStore(int size) {
+        types = new byte[size];
+        coins = new char[size];
+        weights = new byte[size];
+    }
+
+    @Override
+    public int size() {
+        return types.length;
+    }
+
+    @Override
+    public int type(int cell) {
+        return types[cell] & 0xFF;
+    }
+
+    @Override
+    public void setType(int cell, int value) {
+        types[cell] = (byte) value;
+    }
+
+    @Override
+    public int coins(int cell) {
+        return coins[cell];
+    }
+
+    @Override
+    public void setCoins(int cell, int value) {
+        coins[cell] = (char) value;
+    }
+
+    @Override
+    public int weights(int cell) {
+        return weights[cell] & 0xFF;
+    }
+
+    @Override
+    public void setWeights(int cell, int value) {
+        weights[cell] = (byte) value;
+    }
+}
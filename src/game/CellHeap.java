@@ -0,0 +1,91 @@
+package game;
+
+import java.util.Arrays;
+
+/**
+ * A binary min-heap of grid cells with int priorities, the open list of the grid searches
+ * (GridDijkstra, JumpPointSearch and SewerGrid.distance). Each entry is packed into one long as
+ * (priority << 32) | cell, so comparing entries compares priorities first and no objects are
+ * allocated. There is no decrease-key: a search adds a cell again when it finds a shorter
+ * path, and skips the stale entries when they come out.
+ * Requires: cells and priorities are nonnegative.
+ */
+final class CellHeap {
+
+    private long[] heap = new long[16];
+    private int size;
+
+    /**
+     * Return true iff the heap has no entries.
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Remove all entries.
+     */
+    void clear() {
+        size = 0;
+    }
+
+    /**
+     * Add cell with the given priority.
+     */
+    void add(int cell, int priority) {
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, 2 * size);
+        }
+        long entry = ((long) priority << 32) | cell;
+        int i = size++;
+        while (i > 0) {
+            int up = (i - 1) / 2;
+            if (heap[up] <= entry) {
+                break;
+            }
+            heap[i] = heap[up];
+            i = up;
+        }
+        heap[i] = entry;
+    }
+
+    /**
+     * Remove and return the entry with the smallest priority; decode it with cell() and
+     * priority(). Requires: the heap is not empty.
+     */
+    long removeMin() {
+        long top = heap[0];
+        long last = heap[--size];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && heap[child + 1] < heap[child]) {
+                child++;
+            }
+            if (last <= heap[child]) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = last;
+        return top;
+    }
+
+    /**
+     * Return the cell of entry.
+     */
+    static int cell(long entry) {
+        return (int) entry;
+    }
+
+    /**
+     * Return the priority of entry.
+     */
+    static int priority(long entry) {
+        return (int) (entry >>> 32);
+    }
+}
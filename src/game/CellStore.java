@@ -0,0 +1,44 @@
+package game;
+
+/**
+ * Storage for the cells of a SewerGrid: three small unsigned values per cell, addressed by the
+ * cell's index row * cols + column. A new store holds 0 in every field of every cell. What the
+ * values mean is up to SewerGrid; the store only keeps them.
+ */
+interface CellStore {
+
+    /**
+     * Return the number of cells.
+     */
+    int size();
+
+    /**
+     * Return the type byte of cell, in 0..255.
+     */
+    int type(int cell);
+
+    /**
+     * Set the type byte of cell to value. Requires: value is in 0..255.
+     */
+    void setType(int cell, int value);
+
+    /**
+     * Return the coins of cell, in 0..65535.
+     */
+    int coins(int cell);
+
+    /**
+     * Set the coins of cell to value. Requires: value is in 0..65535.
+     */
+    void setCoins(int cell, int value);
+
+    /**
+     * Return the weights byte of cell, in 0..255.
+     */
+    int weights(int cell);
+
+    /**
+     * Set the weights byte of cell to value. Requires: value is in 0..255.
+     */
+    void setWeights(int cell, int value);
+}
@@ -0,0 +1,274 @@
+package game;
+
+import graph.AllPairsShortestPaths;
+import graph.CsrGraph;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The shortest distance between every pair of open tiles of a sewer, stored as one unsigned
+ * 16-bit value per pair so that any distance can be looked up in constant time. A sewer with
+ * more than MAX_TILES open tiles, or with a distance of UNREACHABLE or more, has no oracle;
+ * its distances are found by searching instead.
+ * <p>
+ * An oracle can be saved to a file next to the serialized sewer and opened again later. Opening
+ * maps the file into memory rather than reading it, so pages of the table are only read as they
+ * are used, and nothing is computed. The file records a fingerprint of the sewer's graph, and a
+ * file that does not match is rebuilt. If the file cannot be written, the oracle is only kept in
+ * memory.
+ * <p>
+ * File format (big-endian): the int MAGIC, the int VERSION, the number n of open tiles as an
+ * int, the fingerprint as a long, then n*n unsigned shorts, row by row. Open tiles are numbered
+ * in order of their node ids.
+ */
+final class DistanceOracle {
+
+    /**
+     * The first four bytes of an oracle file: "DIST".
+     */
+    static final int MAGIC = 0x44495354;
+
+    /**
+     * The version of the file format.
+     */
+    static final int VERSION = 1;
+
+    /**
+     * The stored value for a pair with no path.
+     */
+    static final int UNREACHABLE = 0xFFFF;
+
+    /**
+     * The most open tiles a sewer with an oracle can have. Building the table takes n*n ints
+     * besides the table and time cubic in n (AllPairsShortestPaths is meant for a few thousand
+     * vertices), so this bounds the table at 32 MB and the build at 64 MB more. Generated
+     * sewers have at most 1000 tiles.
+     */
+    static final int MAX_TILES = 4096;
+
+    /**
+     * Bytes before the table in a file.
+     */
+    private static final int HEADER_SIZE = 4 + 4 + 4 + 8;
+
+    /**
+     * The number of columns of the sewer's grid.
+     */
+    private final int cols;
+
+    /**
+     * The number of each open tile, indexed by row * cols + column; -1 for walls.
+     */
+    private final int[] number;
+
+    /**
+     * The number of open tiles.
+     */
+    private final int n;
+
+    /**
+     * table.get(u * n + v) is the distance from open tile u to open tile v, as an unsigned
+     * short. Either wraps an array or is a view of a mapped file.
+     */
+    private final ShortBuffer table;
+
+    /**
+     * Constructor: an oracle for sewers with the given table.
+     * Requires: table has n*n entries for the numbering of sewers' open tiles.
+     */
+    private DistanceOracle(Sewers sewers, ShortBuffer table) {
+        cols = sewers.columnCount();
+        number = new int[sewers.rowCount() * cols];
+        Arrays.fill(number, -1);
+        List<Node> nodes = orderedNodes(sewers);
+        for (int i = 0; i < nodes.size(); i++) {
+            Tile t = nodes.get(i).getTile();
+            number[t.row() * cols + t.column()] = i;
+        }
+        n = nodes.size();
+        this.table = table;
+    }
+
+    /**
+     * Return the open tiles of sewers in order of their node ids.
+     */
+    private static List<Node> orderedNodes(Sewers sewers) {
+        List<Node> nodes = new ArrayList<>(sewers.graph());
+        nodes.sort(Comparator.comparingLong(Node::getId));
+        return nodes;
+    }
+
+    /**
+     * Return a new oracle for sewers, computing every distance.
+     * Throws IllegalArgumentException if sewers has more than MAX_TILES open tiles or some
+     * distance does not fit in 16 bits.
+     */
+    static DistanceOracle build(Sewers sewers) {
+        if (sewers.numOpenTiles() > MAX_TILES) {
+            throw new IllegalArgumentException("too many open tiles for an oracle: "
+                    + sewers.numOpenTiles());
+        }
+        List<Node> nodes = orderedNodes(sewers);
+        CsrGraph<Node, Edge> csr = new CsrGraph<>(new Maze(sewers.graph()), nodes);
+        AllPairsShortestPaths apsp = new AllPairsShortestPaths(csr);
+        int n = nodes.size();
+        short[] table = new short[n * n];
+        for (int u = 0; u < n; u++) {
+            for (int v = 0; v < n; v++) {
+                int d = apsp.distance(u, v);
+                if (d == AllPairsShortestPaths.INFINITY) {
+                    d = UNREACHABLE;
+                } else if (d >= UNREACHABLE) {
+                    throw new IllegalArgumentException("distance too large for an oracle: " + d);
+                }
+                table[u * n + v] = (short) d;
+            }
+        }
+        return new DistanceOracle(sewers, ShortBuffer.wrap(table));
+    }
+
+    /**
+     * Return the oracle for sewers stored in file, mapping the file into memory. If file does not
+     * exist, cannot be read or does not belong to sewers, build the oracle and save it to file; if
+     * saving fails, report it and return the oracle anyway. Return null if sewers is too large
+     * for an oracle (see build).
+     */
+    static DistanceOracle open(Sewers sewers, Path file) {
+        if (sewers.numOpenTiles() > MAX_TILES) {
+            return null;
+        }
+        long fingerprint = fingerprint(sewers);
+        DistanceOracle oracle = map(sewers, file, fingerprint);
+        if (oracle != null) {
+            return oracle;
+        }
+        try {
+            oracle = build(sewers);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        try {
+            oracle.save(file, fingerprint);
+        } catch (IOException e) {
+            GameState.errPrintln("Could not save distances to " + file + ": " + e);
+        }
+        return oracle;
+    }
+
+    /**
+     * Return the oracle for sewers in file, mapped into memory, or null if file does not exist,
+     * cannot be read, or does not hold an oracle with the given fingerprint.
+     */
+    private static DistanceOracle map(Sewers sewers, Path file, long fingerprint) {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        int n = sewers.numOpenTiles();
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = HEADER_SIZE + 2L * n * n;
+            if (ch.size() != size) {
+                return null;
+            }
+            ByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buf.getInt() == MAGIC && buf.getInt() == VERSION && buf.getInt() == n
+                    && buf.getLong() == fingerprint) {
+                return new DistanceOracle(sewers, buf.slice().asShortBuffer());
+            }
+            return null;
+        } catch (IOException | IllegalArgumentException e) {
+            // ch.map throws IllegalArgumentException for a mapping above 2 GB, which a file of
+            // the right size for at most MAX_TILES tiles never needs; treat it as unreadable.
+            return null;
+        }
+    }
+
+    /**
+     * Return the file in which the oracle for the sewer serialized in sewerFile is kept: the
+     * same name with ".dist" appended, in the same directory.
+     */
+    static Path fileFor(Path sewerFile) {
+        return sewerFile.resolveSibling(sewerFile.getFileName() + ".dist");
+    }
+
+    /**
+     * Write this oracle to file, with the given fingerprint. The file is written under a
+     * temporary name and then moved into place, so a reader never sees half a table.
+     */
+    private void save(Path file, long fingerprint) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(n);
+                out.writeLong(fingerprint);
+                for (int i = 0; i < n * n; i++) {
+                    out.writeShort(table.get(i));
+                }
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            try {
+                Files.deleteIfExists(tmp);
+            } catch (IOException ignored) {
+                // The write has already failed; a leftover temporary file is harmless.
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Return a hash of the size of sewers' grid and of every open tile's position and exits, which
+     * together determine all distances.
+     */
+    static long fingerprint(Sewers sewers) {
+        long h = 0xcbf29ce484222325L; // 64-bit FNV-1a
+        h = mix(h, sewers.rowCount());
+        h = mix(h, sewers.columnCount());
+        for (Node node : orderedNodes(sewers)) {
+            h = mix(h, node.getId());
+            h = mix(h, node.getTile().row());
+            h = mix(h, node.getTile().column());
+            for (Edge e : node.getExits()) {
+                h = mix(h, e.getOther(node).getId());
+                h = mix(h, e.length());
+            }
+        }
+        return h;
+    }
+
+    /**
+     * Return hash h with value mixed in.
+     */
+    private static long mix(long h, long value) {
+        for (int i = 0; i < 8; i++) {
+            h ^= (value >>> (8 * i)) & 0xFF;
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    /**
+     * Return the length of a shortest path from from to to, or -1 if there is none.
+     * Requires: from and to are open tiles of the sewer.
+     */
+    int distance(Node from, Node to) {
+        int u = number[from.getTile().row() * cols + from.getTile().column()];
+        int v = number[to.getTile().row() * cols + to.getTile().column()];
+        int d = table.get(u * n + v) & 0xFFFF;
+        return d == UNREACHABLE ? -1 : d;
+    }
+}
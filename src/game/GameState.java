@@ -2,14 +2,15 @@ package game;
 
 import cms.util.maybe.Maybe;
 import diver.SewerDiver;
+import graph.Profiling;
 import java.io.IOException;
+import java.io.Reader;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Random;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.FutureTask;
@@ -107,13 +108,21 @@ public class GameState implements SeekState, ScramState {
 
     /**
      * Constructor: a new GameState object for sewerDiver sd. This constructor takes a path to files
-     * storing serialized sewers and simply loads these sewers.
+     * storing serialized sewers and simply loads these sewers. The distances between all pairs
+     * of nodes of the scram sewer are kept in a file next to it (see DistanceOracle), which is
+     * only opened when distance() is first called and only computed the first time a sewer is
+     * used.
      */
     GameState(Path seekSewerPath, Path scramSewerPath, SewerDiver sd)
             throws IOException {
-        seekSewer = Sewers.deserialize(Files.readAllLines(seekSewerPath));
+        try (Reader in = Files.newBufferedReader(seekSewerPath)) {
+            seekSewer = Sewers.read(in);
+        }
         minSeekSteps = seekSewer.minPathLengthToRing(seekSewer.entrance());
-        scramSewer = Sewers.deserialize(Files.readAllLines(scramSewerPath));
+        try (Reader in = Files.newBufferedReader(scramSewerPath)) {
+            scramSewer = Sewers.read(in);
+        }
+        scramSewer.setDistanceOracleFile(DistanceOracle.fileFor(scramSewerPath));
 
         sewerDiver = sd;
 
@@ -129,18 +138,20 @@ public class GameState implements SeekState, ScramState {
                 position.getTile().column(), 0, this));
     }
 
+    /**
+     * The cache that games are taken from by seed, or null to generate every game.
+     */
+    static SewerCache cache;
+
     /**
      * Creates: a new game instance using seed {@code seed} with or without a GUI, and with
      * {@code SewerDiver} {@code sd} used to solve the game.
      */
     GameState(long seed, boolean useGui, SewerDiver sd) {
-        Random rand = new Random(seed);
-        int ROWS = rand.nextInt(MAX_ROWS - MIN_ROWS + 1) + MIN_ROWS;
-        int COLS = rand.nextInt(MAX_COLS - MIN_COLS + 1) + MIN_COLS;
-        seekSewer = Sewers.digExploreSewer(ROWS, COLS, rand);
+        SewerCorpus.Game game = cache == null ? SewerCorpus.generate(seed) : cache.get(seed);
+        seekSewer = game.seek();
         minSeekSteps = seekSewer.minPathLengthToRing(seekSewer.entrance());
-        Tile ringTile = seekSewer.ring().getTile();
-        scramSewer = Sewers.digGetOutSewer(ROWS, COLS, ringTile.row(), ringTile.column(), rand);
+        scramSewer = game.scram();
 
         position = seekSewer.entrance();
         stepsTaken = 0;
@@ -512,6 +523,15 @@ public class GameState implements SeekState, ScramState {
         return Collections.unmodifiableSet(scramSewer.graph());
     }
 
+    @Override
+    public int distance(Node a, Node b) {
+        if (phase != Phase.SCRAM) {
+            throw new IllegalStateException("distance: Error, " +
+                    "distances may not be asked for unless fleeing");
+        }
+        return scramSewer.distance(a, b);
+    }
+
     /**
      * Attempt to move the sewerDiver from the current position to the {@code Node n}. Throw {@code
      * IllegalArgumentException} if {@code n} is not neighboring. Increment the steps taken if
@@ -522,15 +542,11 @@ public class GameState implements SeekState, ScramState {
         if (phase != Phase.SCRAM) {
             throw new IllegalStateException("Call moveTo(Node) only when fleeing!");
         }
+        // getEdge throws the IllegalArgumentException if n is not a neighbor.
         int distance = position.getEdge(n).length;
         if (stepsToGo - distance < 0) {
             throw new OutOfTimeException();
         }
-
-        if (!position.getNeighbors().contains(n)) {
-            throw new IllegalArgumentException(
-                    "moveTo: Node must be adjacent to position");
-        }
         position = n;
         stepsToGo -= distance;
         GUIControl.startAnimation(gui);
@@ -601,9 +617,13 @@ public class GameState implements SeekState, ScramState {
      */
     public static int runNewGame(long seed, boolean useGui, SewerDiver solution) {
         GameState state;
+        Profiling.reset();
         state = new GameState(seed, useGui, solution);
         outPrintln("Seed : " + state.seed);
         state.run();
+        if (Profiling.ENABLED) {
+            outPrintln("Work : " + Profiling.summary());
+        }
         return state.getScore();
     }
 
@@ -0,0 +1,44 @@
+package game;
+
+/**
+ * Measures how many games per second are generated, the way GameState generates them: a seek
+ * sewer followed by a scram sewer, with the random size used by the game. The games are those of
+ * the SewerCorpus with seed 0, generated on the given number of threads. Also prints a checksum
+ * of the serialized sewers, which must not change when generation is optimized or run on more
+ * threads. Serializing is not counted in the time.
+ * <p>
+ * Usage: GenerationBenchmark [games] [rounds] [threads]
+ */
+public class GenerationBenchmark {
+
+    /**
+     * The number of games generated at a time, which bounds the memory used.
+     */
+    private static final int CHUNK = 256;
+
+    /**
+     * Generates the sewers of games games, rounds times, and prints the rate of each round.
+     */
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+        for (int round = 1; round <= rounds; round++) {
+            long[] checksum = new long[1];
+            long[] sinkNanos = new long[1];
+            long start = System.nanoTime();
+            for (int from = 0; from < games; from += CHUNK) {
+                SewerCorpus.generate(0, from, Math.min(CHUNK, games - from), threads, game -> {
+                    long t = System.nanoTime();
+                    checksum[0] = 31 * checksum[0] + game.seek().serialize().hashCode();
+                    checksum[0] = 31 * checksum[0] + game.scram().serialize().hashCode();
+                    sinkNanos[0] += System.nanoTime() - t;
+                });
+            }
+            double seconds = (System.nanoTime() - start - sinkNanos[0]) / 1e9;
+            System.out.printf("round %d: %.0f games/s (%d games in %.2f s on %d threads),"
+                    + " checksum %016x%n", round, games / seconds, games, seconds, threads,
+                    checksum[0]);
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package game;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Dijkstra's algorithm over the tile grid of a sewer system, for graphs whose edges run between
+ * adjacent tiles but may have any nonnegative weights. The weight of the edge leaving each tile
+ * in each direction is kept in a flat int array indexed by 4 * tile + direction, and the
+ * neighbor in a direction is found by adding a fixed offset to the tile index, so a search reads
+ * a few int arrays instead of following Node, edge-set and Edge objects. The open list is a
+ * CellHeap.
+ * <p>
+ * A search either goes out from a source, giving the distance from the source to every tile, or
+ * back from a target along incoming edges, giving the distance from every tile to the target.
+ * The distances are the same as those of ShortestPaths over the Maze. Where several paths are
+ * equally short, the path returned may be a different one.
+ * <p>
+ * Tiles are indexed by row * cols + column, and directions in the order of
+ * Sewers.Direction.values(): north, east, south, west.
+ */
+class GridDijkstra {
+
+    /** Number of rows and columns of the grid. */
+    private final int rows, cols;
+
+    /** The change in tile index for a step in each direction. */
+    private final int[] offset;
+
+    /**
+     * out[4 * tile + d] is the weight of the edge from tile to its neighbor in direction d, and
+     * in[4 * tile + d] that of the edge from the neighbor in direction d to tile; -1 if there is
+     * no such edge.
+     */
+    private final int[] out, in;
+
+    /** The Edge object for each entry of out, for reporting paths. */
+    private final Edge[] edges;
+
+    /** The distance of each tile found by the last search, or Integer.MAX_VALUE. */
+    private final int[] dist;
+
+    /**
+     * The direction of the last step into each tile on its best path from the source (forward
+     * search), or of the first step out of it on its best path to the target (backward search);
+     * -1 for the source or target and unreached tiles.
+     */
+    private final int[] via;
+
+    /** True iff the last search went back from a target. */
+    private boolean backward;
+
+    /** The open list, with distances as priorities. */
+    private final CellHeap frontier = new CellHeap();
+
+    /**
+     * Creates: a grid search over sewers. The graph is snapshotted, so later changes to it are
+     * not seen. Throws IllegalArgumentException if some edge does not join adjacent tiles.
+     */
+    GridDijkstra(Sewers sewers) {
+        rows = sewers.rowCount();
+        cols = sewers.columnCount();
+        offset = new int[] { -cols, 1, cols, -1 };
+        int cells = rows * cols;
+        out = new int[4 * cells];
+        in = new int[4 * cells];
+        Arrays.fill(out, -1);
+        Arrays.fill(in, -1);
+        edges = new Edge[4 * cells];
+        for (Node node : sewers.graph()) {
+            int cell = indexOf(node);
+            for (Edge e : node.getExits()) {
+                int d = direction(cell, indexOf(e.destination()));
+                if (d < 0) {
+                    throw new IllegalArgumentException("edge does not join adjacent tiles");
+                }
+                if (out[4 * cell + d] < 0 || e.length() < out[4 * cell + d]) {
+                    out[4 * cell + d] = e.length();
+                    in[4 * (cell + offset[d]) + (d + 2) % 4] = e.length();
+                    edges[4 * cell + d] = e;
+                }
+            }
+        }
+        dist = new int[cells];
+        via = new int[cells];
+    }
+
+    /** Returns: the index of node's tile. */
+    private int indexOf(Node node) {
+        return node.getTile().row() * cols + node.getTile().column();
+    }
+
+    /** Returns: the direction from tile a to adjacent tile b, or -1 if they are not adjacent. */
+    private int direction(int a, int b) {
+        int dr = b / cols - a / cols;
+        int dc = b % cols - a % cols;
+        if (dc == 0 && (dr == -1 || dr == 1)) {
+            return dr == -1 ? 0 : 2;
+        }
+        if (dr == 0 && (dc == -1 || dc == 1)) {
+            return dc == 1 ? 1 : 3;
+        }
+        return -1;
+    }
+
+    /**
+     * Effect: computes the distance from source to every tile and the best paths from it.
+     */
+    void fromSource(Node source) {
+        backward = false;
+        search(indexOf(source), out);
+    }
+
+    /**
+     * Effect: computes the distance from every tile to target and the best paths to it.
+     */
+    void toTarget(Node target) {
+        backward = true;
+        search(indexOf(target), in);
+    }
+
+    /**
+     * Effect: runs Dijkstra's algorithm from tile start over the edges whose weights are given
+     * by weights (out or in).
+     */
+    private void search(int start, int[] weights) {
+        Arrays.fill(dist, Integer.MAX_VALUE);
+        Arrays.fill(via, -1);
+        frontier.clear();
+        dist[start] = 0;
+        frontier.add(start, 0);
+        while (!frontier.isEmpty()) {
+            long top = frontier.removeMin();
+            int cell = CellHeap.cell(top);
+            int d = CellHeap.priority(top);
+            if (d > dist[cell]) {
+                continue; // stale entry; cell was reached more cheaply since
+            }
+            for (int dir = 0; dir < 4; dir++) {
+                int w = weights[4 * cell + dir];
+                if (w < 0) {
+                    continue;
+                }
+                int next = cell + offset[dir];
+                int nd = d + w;
+                if (nd < dist[next]) {
+                    dist[next] = nd;
+                    via[next] = backward ? (dir + 2) % 4 : dir;
+                    frontier.add(next, nd);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns: true iff the last search reached v.
+     */
+    boolean isReachable(Node v) {
+        return dist[indexOf(v)] != Integer.MAX_VALUE;
+    }
+
+    /**
+     * Returns: the distance from the source to v (after fromSource) or from v to the target
+     * (after toTarget), or -1 if there is no path.
+     */
+    int distance(Node v) {
+        int d = dist[indexOf(v)];
+        return d == Integer.MAX_VALUE ? -1 : d;
+    }
+
+    /**
+     * Returns: a shortest path from the source to v (after fromSource) or from v to the target
+     * (after toTarget), as a list of edges. Requires: v was reached by the last search.
+     */
+    List<Edge> bestPath(Node v) {
+        assert isReachable(v) : "v not reachable";
+        LinkedList<Edge> path = new LinkedList<>();
+        int cell = indexOf(v);
+        while (via[cell] >= 0) {
+            int d = via[cell];
+            if (backward) {
+                path.addLast(edges[4 * cell + d]);
+                cell += offset[d];
+            } else {
+                cell -= offset[d];
+                path.addFirst(edges[4 * cell + d]);
+            }
+        }
+        return path;
+    }
+}
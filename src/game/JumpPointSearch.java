@@ -0,0 +1,236 @@
+package game;
+
+import java.util.Arrays;
+
+/**
+ * Jump point search over the tile grid of a sewer system whose edges all have the same
+ * weight. Instead of expanding every open tile, the search only expands "jump points": tiles
+ * where an optimal path may have to turn. Straight runs of symmetric corridor tiles are skipped
+ * in a single scan of the grid, so far fewer nodes are pushed on the open list than with
+ * Dijkstra's algorithm over the Maze.
+ * <p>
+ * Paths are canonicalized as "vertical first": a horizontal run only stops where a wall ends
+ * beside it (a forced neighbor), while a vertical run stops wherever a horizontal run started
+ * from it would reach a jump point. Whether a horizontal run reaches a jump point is looked up
+ * in tables built with the grid, so each step of a vertical run takes constant time rather than
+ * a scan of its row.
+ * <p>
+ * Requires: the open tiles of the grid and the edges of the graph agree, i.e. two open tiles
+ * are adjacent in the graph iff they are adjacent on the grid.
+ */
+class JumpPointSearch {
+
+    /** Number of rows and columns of the grid. */
+    private final int rows, cols;
+
+    /** open[i] is true iff the tile with index i = row * cols + col is not a wall. */
+    private final boolean[] open;
+
+    /**
+     * run[i] numbers the horizontal run of open tiles that tile i belongs to (the maximal row
+     * segment without walls), or is -1 for a wall.
+     */
+    private final int[] run;
+
+    /**
+     * jumpsEast[i] (jumpsWest[i]) is true iff a horizontal run east (west) from open tile i
+     * reaches a tile with a forced neighbor before it hits a wall, not counting the target.
+     */
+    private final boolean[] jumpsEast, jumpsWest;
+
+    /** Best known number of steps from the start to each tile, or Integer.MAX_VALUE. */
+    private final int[] g;
+
+    /** The jump point from which each tile was reached, or -1. */
+    private final int[] parent;
+
+    /** The open list, with f = g + heuristic as priorities. */
+    private final CellHeap frontier = new CellHeap();
+
+    /**
+     * Creates: a jump point search over the grid of sewers. The grid is snapshotted, so later
+     * changes to tile types are not seen.
+     */
+    JumpPointSearch(Sewers sewers) {
+        rows = sewers.rowCount();
+        cols = sewers.columnCount();
+        open = new boolean[rows * cols];
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                open[r * cols + c] = sewers.tileAt(r, c).type() != Tile.TileType.WALL;
+            }
+        }
+        run = new int[rows * cols];
+        jumpsEast = new boolean[rows * cols];
+        jumpsWest = new boolean[rows * cols];
+        int runs = 0;
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                int cell = r * cols + c;
+                run[cell] = !open[cell] ? -1 : isOpen(r, c - 1) ? run[cell - 1] : runs++;
+                jumpsWest[cell] = open[cell] && (forced(r, c, -1) || c > 0 && jumpsWest[cell - 1]);
+            }
+            for (int c = cols - 1; c >= 0; c--) {
+                int cell = r * cols + c;
+                jumpsEast[cell] = open[cell] && (forced(r, c, 1) || c < cols - 1 && jumpsEast[cell + 1]);
+            }
+        }
+        g = new int[rows * cols];
+        parent = new int[rows * cols];
+    }
+
+    /**
+     * Returns: the number of steps on a shortest path from start to goal, or -1 if goal is not
+     * reachable from start. Multiply by the common edge weight to get the path length.
+     * Requires: start and goal are open tiles of the grid.
+     */
+    int steps(Node start, Node goal) {
+        Tile s = start.getTile();
+        Tile t = goal.getTile();
+        int source = s.row() * cols + s.column();
+        int target = t.row() * cols + t.column();
+        if (source == target) {
+            return 0;
+        }
+
+        Arrays.fill(g, Integer.MAX_VALUE);
+        Arrays.fill(parent, -1);
+        frontier.clear();
+        g[source] = 0;
+        frontier.add(source, heuristic(source, target));
+
+        while (!frontier.isEmpty()) {
+            long top = frontier.removeMin();
+            int cell = CellHeap.cell(top);
+            int f = CellHeap.priority(top);
+            if (f > g[cell] + heuristic(cell, target)) {
+                continue; // stale entry; cell was reached more cheaply since
+            }
+            if (cell == target) {
+                return g[cell];
+            }
+            expand(cell, target);
+        }
+        return -1;
+    }
+
+    /**
+     * Effect: pushes every jump point reachable in a straight line from cell onto the open list,
+     * following only the directions that the pruning rules allow given how cell was reached.
+     */
+    private void expand(int cell, int target) {
+        int r = cell / cols;
+        int c = cell % cols;
+        int p = parent[cell];
+        if (p < 0) {
+            tryJump(cell, r, c, -1, 0, target);
+            tryJump(cell, r, c, 0, 1, target);
+            tryJump(cell, r, c, 1, 0, target);
+            tryJump(cell, r, c, 0, -1, target);
+            return;
+        }
+        int dr = Integer.signum(r - p / cols);
+        int dc = Integer.signum(c - p % cols);
+        if (dc != 0) {
+            tryJump(cell, r, c, -1, 0, target);
+            tryJump(cell, r, c, 1, 0, target);
+            tryJump(cell, r, c, 0, dc, target);
+        } else {
+            tryJump(cell, r, c, 0, -1, target);
+            tryJump(cell, r, c, 0, 1, target);
+            tryJump(cell, r, c, dr, 0, target);
+        }
+    }
+
+    /**
+     * Effect: jumps from (r, c) in direction (dr, dc) and, if a jump point is found that
+     * improves on its best known distance, records it and pushes it onto the open list.
+     */
+    private void tryJump(int from, int r, int c, int dr, int dc, int target) {
+        int jp = dc != 0 ? jumpHorizontal(r, c + dc, dc, target)
+                         : jumpVertical(r + dr, c, dr, target);
+        if (jp < 0) {
+            return;
+        }
+        int ng = g[from] + Math.abs(jp / cols - r) + Math.abs(jp % cols - c);
+        if (ng < g[jp]) {
+            g[jp] = ng;
+            parent[jp] = from;
+            frontier.add(jp, ng + heuristic(jp, target));
+        }
+    }
+
+    /**
+     * Returns: the first jump point reached by moving horizontally in direction dc starting at
+     * (r, c), or -1 if the run hits a wall first.
+     */
+    private int jumpHorizontal(int r, int c, int dc, int target) {
+        while (isOpen(r, c)) {
+            int cell = r * cols + c;
+            if (cell == target) {
+                return cell;
+            }
+            if (forced(r, c, dc)) {
+                return cell;
+            }
+            c += dc;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns: true iff open tile (r, c) has a forced neighbor for a horizontal run in direction
+     * dc: a tile above or below it is open while the one behind that is a wall.
+     */
+    private boolean forced(int r, int c, int dc) {
+        return isOpen(r - 1, c) && !isOpen(r - 1, c - dc)
+                || isOpen(r + 1, c) && !isOpen(r + 1, c - dc);
+    }
+
+    /**
+     * Returns: true iff jumpHorizontal(r, c, dc, target) >= 0, in constant time.
+     */
+    private boolean jumpsHorizontally(int r, int c, int dc, int target) {
+        if (!isOpen(r, c)) {
+            return false;
+        }
+        int cell = r * cols + c;
+        if (dc > 0 ? jumpsEast[cell] : jumpsWest[cell]) {
+            return true;
+        }
+        return run[target] == run[cell] && Integer.signum(target - cell) != -dc;
+    }
+
+    /**
+     * Returns: the first jump point reached by moving vertically in direction dr starting at
+     * (r, c), or -1 if the run hits a wall first.
+     */
+    private int jumpVertical(int r, int c, int dr, int target) {
+        while (isOpen(r, c)) {
+            int cell = r * cols + c;
+            if (cell == target) {
+                return cell;
+            }
+            if (isOpen(r, c - 1) && !isOpen(r - dr, c - 1)
+                    || isOpen(r, c + 1) && !isOpen(r - dr, c + 1)) {
+                return cell;
+            }
+            if (jumpsHorizontally(r, c + 1, 1, target)
+                    || jumpsHorizontally(r, c - 1, -1, target)) {
+                return cell;
+            }
+            r += dr;
+        }
+        return -1;
+    }
+
+    /** Returns: true iff (r, c) is on the grid and is not a wall. */
+    private boolean isOpen(int r, int c) {
+        return 0 <= r && r < rows && 0 <= c && c < cols && open[r * cols + c];
+    }
+
+    /** Returns: the Manhattan distance between two tiles, an admissible estimate of steps. */
+    private int heuristic(int a, int b) {
+        return Math.abs(a / cols - b / cols) + Math.abs(a % cols - b % cols);
+    }
+}
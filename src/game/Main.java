@@ -1,6 +1,8 @@
 package game;
 
 import diver.McDiver;
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.Locale;
 import java.util.Random;
 
@@ -9,6 +11,8 @@ import java.util.Random;
 public class Main {
     static long seed =  new Random().nextLong();
     static boolean useGUI = true;
+    /** The number of games kept in memory by the sewer cache, if --cache is given. */
+    static final int CACHED_GAMES = 64;
     /**
      * The main program. By default, runs seek() and scram() on a random seed, with a
      * graphical user interface.
@@ -40,6 +44,18 @@ public class Main {
                         runs = 1;
                     }
                     break;
+                case "--cache":
+                    if (argi >= args.length) {
+                        System.err.println("Error, --cache must be followed by a directory");
+                        return;
+                    }
+                    try {
+                        GameState.cache = new SewerCache(CACHED_GAMES, Paths.get(args[argi++]));
+                    } catch (IOException e) {
+                        System.err.println("Error, cannot create cache directory: " + e);
+                        return;
+                    }
+                    break;
                 case "--nographics":
                     useGUI = false;
                     break;
@@ -63,10 +79,14 @@ public class Main {
         if (runs > 1) {
             System.out.println("Average score : " + totalScore / runs);
         }
+        if (GameState.cache != null) {
+            System.out.println("Sewer cache : " + GameState.cache.summary());
+        }
     }
 
     /** Effect: Prints a usage message. */
     public static void usage() {
-        System.out.println("Usage: Main [--help] [-s <seed>] [-n <runs>] [--nographics]");
+        System.out.println("Usage: Main [--help] [-s <seed>] [-n <runs>] [--nographics]"
+                + " [--cache <directory>]");
     }
 }
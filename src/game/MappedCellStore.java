@@ -0,0 +1,202 @@
+package game;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A CellStore in a memory-mapped file, so that a grid can be larger than the heap: the cells
+ * take no heap at all, and the operating system pages them in and out as they are used. The file
+ * is mapped in chunks of CHUNK bytes, since one mapping cannot exceed 2 GB.
+ * <p>
+ * File format (big-endian): the int MAGIC, the int VERSION, the number of cells as a long, then
+ * ATTRIBUTES ints kept for the owner of the store (SewerGrid keeps the grid's size, entrance and
+ * ring there), padded to HEADER_SIZE bytes; then a type byte per cell; then, from the next
+ * multiple of 8, the coins of each cell as an unsigned short; then a weights byte per cell.
+ */
+final class MappedCellStore implements CellStore {
+
+    /**
+     * The first four bytes of a store file: "SWRG".
+     */
+    static final int MAGIC = 0x53575247;
+
+    /**
+     * The version of the file format.
+     */
+    static final int VERSION = 1;
+
+    /**
+     * The number of ints in the header kept for the owner of the store.
+     */
+    static final int ATTRIBUTES = 8;
+
+    /**
+     * Bytes before the type bytes.
+     */
+    private static final int HEADER_SIZE = 64;
+
+    /**
+     * The size of a mapped chunk: a power of 2, and even, so no coin value straddles two chunks.
+     */
+    private static final int CHUNK_BITS = 30;
+    private static final long CHUNK = 1L << CHUNK_BITS;
+
+    /**
+     * The number of cells.
+     */
+    private final int size;
+
+    /**
+     * The offsets in the file of the type bytes, the coins and the weights bytes.
+     */
+    private final long types, coins, weights;
+
+    /**
+     * The file, mapped CHUNK bytes at a time; chunk i starts at byte i * CHUNK.
+     */
+    private final MappedByteBuffer[] chunks;
+
+    /**
+     * Constructor: a store of size cells over the file open in ch, mapped read-write if
+     * writable.
+     */
+    private MappedCellStore(FileChannel ch, int size, boolean writable) throws IOException {
+        this.size = size;
+        types = HEADER_SIZE;
+        coins = (types + size + 7) & ~7L;
+        weights = coins + 2L * size;
+        long length = weights + size;
+        chunks = new MappedByteBuffer[(int) ((length + CHUNK - 1) / CHUNK)];
+        FileChannel.MapMode mode =
+                writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY;
+        for (int i = 0; i < chunks.length; i++) {
+            long start = i * CHUNK;
+            chunks[i] = ch.map(mode, start, Math.min(CHUNK, length - start));
+        }
+    }
+
+    /**
+     * Return a new store of size cells, all 0, in file, replacing any file there.
+     */
+    static MappedCellStore create(Path file, int size) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            // Mapping past the end grows the file, filling it with zeros.
+            MappedCellStore store = new MappedCellStore(ch, size, true);
+            store.chunks[0].putInt(0, MAGIC);
+            store.chunks[0].putInt(4, VERSION);
+            store.chunks[0].putLong(8, size);
+            return store;
+        }
+    }
+
+    /**
+     * Return the store in file, which was made by create(), mapped read-write if writable.
+     * Throws IOException if file cannot be read or is not a store.
+     */
+    static MappedCellStore open(Path file, boolean writable) throws IOException {
+        StandardOpenOption[] options = writable
+                ? new StandardOpenOption[] { StandardOpenOption.READ, StandardOpenOption.WRITE }
+                : new StandardOpenOption[] { StandardOpenOption.READ };
+        try (FileChannel ch = FileChannel.open(file, options)) {
+            if (ch.size() < HEADER_SIZE) {
+                throw new IOException("not a cell store");
+            }
+            MappedByteBuffer header = ch.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (header.getInt(0) != MAGIC) {
+                throw new IOException("not a cell store");
+            }
+            if (header.getInt(4) != VERSION) {
+                throw new IOException("unsupported cell store version " + header.getInt(4));
+            }
+            long size = header.getLong(8);
+            if (size < 0 || size > Integer.MAX_VALUE
+                    || ch.size() != ((HEADER_SIZE + size + 7) & ~7L) + 3 * size) {
+                throw new IOException("corrupt cell store");
+            }
+            return new MappedCellStore(ch, (int) size, writable);
+        }
+    }
+
+    /**
+     * Return attribute i of the header. Requires: 0 <= i < ATTRIBUTES.
+     */
+    int attribute(int i) {
+        return chunks[0].getInt(16 + 4 * i);
+    }
+
+    /**
+     * Set attribute i of the header to value. Requires: 0 <= i < ATTRIBUTES.
+     */
+    void setAttribute(int i, int value) {
+        chunks[0].putInt(16 + 4 * i, value);
+    }
+
+    /**
+     * Write all changes to the file.
+     */
+    void force() {
+        for (MappedByteBuffer chunk : chunks) {
+            chunk.force();
+        }
+    }
+
+    /**
+     * Return the chunk holding byte offset of the file.
+     */
+    private MappedByteBuffer chunk(long offset) {
+        return chunks[(int) (offset >>> CHUNK_BITS)];
+    }
+
+    /**
+     * Return the position of byte offset of the file within its chunk.
+     */
+    private static int within(long offset) {
+        return (int) (offset & (CHUNK - 1));
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int type(int cell) {
+        long offset = types + cell;
+        return chunk(offset).get(within(offset)) & 0xFF;
+    }
+
+    @Override
+    public void setType(int cell, int value) {
+        long offset = types + cell;
+        chunk(offset).put(within(offset), (byte) value);
+    }
+
+    @Override
+    public int coins(int cell) {
+        long offset = coins + 2L * cell;
+        return chunk(offset).getChar(within(offset));
+    }
+
+    @Override
+    public void setCoins(int cell, int value) {
+        long offset = coins + 2L * cell;
+        chunk(offset).putChar(within(offset), (char) value);
+    }
+
+    @Override
+    public int weights(int cell) {
+        long offset = weights + cell;
+        return chunk(offset).get(within(offset)) & 0xFF;
+    }
+
+    @Override
+    public void setWeights(int cell, int value) {
+        long offset = weights + cell;
+        chunk(offset).put(within(offset), (byte) value);
+    }
+}
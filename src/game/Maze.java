@@ -1,5 +1,6 @@
 package game;
 
+import graph.EdgeVisitor;
 import graph.WeightedDigraph;
 import java.util.Set;
 
@@ -17,4 +18,12 @@ public class Maze implements WeightedDigraph<Node, Edge> {
     public Node source(Edge edge) { return edge.source(); }
     public Node dest(Edge edge) { return edge.destination(); }
     public double weight(Edge edge) { return edge.length(); }
+
+    /** Visits the exits of vertex without creating an iterator. */
+    @Override
+    public void forEachOutgoing(Node vertex, EdgeVisitor<Node, Edge> visitor) {
+        for (Edge edge : vertex.exitArray()) {
+            visitor.visit(edge, edge.destination(), edge.length());
+        }
+    }
 }
\ No newline at end of file
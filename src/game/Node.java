@@ -1,7 +1,8 @@
 package game;
 
-import java.util.Collections;
-import java.util.LinkedHashSet;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Set;
 
@@ -10,23 +11,38 @@ import java.util.Set;
  */
 public class Node {
 
+    /**
+     * An empty array of edges, shared by all Nodes with no exits yet.
+     */
+    private static final Edge[] NO_EXITS = new Edge[0];
+
+    /**
+     * The directions, indexed by ordinal.
+     */
+    private static final Sewers.Direction[] DIRECTIONS = Sewers.Direction.values();
+
     /**
      * The unique numerical identifier of this Node
      */
     private final long id;
 
     /**
-     * The edges leaving from this Node
+     * The edges leaving from this Node, indexed by the ordinal of their Sewers.Direction: the
+     * edge going NORTH is in slot 0, EAST in 1, SOUTH in 2 and WEST in 3; null if there is none.
      */
-    private final Set<Edge> edges;
+    private final Edge[] slots = new Edge[4];
 
     /**
-     * The neighbors of this Node
+     * The edges leaving from this Node, in the order they were added, as an array that can be
+     * traversed without allocating an iterator. Its length is the number of exits.
      */
-    private final Set<Node> neighbors;
+    private Edge[] exitArray = NO_EXITS;
 
-    private final Set<Edge> unmodifiableEdges;
-    private final Set<Node> unmodifiableNeighbors;
+    /**
+     * Unmodifiable views of the edges and the neighbors of this Node, in the order of exitArray.
+     */
+    private final Set<Edge> exits = new ExitSet();
+    private final Set<Node> neighbors = new NeighborSet();
 
     /**
      * Extra state that belongs to this node
@@ -45,21 +61,49 @@ public class Node {
      */
     Node(long givenId, Tile t) {
         id = givenId;
-        edges = new LinkedHashSet<>();
-        neighbors = new LinkedHashSet<>();
-
-        unmodifiableEdges = Collections.unmodifiableSet(edges);
-        unmodifiableNeighbors = Collections.unmodifiableSet(neighbors);
-
         tile = t;
     }
 
     /**
-     * Add edge e to this node.
+     * Add edge e to this node, replacing the edge to the same neighbor if there is one.
+     * Throw an IllegalArgumentException if e does not go to a tile next to this Node's tile.
      */
     void addEdge(Edge e) {
-        edges.add(e);
-        neighbors.add(e.getOther(this));
+        int d = slot(e.getOther(this));
+        if (d < 0) {
+            throw new IllegalArgumentException("addEdge: Edge must go to an adjacent tile");
+        }
+        Edge old = slots[d];
+        slots[d] = e;
+        if (old == null) {
+            Edge[] a = new Edge[exitArray.length + 1];
+            System.arraycopy(exitArray, 0, a, 0, exitArray.length);
+            a[exitArray.length] = e;
+            exitArray = a;
+        } else {
+            for (int i = 0; i < exitArray.length; i++) {
+                if (exitArray[i] == old) {
+                    exitArray[i] = e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Return the slot for the edge from this Node to q: the ordinal of the Sewers.Direction from
+     * this Node's tile to q's tile, or -1 if q's tile is not next to this Node's tile.
+     */
+    private int slot(Node q) {
+        Tile t = q.tile;
+        int dr = t.row() - tile.row();
+        int dc = t.column() - tile.column();
+        if (dc == 0) {
+            return dr == -1 ? 0 : dr == 1 ? 2 : -1;
+        }
+        if (dr == 0) {
+            return dc == 1 ? 1 : dc == -1 ? 3 : -1;
+        }
+        return -1;
     }
 
     /**
@@ -74,26 +118,51 @@ public class Node {
      * if edge doesn't exist
      */
     public Edge getEdge(Node q) {
-        for (Edge e : edges) {
-            if (e.destination().equals(q)) {
+        int d = slot(q);
+        if (d >= 0) {
+            Edge e = slots[d];
+            if (e != null && e.destination().equals(q)) {
                 return e;
             }
         }
         throw new IllegalArgumentException("getEdge: Node must be a neighbor of this Node");
     }
 
+    /**
+     * Return the Edge leaving this Node in direction d, or null if there is none.
+     */
+    public Edge getEdge(Sewers.Direction d) {
+        return slots[d.ordinal()];
+    }
+
+    /**
+     * Return the neighbor of this Node in direction d, or null if there is none.
+     */
+    public Node getNeighbor(Sewers.Direction d) {
+        Edge e = getEdge(d);
+        return e == null ? null : e.destination();
+    }
+
     /**
      * Return an unmodifiable view of the Edges leaving this Node.
      */
     public Set<Edge> getExits() {
-        return unmodifiableEdges;
+        return exits;
+    }
+
+    /**
+     * Return the Edges leaving this Node as an array, in the order of getExits().
+     * The array must not be modified.
+     */
+    Edge[] exitArray() {
+        return exitArray;
     }
 
     /**
      * Return an unmodifiable view of the Nodes neighboring this Node.
      */
     public Set<Node> getNeighbors() {
-        return unmodifiableNeighbors;
+        return neighbors;
     }
 
     /**
@@ -121,4 +190,107 @@ public class Node {
     public int hashCode() {
         return Objects.hash(id);
     }
+
+    /**
+     * An iterator over exitArray as it was when the iterator was made.
+     */
+    private abstract static class ExitIterator<T> implements Iterator<T> {
+
+        private final Edge[] a;
+        private int i;
+
+        /**
+         * Constructor: an iterator over the Edges in a.
+         */
+        ExitIterator(Edge[] a) {
+            this.a = a;
+        }
+
+        /**
+         * Return the element for Edge e.
+         */
+        abstract T element(Edge e);
+
+        @Override
+        public boolean hasNext() {
+            return i < a.length;
+        }
+
+        @Override
+        public T next() {
+            if (i >= a.length) {
+                throw new NoSuchElementException();
+            }
+            return element(a[i++]);
+        }
+    }
+
+    /**
+     * The view returned by getExits().
+     */
+    private final class ExitSet extends AbstractSet<Edge> {
+
+        @Override
+        public int size() {
+            return exitArray().length;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof Edge)) {
+                return false;
+            }
+            for (Edge e : exitArray()) {
+                if (e == o) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public Iterator<Edge> iterator() {
+            return new ExitIterator<>(exitArray()) {
+                @Override
+                Edge element(Edge e) {
+                    return e;
+                }
+            };
+        }
+    }
+
+    /**
+     * The view returned by getNeighbors().
+     */
+    private final class NeighborSet extends AbstractSet<Node> {
+
+        @Override
+        public int size() {
+            return exitArray().length;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof Node)) {
+                return false;
+            }
+            Node q = (Node) o;
+            int d = slot(q);
+            if (d < 0) {
+                return false;
+            }
+            Edge e = getEdge(DIRECTIONS[d]);
+            return e != null && e.destination().equals(q);
+        }
+
+        @Override
+        public Iterator<Node> iterator() {
+            return new ExitIterator<>(exitArray()) {
+                @Override
+                Node element(Edge e) {
+                    return e.destination();
+                }
+            };
+        }
+    }
 }
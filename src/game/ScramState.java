@@ -22,6 +22,12 @@ public interface ScramState {
 	 * They are in no particular order. */
 	Collection<Node> allNodes();
 
+	/** Return the length of a shortest path from a to b, which is the
+	 * number of steps it takes, or -1 if there is none. The distances of a sewer system loaded from a file
+	 * are kept in a file next to it, so after the first game on that sewer
+	 * system this is a lookup. Requires: a and b are nodes of the graph. */
+	int distance(Node a, Node b);
+
 	/** Change McDiver's location to n.
 	 * Throw an IllegalArgumentException if n is not directly connected to
 	 * McDiver's location. */
@@ -0,0 +1,355 @@
+package game;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * A file of pre-generated games, any of which can be loaded by its index or seed without reading
+ * the rest. The file is mapped into memory when opened, so opening reads nothing but the
+ * trailer, and each game is decoded in place from the mapped pages by Sewers.fromBytes, without
+ * copying its bytes.
+ * <p>
+ * File format (big-endian): the int MAGIC and the int VERSION; then the records, one per game,
+ * each the seek sewer followed by the scram sewer in the compact format of Sewers.toBytes; then
+ * the index, a long seed and a long record offset per game in order of index; then the seed
+ * table, a long seed and an int index per game in order of seed; then the trailer, the long
+ * offset of the index, the int number of games and MAGIC again. Since the records follow each
+ * other, iterating over the archive reads the file from front to back. An archive is mapped as
+ * one buffer, so it must be smaller than 2 GB, which is several million games.
+ */
+public final class SewerArchive implements Iterable<SewerCorpus.Game> {
+
+    /**
+     * The first and last four bytes of an archive: "SWRA".
+     */
+    static final int MAGIC = 0x53575241;
+
+    /**
+     * The version of the file format.
+     */
+    static final int VERSION = 1;
+
+    /**
+     * Bytes in the header, an index entry, a seed table entry and the trailer.
+     */
+    private static final int HEADER_SIZE = 4 + 4;
+    private static final int INDEX_ENTRY_SIZE = 8 + 8;
+    private static final int SEED_ENTRY_SIZE = 8 + 4;
+    private static final int TRAILER_SIZE = 8 + 4 + 4;
+
+    /**
+     * The number of games generated at a time by write(), which bounds the memory used.
+     */
+    private static final int CHUNK = 256;
+
+    /**
+     * The whole mapped file. Only read with absolute gets, or through duplicates, so that it can
+     * be shared by threads.
+     */
+    private final ByteBuffer buf;
+
+    /**
+     * The number of games.
+     */
+    private final int count;
+
+    /**
+     * The offsets of the index and of the seed table in buf.
+     */
+    private final int index, seeds;
+
+    /**
+     * Constructor: an archive over buf, the mapped contents of an archive file.
+     * Throws IOException if buf is not an archive.
+     */
+    private SewerArchive(ByteBuffer buf) throws IOException {
+        this.buf = buf;
+        int size = buf.limit();
+        if (size < HEADER_SIZE + TRAILER_SIZE || buf.getInt(0) != MAGIC
+                || buf.getInt(size - 4) != MAGIC) {
+            throw new IOException("not a sewer archive");
+        }
+        if (buf.getInt(4) != VERSION) {
+            throw new IOException("unsupported sewer archive version " + buf.getInt(4));
+        }
+        long indexOffset = buf.getLong(size - TRAILER_SIZE);
+        count = buf.getInt(size - TRAILER_SIZE + 8);
+        if (count < 0 || indexOffset < HEADER_SIZE || indexOffset + (long) count
+                * (INDEX_ENTRY_SIZE + SEED_ENTRY_SIZE) != size - TRAILER_SIZE) {
+            throw new IOException("corrupt sewer archive trailer");
+        }
+        index = (int) indexOffset;
+        seeds = index + count * INDEX_ENTRY_SIZE;
+    }
+
+    /**
+     * Return the archive in file, mapping it into memory.
+     * Throws IOException if file cannot be read or is not an archive.
+     */
+    public static SewerArchive open(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (ch.size() > Integer.MAX_VALUE) {
+                throw new IOException("sewer archive too large to map: " + ch.size() + " bytes");
+            }
+            // The mapping stays valid after the channel is closed.
+            return new SewerArchive(ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size()));
+        }
+    }
+
+    /**
+     * Return the number of games in this archive.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Return the seed of the game with index i.
+     * Throws IndexOutOfBoundsException if i is not in 0..size()-1.
+     */
+    public long seed(int i) {
+        return buf.getLong(indexEntry(i));
+    }
+
+    /**
+     * Return the game with index i, decoded from the file. Each call returns new Sewers, which
+     * the caller may modify freely.
+     * Throws IndexOutOfBoundsException if i is not in 0..size()-1.
+     */
+    public SewerCorpus.Game get(int i) {
+        int entry = indexEntry(i);
+        ByteBuffer record = buf.duplicate();
+        record.position((int) buf.getLong(entry + 8));
+        return read(buf.getLong(entry), record);
+    }
+
+    /**
+     * Return the offset in buf of the index entry of game i.
+     */
+    private int indexEntry(int i) {
+        return index + Objects.checkIndex(i, count) * INDEX_ENTRY_SIZE;
+    }
+
+    /**
+     * Return the game with the given seed whose record starts at the position of record, and
+     * advance the position past the record.
+     */
+    private static SewerCorpus.Game read(long seed, ByteBuffer record) {
+        Sewers seek = Sewers.fromBytes(record);
+        Sewers scram = Sewers.fromBytes(record);
+        return new SewerCorpus.Game(seed, seek, scram);
+    }
+
+    /**
+     * Return the index of the game with the given seed, or -1 if there is none. If several games
+     * have that seed, return the index of one of them. Binary search over the seed table, so
+     * O(log size()).
+     */
+    public int indexOf(long seed) {
+        int lo = 0;
+        int hi = count - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            long s = buf.getLong(seeds + mid * SEED_ENTRY_SIZE);
+            if (s < seed) {
+                lo = mid + 1;
+            } else if (s > seed) {
+                hi = mid - 1;
+            } else {
+                return buf.getInt(seeds + mid * SEED_ENTRY_SIZE + 8);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Return an iterator over the games in order of index. It reads the records one after the
+     * other rather than through the index.
+     */
+    @Override
+    public Iterator<SewerCorpus.Game> iterator() {
+        ByteBuffer records = buf.duplicate();
+        records.position(HEADER_SIZE);
+        return new Iterator<>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < count;
+            }
+
+            @Override
+            public SewerCorpus.Game next() {
+                if (next >= count) {
+                    throw new NoSuchElementException();
+                }
+                return read(seed(next++), records);
+            }
+        };
+    }
+
+    /**
+     * Write the first count games of the corpus with seed corpusSeed to file, generating them on
+     * the given number of threads. Requires: threads > 0.
+     */
+    public static void write(Path file, long corpusSeed, int count, int threads)
+            throws IOException {
+        try (Writer out = create(file)) {
+            for (int from = 0; from < count; from += CHUNK) {
+                SewerCorpus.generate(corpusSeed, from, Math.min(CHUNK, count - from), threads,
+                        game -> {
+                            try {
+                                out.add(game);
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                        });
+            }
+            out.commit();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Return a writer that creates an archive in file. The archive replaces file when the writer
+     * is committed; until then, any existing file is left as it is, and closing the writer
+     * without committing it discards the games added.
+     */
+    public static Writer create(Path file) throws IOException {
+        return new Writer(file);
+    }
+
+    /**
+     * Adds games to a new archive, in order of index. Call commit() once every game has been
+     * added; close() without commit(), as when adding a game fails inside try-with-resources,
+     * deletes the partial archive.
+     */
+    public static final class Writer implements Closeable {
+
+        /**
+         * The archive, and the temporary file it is written to before being moved into place.
+         */
+        private final Path file, tmp;
+
+        private final DataOutputStream out;
+
+        /**
+         * The number of games added, and the seed and record offset of each.
+         */
+        private int count;
+        private long[] seeds = new long[64];
+        private long[] offsets = new long[64];
+
+        /**
+         * The number of bytes written so far.
+         */
+        private long size;
+
+        /**
+         * True iff the writer has been committed or closed; no more games can be added.
+         */
+        private boolean closed;
+
+        /**
+         * Constructor: a writer of an archive in file.
+         */
+        private Writer(Path file) throws IOException {
+            this.file = file;
+            tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            size = HEADER_SIZE;
+        }
+
+        /**
+         * Add game as the next game of the archive.
+         * Throws IllegalArgumentException if one of its sewers cannot be written by
+         * Sewers.toBytes.
+         */
+        public void add(SewerCorpus.Game game) throws IOException {
+            if (closed) {
+                throw new IllegalStateException("archive writer is closed");
+            }
+            if (count == seeds.length) {
+                seeds = Arrays.copyOf(seeds, 2 * count);
+                offsets = Arrays.copyOf(offsets, 2 * count);
+            }
+            byte[] seek = game.seek().toBytes();
+            byte[] scram = game.scram().toBytes();
+            seeds[count] = game.seed();
+            offsets[count] = size;
+            count++;
+            out.write(seek);
+            out.write(scram);
+            size += seek.length + scram.length;
+        }
+
+        /**
+         * Write the index, seed table and trailer, and move the archive into place, replacing
+         * file. Throws IllegalStateException if the writer has been committed or closed.
+         */
+        public void commit() throws IOException {
+            if (closed) {
+                throw new IllegalStateException("archive writer is closed");
+            }
+            closed = true;
+            try {
+                try (out) {
+                    long indexOffset = size;
+                    for (int i = 0; i < count; i++) {
+                        out.writeLong(seeds[i]);
+                        out.writeLong(offsets[i]);
+                    }
+                    Integer[] bySeed = new Integer[count];
+                    for (int i = 0; i < count; i++) {
+                        bySeed[i] = i;
+                    }
+                    Arrays.sort(bySeed, (a, b) -> Long.compare(seeds[a], seeds[b]));
+                    for (int i : bySeed) {
+                        out.writeLong(seeds[i]);
+                        out.writeInt(i);
+                    }
+                    out.writeLong(indexOffset);
+                    out.writeInt(count);
+                    out.writeInt(MAGIC);
+                }
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                Files.deleteIfExists(tmp);
+                throw e;
+            }
+        }
+
+        /**
+         * If the writer has not been committed, discard the archive: delete the temporary file
+         * and leave file as it is. Otherwise do nothing.
+         */
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                out.close();
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package game;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A cache of generated games, so that playing the same seed again does not generate its sewers
+ * again. Games are looked up by seed, and the result is always the game SewerCorpus.generate
+ * returns for that seed.
+ * <p>
+ * There are two tiers. The memory tier keeps the games used most recently, at most
+ * memoryCapacity of them, evicting the one used least recently when another is added. The disk
+ * tier, if there is one, keeps every game it is given as a file in a directory, in the compact
+ * format of Sewers.toBytes, and survives the program; trimDisk() bounds it by deleting the files
+ * used least recently. Both tiers hold the bytes of the compact format rather than Sewers,
+ * because a game changes its sewers while it is played (coins are picked up): every get() decodes
+ * new Sewers.
+ * <p>
+ * Disk entries are named after GENERATOR_VERSION as well as the seed, so that files written by
+ * an older generator are never read; trimDisk() deletes them first, since they are no longer
+ * used. An error reading or writing the disk tier only makes the cache generate the game.
+ * <p>
+ * A SewerCache may be used by several threads at once. Two threads that miss on the same seed
+ * at the same time may both generate the game.
+ */
+public final class SewerCache {
+
+    /**
+     * The version of sewer generation. Must be increased whenever a change to generation or to
+     * the compact format changes the bytes of the game generated from some seed, so that the
+     * disk tier does not return old games.
+     */
+    public static final int GENERATOR_VERSION = 2;
+
+    /**
+     * The directory of the disk tier, or null if there is none.
+     */
+    private final Path directory;
+
+    /**
+     * The compact bytes of the games in the memory tier, by seed, least recently used first.
+     * Guarded by this.
+     */
+    private final LinkedHashMap<Long, byte[]> memory;
+
+    /**
+     * The number of lookups answered by the memory tier, by the disk tier, and by generating the
+     * game; the number of games evicted from the memory tier; and the number of failed reads and
+     * writes of the disk tier. Guarded by this.
+     */
+    private long memoryHits, diskHits, misses, evictions, diskErrors;
+
+    /**
+     * Constructor: an empty cache that keeps at most memoryCapacity games in memory and, if
+     * directory is not null, every game in directory, which is created if it does not exist.
+     * Throws IOException if directory cannot be created.
+     * Requires: memoryCapacity >= 0.
+     */
+    public SewerCache(int memoryCapacity, Path directory) throws IOException {
+        assert memoryCapacity >= 0;
+        this.directory = directory;
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+        memory = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, byte[]> eldest) {
+                if (size() > memoryCapacity) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Return the game generated from seed, from the memory tier, else from the disk tier, else
+     * by generating it. A game found on disk or generated is added to the memory tier, and a
+     * generated game to the disk tier.
+     */
+    public SewerCorpus.Game get(long seed) {
+        byte[] bytes;
+        synchronized (this) {
+            bytes = memory.get(seed);
+            if (bytes != null) {
+                memoryHits++;
+                return decode(seed, bytes);
+            }
+        }
+        bytes = readDisk(seed);
+        if (bytes != null) {
+            try {
+                SewerCorpus.Game game = decode(seed, bytes);
+                synchronized (this) {
+                    diskHits++;
+                    memory.put(seed, bytes);
+                }
+                return game;
+            } catch (IllegalArgumentException e) {
+                synchronized (this) {
+                    diskErrors++; // a damaged entry; it is replaced below
+                }
+            }
+        }
+        SewerCorpus.Game game = SewerCorpus.generate(seed);
+        bytes = encode(game);
+        writeDisk(seed, bytes);
+        synchronized (this) {
+            misses++;
+            memory.put(seed, bytes);
+        }
+        return game;
+    }
+
+    /**
+     * Return the compact bytes of game: those of its seek sewer followed by those of its scram
+     * sewer.
+     */
+    private static byte[] encode(SewerCorpus.Game game) {
+        byte[] seek = game.seek().toBytes();
+        byte[] scram = game.scram().toBytes();
+        byte[] bytes = new byte[seek.length + scram.length];
+        System.arraycopy(seek, 0, bytes, 0, seek.length);
+        System.arraycopy(scram, 0, bytes, seek.length, scram.length);
+        return bytes;
+    }
+
+    /**
+     * Return new Sewers for the game with the given seed and compact bytes.
+     */
+    private static SewerCorpus.Game decode(long seed, byte[] bytes) {
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        Sewers seek = Sewers.fromBytes(in);
+        Sewers scram = Sewers.fromBytes(in);
+        return new SewerCorpus.Game(seed, seek, scram);
+    }
+
+    /**
+     * Return the file of the disk tier for seed.
+     */
+    private Path fileFor(long seed) {
+        return directory.resolve("g" + GENERATOR_VERSION + "-" + Long.toHexString(seed) + ".swr");
+    }
+
+    /**
+     * Return the bytes of the disk tier's entry for seed, marking it as just used, or null if
+     * there is no disk tier, no entry, or the entry cannot be read.
+     */
+    private byte[] readDisk(long seed) {
+        if (directory == null) {
+            return null;
+        }
+        Path file = fileFor(seed);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try {
+            byte[] bytes = Files.readAllBytes(file);
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return bytes;
+        } catch (IOException e) {
+            synchronized (this) {
+                diskErrors++;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Add bytes to the disk tier as the entry for seed, if there is a disk tier. The entry is
+     * written under a temporary name and then moved into place, so a reader never sees half an
+     * entry.
+     */
+    private void writeDisk(long seed, byte[] bytes) {
+        if (directory == null) {
+            return;
+        }
+        Path file = fileFor(seed);
+        Path tmp = file.resolveSibling(file.getFileName() + "." + Thread.currentThread().getId()
+                + ".tmp");
+        try {
+            Files.write(tmp, bytes);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            synchronized (this) {
+                diskErrors++;
+            }
+        }
+    }
+
+    /**
+     * Delete the entries of the disk tier used least recently, including all those written by
+     * other generator versions, until at most maxEntries are left. Return the number deleted.
+     * Throws IOException if the directory cannot be listed or an entry cannot be deleted.
+     * Requires: maxEntries >= 0.
+     */
+    public int trimDisk(int maxEntries) throws IOException {
+        if (directory == null) {
+            return 0;
+        }
+        String current = "g" + GENERATOR_VERSION + "-";
+        Map<Path, FileTime> used = new HashMap<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory, "g*-*.swr")) {
+            for (Path file : entries) {
+                // Entries of other versions sort before every entry of this one.
+                used.put(file, file.getFileName().toString().startsWith(current)
+                        ? Files.getLastModifiedTime(file) : FileTime.fromMillis(Long.MIN_VALUE));
+            }
+        }
+        List<Path> files = new ArrayList<>(used.keySet());
+        files.sort(Comparator.comparing(used::get));
+        int deleted = 0;
+        for (int i = 0; i < files.size() - maxEntries; i++) {
+            Files.deleteIfExists(files.get(i));
+            deleted++;
+        }
+        return deleted;
+    }
+
+    /**
+     * Return the number of lookups answered by the memory tier.
+     */
+    public synchronized long memoryHits() {
+        return memoryHits;
+    }
+
+    /**
+     * Return the number of lookups answered by the disk tier.
+     */
+    public synchronized long diskHits() {
+        return diskHits;
+    }
+
+    /**
+     * Return the number of lookups that generated the game.
+     */
+    public synchronized long misses() {
+        return misses;
+    }
+
+    /**
+     * Return the number of games evicted from the memory tier.
+     */
+    public synchronized long evictions() {
+        return evictions;
+    }
+
+    /**
+     * Return the number of failed reads and writes of the disk tier.
+     */
+    public synchronized long diskErrors() {
+        return diskErrors;
+    }
+
+    /**
+     * Return the fraction of lookups answered by either tier, or 0 if there were none.
+     */
+    public synchronized double hitRate() {
+        long lookups = memoryHits + diskHits + misses;
+        return lookups == 0 ? 0 : (double) (memoryHits + diskHits) / lookups;
+    }
+
+    /**
+     * Return the number of games in the memory tier.
+     */
+    public synchronized int memorySize() {
+        return memory.size();
+    }
+
+    /**
+     * Empty the memory tier. The disk tier and the counts are kept.
+     */
+    public synchronized void clear() {
+        memory.clear();
+    }
+
+    /**
+     * Return a one-line summary of the counts, for printing.
+     */
+    public synchronized String summary() {
+        return String.format("%d memory hits, %d disk hits, %d misses (hit rate %.0f%%),"
+                + " %d evictions, %d disk errors", memoryHits, diskHits, misses,
+                100 * hitRate(), evictions, diskErrors);
+    }
+}
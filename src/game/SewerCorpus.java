@@ -0,0 +1,92 @@
+package game;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+/**
+ * Generation of corpora of games for benchmarking: numbered lists of seek and scram sewer
+ * systems. The game with index i in the corpus with seed s is generated from the seed
+ * gameSeed(s, i), which depends only on s and i, so games can be generated in any order and on
+ * any number of threads and the corpus is always the same.
+ */
+public final class SewerCorpus {
+
+    /**
+     * The sewer systems of one game: the seek sewer and the scram sewer generated from seed.
+     */
+    public record Game(long seed, Sewers seek, Sewers scram) {}
+
+    private SewerCorpus() {}
+
+    /**
+     * Return the game generated from seed, exactly as GameState generates it.
+     */
+    public static Game generate(long seed) {
+        Random rand = new Random(seed);
+        int rows = rand.nextInt(GameState.MAX_ROWS - GameState.MIN_ROWS + 1) + GameState.MIN_ROWS;
+        int cols = rand.nextInt(GameState.MAX_COLS - GameState.MIN_COLS + 1) + GameState.MIN_COLS;
+        Sewers seek = Sewers.digExploreSewer(rows, cols, rand);
+        Tile ring = seek.ring().getTile();
+        Sewers scram = Sewers.digGetOutSewer(rows, cols, ring.row(), ring.column(), rand);
+        return new Game(seed, seek, scram);
+    }
+
+    /**
+     * Return the seed of the game with index index in the corpus with seed corpusSeed. Seeds of
+     * different indices are spread over all 64 bits by the SplitMix64 finalizer, which is also
+     * how java.util.SplittableRandom derives its streams.
+     */
+    public static long gameSeed(long corpusSeed, long index) {
+        long z = corpusSeed + (index + 1) * 0x9e3779b97f4a7c15L;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Generate the games with indices start to start+count-1 of the corpus with seed corpusSeed
+     * on the given number of threads, and pass them to sink in order of index, on the calling
+     * thread. With more than one thread, all count games are generated before the first is
+     * passed to sink, so large corpora should be generated a range at a time.
+     * Requires: threads > 0.
+     */
+    public static void generate(long corpusSeed, int start, int count, int threads,
+            Consumer<Game> sink) {
+        IntStream indices = IntStream.range(start, start + count);
+        if (threads == 1) {
+            indices.mapToObj(i -> generate(gameSeed(corpusSeed, i))).forEach(sink);
+            return;
+        }
+        List<Game> batch = new ArrayList<>();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            // Collect in index order on the pool, then hand the games to sink on this thread.
+            pool.submit(() -> indices.parallel()
+                    .mapToObj(i -> generate(gameSeed(corpusSeed, i)))
+                    .forEachOrdered(batch::add)).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("corpus generation interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("corpus generation failed", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+        batch.forEach(sink);
+    }
+
+    /**
+     * Return the first count games of the corpus with seed corpusSeed, generated on the given
+     * number of threads. Requires: threads > 0.
+     */
+    public static List<Game> generate(long corpusSeed, int count, int threads) {
+        List<Game> games = new ArrayList<>(count);
+        generate(corpusSeed, 0, count, threads, games::add);
+        return games;
+    }
+}
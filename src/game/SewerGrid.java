@@ -0,0 +1,1171 @@
+package game;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.IntSupplier;
+
+/**
+ * A sewer system stored as a few primitive values per cell instead of as Node, Tile and Edge
+ * objects, so that very large grids fit in memory. Each cell has a type byte, 16 bits of coins
+ * and a weights byte holding the weights of its edges to the east (high 4 bits) and south (low 4
+ * bits), 0 meaning no edge; the edges to the west and north are those of the neighbors. With an
+ * ArrayCellStore that is 4 bytes per cell, so a 10,000 by 10,000 grid takes 400 MB, where a
+ * Sewers takes hundreds of bytes per cell.
+ * <p>
+ * Cells are indexed by row * cols + column. For code written against Node and Tile, node()
+ * returns a Node for any cell, created when first asked for and kept, so asking again gives the
+ * same object. Its Tile reads and writes the cell, so coins taken through it are gone from the
+ * grid too, and its exits, and the Nodes they lead to, are only created when first used. Only the
+ * cells a caller walks over ever get objects.
+ * <p>
+ * The cells are kept in a CellStore: on the heap in an ArrayCellStore, or, for grids larger than
+ * is comfortable on the heap, in a memory-mapped file (MappedCellStore), where the operating
+ * system pages them in and out. The dig methods that take a Path and open() use a file. Digging,
+ * distance() and reading tiles all work on the store directly, so they work the same way on
+ * either; distance() keeps state only for the cells it reaches. Code that reads tiles by
+ * position, such as the GUI's maze panel, can use a grid through SewerView.
+ * <p>
+ * digExploreSewer and digGetOutSewer dig the same sewer systems as the methods of Sewers with the
+ * same names and arguments, drawing the same random numbers in the same order, but without
+ * creating any objects per cell or any memory per cell outside the store.
+ * <p>
+ * A SewerGrid is not safe for use by several threads at once.
+ */
+public final class SewerGrid implements SewerView {
+
+    /**
+     * The codes of the tile types in the low bits of a cell's type byte. A wall is 0, so a new
+     * store is all walls.
+     */
+    private static final int WALL = 0, FLOOR = 1, RING = 2, ENTRANCE = 3;
+    private static final int TYPE_MASK = 3;
+
+    /**
+     * The tile type of each code.
+     */
+    private static final Tile.TileType[] TYPES = {
+        Tile.TileType.WALL, Tile.TileType.FLOOR, Tile.TileType.RING, Tile.TileType.ENTRANCE
+    };
+
+    /**
+     * Set in a cell's type byte once its coins have been picked up.
+     */
+    private static final int PICKED_UP = 4;
+
+    /**
+     * Set in a cell's type byte if digging opened it to carve a way to a required cell.
+     */
+    private static final int CARVED = 0x80;
+
+    /**
+     * The order in which the exits of a node() are created: the order in which Sewers adds a
+     * node's edges when it creates them row by row.
+     */
+    private static final Sewers.Direction[] EXIT_ORDER = {
+        Sewers.Direction.NORTH, Sewers.Direction.WEST, Sewers.Direction.SOUTH,
+        Sewers.Direction.EAST
+    };
+
+    private final CellStore store;
+
+    /**
+     * Number of rows and columns.
+     */
+    private final int rows, cols;
+
+    /**
+     * The cells of the entrance and the ring, which are the same in a scram sewer.
+     */
+    private final int entrance, ring;
+
+    /**
+     * The number of cells that are not walls.
+     */
+    private final int openTiles;
+
+    /**
+     * The Node of each cell that node() has been asked for.
+     */
+    private final Map<Integer, Node> nodes = new HashMap<>();
+
+    /**
+     * Constructor: a grid over store with rows rows and cols columns, the given entrance and ring
+     * cells, and openTiles cells that are not walls.
+     */
+    private SewerGrid(CellStore store, int rows, int cols, int entrance, int ring,
+            int openTiles) {
+        this.store = store;
+        this.rows = rows;
+        this.cols = cols;
+        this.entrance = entrance;
+        this.ring = ring;
+        this.openTiles = openTiles;
+    }
+
+    /**
+     * Return the number of cells of a grid with r rows and c columns.
+     * Throws IllegalArgumentException if a grid that large cannot be indexed by an int.
+     */
+    private static int cellCount(int r, int c) {
+        long cells = (long) r * c;
+        if (r <= 0 || c <= 0 || cells > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("grid size out of range: " + r + " x " + c);
+        }
+        return (int) cells;
+    }
+
+    /**
+     * Return the sewer system Sewers.digExploreSewer(r, c, rand) returns, as a grid.
+     */
+    public static SewerGrid digExploreSewer(int r, int c, Random rand) {
+        return digExploreSewer(r, c, rand, new ArrayCellStore(cellCount(r, c)));
+    }
+
+    /**
+     * Return the sewer system Sewers.digExploreSewer(r, c, rand) returns, as a grid over store.
+     * Requires: store has r * c cells, all 0.
+     */
+    static SewerGrid digExploreSewer(int r, int c, Random rand, CellStore store) {
+        return new Digger(r, c, rand, store).dig(() -> 1, () -> 0, true,
+                Sewers.minRingDistance(r, c), -1);
+    }
+
+    /**
+     * Return the sewer system Sewers.digGetOutSewer(r, c, currentRow, currentCol, rand)
+     * returns, as a grid.
+     */
+    public static SewerGrid digGetOutSewer(int r, int c, int currentRow, int currentCol,
+            Random rand) {
+        return digGetOutSewer(r, c, currentRow, currentCol, rand,
+                new ArrayCellStore(cellCount(r, c)));
+    }
+
+    /**
+     * Return the sewer system Sewers.digGetOutSewer(r, c, currentRow, currentCol, rand)
+     * returns, as a grid over store.
+     * Requires: store has r * c cells, all 0.
+     */
+    static SewerGrid digGetOutSewer(int r, int c, int currentRow, int currentCol, Random rand,
+            CellStore store) {
+        return new Digger(r, c, rand, store).dig(() -> rand.nextInt(Sewers.MAX_EDGE_WEIGHT) + 1,
+                () -> Sewers.randomCoinValue(rand), false, 0, currentRow * c + currentCol);
+    }
+
+    /**
+     * Return the sewer system Sewers.digExploreSewer(r, c, rand) returns, as a grid kept in a
+     * new memory-mapped file, replacing any file there. The grid can be opened again with open().
+     */
+    public static SewerGrid digExploreSewer(int r, int c, Random rand, Path file)
+            throws IOException {
+        MappedCellStore store = MappedCellStore.create(file, cellCount(r, c));
+        SewerGrid grid = digExploreSewer(r, c, rand, store);
+        grid.save(store);
+        return grid;
+    }
+
+    /**
+     * Return the sewer system Sewers.digGetOutSewer(r, c, currentRow, currentCol, rand)
+     * returns, as a grid kept in a new memory-mapped file, replacing any file there. The grid can
+     * be opened again with open().
+     */
+    public static SewerGrid digGetOutSewer(int r, int c, int currentRow, int currentCol,
+            Random rand, Path file) throws IOException {
+        MappedCellStore store = MappedCellStore.create(file, cellCount(r, c));
+        SewerGrid grid = digGetOutSewer(r, c, currentRow, currentCol, rand, store);
+        grid.save(store);
+        return grid;
+    }
+
+    /**
+     * Record this grid's size, entrance, ring and number of open tiles in the header of store,
+     * which holds its cells, and write everything to the file.
+     */
+    private void save(MappedCellStore store) {
+        store.setAttribute(0, rows);
+        store.setAttribute(1, cols);
+        store.setAttribute(2, entrance);
+        store.setAttribute(3, ring);
+        store.setAttribute(4, openTiles);
+        store.force();
+    }
+
+    /**
+     * Return the grid in file, which was made by one of the methods above, mapping the file into
+     * memory. If writable, changes to the grid, such as coins taken, are written to the file.
+     * Throws IOException if file cannot be read or is not a grid.
+     */
+    public static SewerGrid open(Path file, boolean writable) throws IOException {
+        MappedCellStore store = MappedCellStore.open(file, writable);
+        int rows = store.attribute(0);
+        int cols = store.attribute(1);
+        int entrance = store.attribute(2);
+        int ring = store.attribute(3);
+        if (rows <= 0 || cols <= 0 || (long) rows * cols != store.size()
+                || entrance < 0 || entrance >= store.size() || ring < 0
+                || ring >= store.size()) {
+            throw new IOException("corrupt sewer grid header");
+        }
+        return new SewerGrid(store, rows, cols, entrance, ring, store.attribute(4));
+    }
+
+    /**
+     * Return a grid holding the same sewer system as sewers.
+     * Throws IllegalArgumentException if sewers cannot be written by Sewers.toBytes().
+     */
+    public static SewerGrid of(Sewers sewers) {
+        return fromBytes(ByteBuffer.wrap(sewers.toBytes()));
+    }
+
+    /**
+     * Return a Sewers holding the same sewer system as this grid. This creates objects for every
+     * cell, so it is only meant for grids of the sizes Sewers is used for.
+     */
+    public Sewers toSewers() {
+        return Sewers.fromBytes(toBytes());
+    }
+
+    @Override
+    public int rowCount() {
+        return rows;
+    }
+
+    @Override
+    public int columnCount() {
+        return cols;
+    }
+
+    /**
+     * Return the number of cells that are not walls.
+     */
+    public int numOpenTiles() {
+        return openTiles;
+    }
+
+    /**
+     * Return the index of the cell at (row, col).
+     */
+    public int cell(int row, int col) {
+        return row * cols + col;
+    }
+
+    /**
+     * Return the cell of the entrance.
+     */
+    public int entranceCell() {
+        return entrance;
+    }
+
+    /**
+     * Return the cell of the ring; in a scram sewer, this is the entrance.
+     */
+    public int ringCell() {
+        return ring;
+    }
+
+    /**
+     * Return the type of cell's tile.
+     */
+    public Tile.TileType type(int cell) {
+        return TYPES[store.type(cell) & TYPE_MASK];
+    }
+
+    /**
+     * Return true iff cell is not a wall.
+     */
+    public boolean isOpen(int cell) {
+        return (store.type(cell) & TYPE_MASK) != WALL;
+    }
+
+    /**
+     * Return the coins on cell: 0 once they have been picked up.
+     */
+    public int coins(int cell) {
+        return (store.type(cell) & PICKED_UP) != 0 ? 0 : store.coins(cell);
+    }
+
+    /**
+     * Return the coins that were on cell before any were picked up.
+     */
+    public int originalCoinValue(int cell) {
+        return store.coins(cell);
+    }
+
+    /**
+     * Pick up the coins on cell and return how many there were.
+     */
+    public int takeCoins(int cell) {
+        int result = coins(cell);
+        store.setType(cell, store.type(cell) | PICKED_UP);
+        return result;
+    }
+
+    /**
+     * Return the weight of the edge from cell to its neighbor in direction d, or 0 if there is
+     * none. Edges run both ways with the same weight.
+     */
+    public int weight(int cell, Sewers.Direction d) {
+        return weight(cell, d.ordinal());
+    }
+
+    /**
+     * Return the weight of the edge from cell in direction dir (the ordinal of a
+     * Sewers.Direction: north, east, south, west), or 0 if there is none.
+     */
+    private int weight(int cell, int dir) {
+        switch (dir) {
+            case 0:
+                return cell >= cols ? store.weights(cell - cols) & 0xF : 0;
+            case 1:
+                return store.weights(cell) >>> 4;
+            case 2:
+                return store.weights(cell) & 0xF;
+            default:
+                return cell % cols > 0 ? store.weights(cell - 1) >>> 4 : 0;
+        }
+    }
+
+    /**
+     * Return the cell next to cell in direction d.
+     * Requires: that cell is on the grid.
+     */
+    public int neighbor(int cell, Sewers.Direction d) {
+        return neighbor(cell, d.ordinal());
+    }
+
+    /**
+     * Return the cell next to cell in direction dir (the ordinal of a Sewers.Direction).
+     */
+    private int neighbor(int cell, int dir) {
+        switch (dir) {
+            case 0:
+                return cell - cols;
+            case 1:
+                return cell + 1;
+            case 2:
+                return cell + cols;
+            default:
+                return cell - 1;
+        }
+    }
+
+    /**
+     * Return the Node of cell, creating it if it has not been asked for before. Its id is cell.
+     */
+    public Node node(int cell) {
+        Node n = nodes.get(cell);
+        if (n == null) {
+            n = new GridNode(cell);
+            nodes.put(cell, n);
+        }
+        return n;
+    }
+
+    @Override
+    public Node nodeAt(int r, int c) {
+        return node(cell(r, c));
+    }
+
+    /**
+     * Return the Tile at (r, c). Unlike nodeAt, this does not keep an object for the cell, so
+     * it can be used to look at every cell of a large grid; all Tiles of a cell see the same
+     * state.
+     */
+    @Override
+    public Tile tileAt(int r, int c) {
+        return new GridTile(cell(r, c));
+    }
+
+    /**
+     * Return the Node of the entrance.
+     */
+    public Node entrance() {
+        return node(entrance);
+    }
+
+    /**
+     * Return the Node of the ring.
+     */
+    public Node ring() {
+        return node(ring);
+    }
+
+    /**
+     * Return the length of a shortest path from cell from to cell to, or -1 if there is none.
+     * Dijkstra's algorithm over the cells, stopping when to is settled; it keeps state only for
+     * the cells it reaches, so on a large grid a search between nearby cells touches only the
+     * pages of the store around them.
+     * Requires: from and to are open.
+     */
+    public int distance(int from, int to) {
+        CellDistances dist = new CellDistances();
+        CellHeap frontier = new CellHeap();
+        dist.put(from, 0);
+        frontier.add(from, 0);
+        while (!frontier.isEmpty()) {
+            long top = frontier.removeMin();
+            int cell = CellHeap.cell(top);
+            int d = CellHeap.priority(top);
+            if (cell == to) {
+                return d;
+            }
+            if (d > dist.get(cell)) {
+                continue; // stale entry; cell was reached more cheaply since
+            }
+            for (int dir = 0; dir < 4; dir++) {
+                int w = weight(cell, dir);
+                if (w == 0) {
+                    continue;
+                }
+                int next = neighbor(cell, dir);
+                int nd = d + w;
+                if (nd < dist.get(next)) {
+                    dist.put(next, nd);
+                    frontier.add(next, nd);
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Return the length of a shortest path from n to the ring, or -1 if there is none.
+     * Requires: n is an open node of this grid.
+     */
+    public int minPathLengthToRing(Node n) {
+        return distance((int) n.getId(), ring);
+    }
+
+    /**
+     * Return this sewer system in the compact binary format of Sewers.toBytes(), without
+     * creating a Sewers. For a grid dug from the same arguments as a Sewers, the bytes are the
+     * same as that Sewers' bytes.
+     */
+    public byte[] toBytes() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(Sewers.COMPACT_MAGIC, 0, Sewers.COMPACT_MAGIC.length);
+        out.write(Sewers.COMPACT_VERSION);
+        Sewers.writeVarint(out, rows);
+        Sewers.writeVarint(out, cols);
+        Sewers.writeVarint(out, entrance);
+        Sewers.writeVarint(out, ring);
+        int cells = rows * cols;
+        byte[] bitmap = new byte[(cells + 7) / 8];
+        for (int cell = 0; cell < cells; cell++) {
+            if (isOpen(cell)) {
+                bitmap[cell >> 3] |= 1 << (cell & 7);
+            }
+        }
+        out.write(bitmap, 0, bitmap.length);
+        for (int cell = 0; cell < cells; cell++) {
+            if (isOpen(cell)) {
+                out.write(store.weights(cell));
+            }
+        }
+        for (int cell = 0; cell < cells; cell++) {
+            if (isOpen(cell)) {
+                Sewers.writeVarint(out, coins(cell));
+            }
+        }
+        int[] carved = carvedCells();
+        Sewers.writeVarint(out, carved.length);
+        for (int cell : carved) {
+            Sewers.writeVarint(out, cell);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Return the cells that digging carved, in the order carved. They form a shortest path
+     * through the interior of the grid from a cell next to one that was dug, so the first is
+     * the only one next to an interior cell that is open and was not carved, and each of the
+     * others is the carved cell next to the one before it that is not the one before that.
+     * If the carved cells do not form such a path, the end of the array is -1.
+     */
+    private int[] carvedCells() {
+        int count = 0;
+        int first = -1;
+        for (int cell = 0; cell < rows * cols; cell++) {
+            if ((store.type(cell) & CARVED) != 0) {
+                count++;
+                if (first < 0 && nextToDug(cell)) {
+                    first = cell;
+                }
+            }
+        }
+        int[] carved = new int[count];
+        Arrays.fill(carved, -1);
+        int prev = -1;
+        for (int i = 0, cell = first; i < count && cell >= 0; i++) {
+            carved[i] = cell;
+            int next = -1;
+            for (int m : new int[] { cell - cols, cell + 1, cell + cols, cell - 1 }) {
+                if (m != prev && (store.type(m) & CARVED) != 0) {
+                    next = m;
+                }
+            }
+            prev = cell;
+            cell = next;
+        }
+        return carved;
+    }
+
+    /**
+     * Return true iff cell, which is not on the border, is next to an interior cell that is
+     * open and was not carved.
+     */
+    private boolean nextToDug(int cell) {
+        for (int m : new int[] { cell - cols, cell + 1, cell + cols, cell - 1 }) {
+            int r = m / cols;
+            int c = m % cols;
+            if (0 < r && r < rows - 1 && 0 < c && c < cols - 1 && isOpen(m)
+                    && (store.type(m) & CARVED) == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Convert the compact binary sewer at the position of data, as written by Sewers.toBytes()
+     * or toBytes(), into a grid, leaving the position just after it.
+     * Throws IllegalArgumentException if data does not hold a sewer in that format.
+     */
+    public static SewerGrid fromBytes(ByteBuffer data) {
+        int start = data.position();
+        try {
+            data.position(start + Sewers.COMPACT_MAGIC.length + 1);
+            int rows = Sewers.readVarint(data);
+            int cols = Sewers.readVarint(data);
+            int cells = cellCount(rows, cols);
+            // The bitmap alone takes a bit per cell, so check that data could hold it before
+            // allocating a store of that size.
+            if ((cells + 7L) / 8 > data.remaining()) {
+                throw new IllegalArgumentException("grid size out of range: " + rows + " x "
+                        + cols);
+            }
+            data.position(start);
+            return fromBytes(data, new ArrayCellStore(cells));
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("truncated compact sewer", e);
+        }
+    }
+
+    /**
+     * Convert the compact binary sewer at the position of data into a grid over store, leaving
+     * the position just after it.
+     * Throws IllegalArgumentException if data does not hold a sewer in that format.
+     * Requires: store has as many cells as the sewer, all 0.
+     */
+    static SewerGrid fromBytes(ByteBuffer data, CellStore store) {
+        try {
+            for (byte b : Sewers.COMPACT_MAGIC) {
+                if (data.get() != b) {
+                    throw new IllegalArgumentException("not a compact sewer");
+                }
+            }
+            if (data.get() != Sewers.COMPACT_VERSION) {
+                throw new IllegalArgumentException("unsupported compact sewer version");
+            }
+            int rows = Sewers.readVarint(data);
+            int cols = Sewers.readVarint(data);
+            int entrance = Sewers.readVarint(data);
+            int ring = Sewers.readVarint(data);
+            int cells = cellCount(rows, cols);
+            if (store.size() != cells || entrance >= cells || ring >= cells) {
+                throw new IllegalArgumentException("cell out of range");
+            }
+            int bitmap = data.position();
+            int weights = bitmap + (cells + 7) / 8;
+            int open = 0;
+            for (int cell = 0; cell < cells; cell++) {
+                if ((data.get(bitmap + (cell >> 3)) & 1 << (cell & 7)) != 0) {
+                    store.setType(cell, cell == entrance ? ENTRANCE
+                            : cell == ring ? RING : FLOOR);
+                    store.setWeights(cell, data.get(weights + open) & 0xFF);
+                    open++;
+                }
+            }
+            data.position(weights + open);
+            for (int cell = 0; cell < cells; cell++) {
+                if ((store.type(cell) & TYPE_MASK) != WALL) {
+                    store.setCoins(cell, Sewers.readVarint(data));
+                }
+            }
+            int[] carved = new int[Sewers.readVarint(data)];
+            if (carved.length >= open) {
+                throw new IllegalArgumentException("too many carved cells: " + carved.length);
+            }
+            for (int i = 0; i < carved.length; i++) {
+                int cell = Sewers.readVarint(data);
+                int r = cell / cols;
+                int c = cell % cols;
+                if (!(0 < r && r < rows - 1 && 0 < c && c < cols - 1)
+                        || (store.type(cell) & TYPE_MASK) == WALL
+                        || (store.type(cell) & CARVED) != 0) {
+                    throw new IllegalArgumentException("bad carved cell " + cell);
+                }
+                store.setType(cell, store.type(cell) | CARVED);
+                carved[i] = cell;
+            }
+            if ((store.type(entrance) & TYPE_MASK) != ENTRANCE
+                    || (store.type(ring) & TYPE_MASK) == WALL) {
+                throw new IllegalArgumentException("entrance or ring is not open");
+            }
+            SewerGrid grid = new SewerGrid(store, rows, cols, entrance, ring, open);
+            if (!Arrays.equals(grid.carvedCells(), carved)) {
+                throw new IllegalArgumentException("carved cells are not a carved path");
+            }
+            return grid;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("truncated compact sewer", e);
+        }
+    }
+
+    /**
+     * The Node of a cell. It has no exits until they are first asked for; then it gets an Edge
+     * for each edge of the cell, to the Node of the cell at its other end.
+     */
+    private final class GridNode extends Node {
+
+        private final int cell;
+
+        /**
+         * True iff the exits have been created.
+         */
+        private boolean loaded;
+
+        /**
+         * Constructor: the Node of cell.
+         */
+        GridNode(int cell) {
+            super(cell, new GridTile(cell));
+            this.cell = cell;
+        }
+
+        /**
+         * Create the exits if they have not been created yet.
+         */
+        private void load() {
+            if (loaded) {
+                return;
+            }
+            loaded = true;
+            for (Sewers.Direction d : EXIT_ORDER) {
+                int w = weight(cell, d);
+                if (w != 0) {
+                    addEdge(new Edge(this, node(neighbor(cell, d)), w));
+                }
+            }
+        }
+
+        @Override
+        public Edge getEdge(Node q) {
+            load();
+            return super.getEdge(q);
+        }
+
+        @Override
+        public Edge getEdge(Sewers.Direction d) {
+            load();
+            return super.getEdge(d);
+        }
+
+        @Override
+        public Set<Edge> getExits() {
+            load();
+            return super.getExits();
+        }
+
+        @Override
+        Edge[] exitArray() {
+            load();
+            return super.exitArray();
+        }
+
+        @Override
+        public Set<Node> getNeighbors() {
+            load();
+            return super.getNeighbors();
+        }
+    }
+
+    /**
+     * The Tile of a cell, which reads and writes the cell rather than fields of its own.
+     */
+    private final class GridTile extends Tile {
+
+        private final int cell;
+
+        /**
+         * Constructor: the Tile of cell.
+         */
+        GridTile(int cell) {
+            super(cell / cols, cell % cols, 0, TYPES[store.type(cell) & TYPE_MASK]);
+            this.cell = cell;
+        }
+
+        @Override
+        public int coins() {
+            return SewerGrid.this.coins(cell);
+        }
+
+        @Override
+        public int originalCoinValue() {
+            return SewerGrid.this.originalCoinValue(cell);
+        }
+
+        @Override
+        public TileType type() {
+            return SewerGrid.this.type(cell);
+        }
+
+        @Override
+        void setType(TileType t) {
+            int code = Arrays.asList(TYPES).indexOf(t);
+            store.setType(cell, store.type(cell) & ~TYPE_MASK | code);
+        }
+
+        @Override
+        public int takeCoins() {
+            return SewerGrid.this.takeCoins(cell);
+        }
+    }
+
+    /**
+     * Digs a sewer system into a store, the way the Sewers constructor does.
+     */
+    private static final class Digger {
+
+        /**
+         * Marks kept in the high bits of a cell's type byte while digging, so that digging needs
+         * no memory per cell besides the store: SEEN once digging has looked at the cell,
+         * VISITED once a later search has reached it, and in the 2 bits from DIR_SHIFT, the
+         * direction of the step by which carving reached it. MARKS covers them all.
+         */
+        private static final int SEEN = 8, VISITED = 16, DIR_SHIFT = 5, MARKS = 0x78;
+
+        private final int rows, cols;
+        private final Random rand;
+        private final CellStore store;
+
+        /**
+         * The change in cell index for a step in each direction: north, east, south, west.
+         */
+        private final int[] offset;
+
+        private final IntQueue queue = new IntQueue();
+
+        /**
+         * The number of cells opened so far.
+         */
+        private int openTiles;
+
+        /**
+         * Constructor: a digger of a grid with r rows and c columns into store, using rand.
+         */
+        Digger(int r, int c, Random rand, CellStore store) {
+            rows = r;
+            cols = c;
+            this.rand = rand;
+            this.store = store;
+            offset = new int[] { -cols, 1, cols, -1 };
+        }
+
+        /**
+         * Dig the sewer system the Sewers constructor digs with the same arguments and rand,
+         * and return it.
+         * Requires: if placeRing, requiredCell is -1.
+         */
+        SewerGrid dig(IntSupplier edgeWeightGenerator, IntSupplier coinGenerator,
+                boolean placeRing, int minRingDepth, int requiredCell) {
+            for (int attempt = 0; ; attempt++) {
+                if (attempt > 0) {
+                    clear();
+                }
+                int entrance = entranceCell();
+                open(entrance, ENTRANCE, 0);
+                mark(entrance, SEEN);
+                // The cells opened at depth less than minRingDepth, which come first in the
+                // order opened, can't be the ring.
+                int shallow = digFrom(entrance, coinGenerator, requiredCell, minRingDepth);
+                if (requiredCell >= 0 && (store.type(requiredCell) & TYPE_MASK) == WALL) {
+                    carveTo(requiredCell, coinGenerator);
+                }
+                int ring = entrance;
+                if (placeRing) {
+                    int firstCandidate = Math.max(1, shallow);
+                    int candidates = openTiles - firstCandidate;
+                    if (candidates <= 0) {
+                        continue;
+                    }
+                    ring = nthOpened(entrance, firstCandidate + rand.nextInt(candidates));
+                    store.setType(ring, RING);
+                }
+                createEdges(edgeWeightGenerator);
+                clearMarks();
+                return new SewerGrid(store, rows, cols, entrance, ring, openTiles);
+            }
+        }
+
+        /**
+         * Return all cells to walls without coins or marks.
+         */
+        private void clear() {
+            for (int cell = 0; cell < rows * cols; cell++) {
+                store.setType(cell, WALL);
+                store.setCoins(cell, 0);
+            }
+            openTiles = 0;
+        }
+
+        /**
+         * Remove all marks.
+         */
+        private void clearMarks() {
+            for (int cell = 0; cell < rows * cols; cell++) {
+                int type = store.type(cell);
+                if ((type & MARKS) != 0) {
+                    store.setType(cell, type & ~MARKS);
+                }
+            }
+        }
+
+        /**
+         * Return true iff cell has all the given marks.
+         */
+        private boolean marked(int cell, int marks) {
+            return (store.type(cell) & marks) == marks;
+        }
+
+        /**
+         * Add the given marks to cell.
+         */
+        private void mark(int cell, int marks) {
+            store.setType(cell, store.type(cell) | marks);
+        }
+
+        /**
+         * Return true iff cell is open.
+         */
+        private boolean isOpen(int cell) {
+            return (store.type(cell) & TYPE_MASK) != WALL;
+        }
+
+        /**
+         * Open cell with the given type code and coins.
+         */
+        private void open(int cell, int type, int coins) {
+            store.setType(cell, store.type(cell) & MARKS | type);
+            store.setCoins(cell, coins);
+            openTiles++;
+        }
+
+        /**
+         * Return true iff (r, c) is on the grid and not on its border.
+         */
+        private boolean isValid(int r, int c) {
+            return 0 < r && r < rows - 1 && 0 < c && c < cols - 1;
+        }
+
+        /**
+         * Return a random entrance cell on the border, as Sewers.getEntranceCell does.
+         */
+        private int entranceCell() {
+            switch (rand.nextInt(4)) {
+                case 0:
+                    return (rand.nextInt(rows - 2) + 1) * cols;
+                case 1:
+                    return (rand.nextInt(rows - 2) + 1) * cols + cols - 1;
+                case 2:
+                    return rand.nextInt(cols - 2) + 1;
+                case 3:
+                    return (rows - 1) * cols + rand.nextInt(cols - 2) + 1;
+                default:
+                    throw new IllegalStateException("Unexpected random value!");
+            }
+        }
+
+        /**
+         * Open tiles breadth-first from the open cell entrance, as Sewers.generateGraph does,
+         * keeping requiredCell open if it is not -1. Return the number of cells opened at a
+         * depth less than minRingDepth, counting the entrance.
+         */
+        private int digFrom(int entrance, IntSupplier coinGenerator, int requiredCell,
+                int minRingDepth) {
+            int shallow = minRingDepth > 0 ? 1 : 0;
+            int[] newExits = new int[4];
+            queue.clear();
+            queue.add(entrance);
+            // The queue holds the cells of one depth followed by those of the next; depth is
+            // that of the cell being processed, and levelEnd counts the cells up to the last
+            // one of that depth.
+            int processed = 0;
+            int levelEnd = 1;
+            int depth = 0;
+            while (!queue.isEmpty()) {
+                if (processed == levelEnd) {
+                    depth++;
+                    levelEnd = openTiles;
+                }
+                int cell = queue.remove();
+                processed++;
+                int r = cell / cols;
+                int c = cell % cols;
+                int existingExits = 0;
+                int nExits = 0;
+                for (int dir = 0; dir < 4; dir++) {
+                    int nr = r + (dir == 0 ? -1 : dir == 2 ? 1 : 0);
+                    int nc = c + (dir == 1 ? 1 : dir == 3 ? -1 : 0);
+                    if (isValid(nr, nc)) {
+                        int next = nr * cols + nc;
+                        if (isOpen(next)) {
+                            existingExits++;
+                        } else if (!marked(next, SEEN)) {
+                            mark(next, SEEN);
+                            newExits[nExits++] = next;
+                        }
+                    }
+                }
+                if (nExits == 0) {
+                    continue;
+                }
+                double modifiedDensity;
+                int forcedExit;
+                if (existingExits < 2) {
+                    modifiedDensity =
+                            nExits == 1 ? 0.0 : (nExits * Sewers.DENSITY - 1) / (nExits - 1);
+                    forcedExit = newExits[rand.nextInt(nExits)];
+                } else {
+                    modifiedDensity = Sewers.DENSITY;
+                    forcedExit = -1;
+                }
+                for (int k = 0; k < nExits; k++) {
+                    int next = newExits[k];
+                    if (next == forcedExit || next == requiredCell
+                            || rand.nextDouble() < modifiedDensity) {
+                        open(next, FLOOR, coinGenerator.getAsInt());
+                        queue.add(next);
+                        if (depth + 1 < minRingDepth) {
+                            shallow++;
+                        }
+                    }
+                }
+            }
+            return shallow;
+        }
+
+        /**
+         * Open the cells on a shortest path through the interior of the grid from target to the
+         * nearest open cell, as Sewers.carveTo does.
+         * Requires: target is not open and not on the border.
+         */
+        private void carveTo(int target, IntSupplier coinGenerator) {
+            clearMarks();
+            queue.clear();
+            queue.add(target);
+            mark(target, VISITED);
+            int reached = -1;
+            while (reached < 0) {
+                int cell = queue.remove();
+                int r = cell / cols;
+                int c = cell % cols;
+                for (int dir = 0; dir < 4 && reached < 0; dir++) {
+                    int nr = r + (dir == 0 ? -1 : dir == 2 ? 1 : 0);
+                    int nc = c + (dir == 1 ? 1 : dir == 3 ? -1 : 0);
+                    int next = nr * cols + nc;
+                    if (isValid(nr, nc) && !marked(next, VISITED)) {
+                        mark(next, VISITED | dir << DIR_SHIFT);
+                        if (isOpen(next)) {
+                            reached = next;
+                        } else {
+                            queue.add(next);
+                        }
+                    }
+                }
+            }
+            for (int cell = previous(reached); ; cell = previous(cell)) {
+                open(cell, FLOOR | CARVED, coinGenerator.getAsInt());
+                if (cell == target) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Return the cell from which carving reached cell.
+         */
+        private int previous(int cell) {
+            return cell - offset[store.type(cell) >> DIR_SHIFT & 3];
+        }
+
+        /**
+         * Return the index-th cell opened by digFrom, counting the entrance as 0. Searching the
+         * open cells breadth-first from the entrance, trying neighbors in the same order,
+         * reaches them in the order they were opened: each was opened by the first cell
+         * processed next to it, and every cell processed was open.
+         * Requires: 0 < index < the number of cells opened by digFrom.
+         */
+        private int nthOpened(int entrance, int index) {
+            clearMarks();
+            queue.clear();
+            queue.add(entrance);
+            mark(entrance, VISITED);
+            int n = 1;
+            while (true) {
+                int cell = queue.remove();
+                int r = cell / cols;
+                int c = cell % cols;
+                for (int dir = 0; dir < 4; dir++) {
+                    int nr = r + (dir == 0 ? -1 : dir == 2 ? 1 : 0);
+                    int nc = c + (dir == 1 ? 1 : dir == 3 ? -1 : 0);
+                    int next = nr * cols + nc;
+                    if (isValid(nr, nc) && isOpen(next) && !marked(next, VISITED)) {
+                        mark(next, VISITED);
+                        if (n++ == index) {
+                            return next;
+                        }
+                        queue.add(next);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Draw the weight of every edge between adjacent open cells in the order of
+         * Sewers.createEdges and record it.
+         */
+        private void createEdges(IntSupplier edgeWeightGenerator) {
+            for (int i = 0; i < rows - 1; i++) {
+                for (int j = 0; j < cols - 1; j++) {
+                    int cell = i * cols + j;
+                    if (!isOpen(cell)) {
+                        continue;
+                    }
+                    int packed = 0;
+                    if (isOpen(cell + cols)) {
+                        packed |= edgeWeightGenerator.getAsInt();
+                    }
+                    if (isOpen(cell + 1)) {
+                        packed |= edgeWeightGenerator.getAsInt() << 4;
+                    }
+                    store.setWeights(cell, packed);
+                }
+            }
+        }
+    }
+
+    /**
+     * A map from cells to distances by open addressing in an int array, so that a search over a
+     * large grid needs memory only for the cells it reaches.
+     */
+    private static final class CellDistances {
+
+        /**
+         * Entries are pairs (cell, distance) at even and odd positions; a cell of -1 marks a
+         * free slot. The number of slots is a power of 2, at most half of them in use.
+         */
+        private int[] entries = newEntries(64);
+        private int size;
+
+        private static int[] newEntries(int slots) {
+            int[] entries = new int[2 * slots];
+            Arrays.fill(entries, -1);
+            return entries;
+        }
+
+        /**
+         * Return the slot of cell, or the free slot where it would go.
+         */
+        private int slot(int cell) {
+            int mask = entries.length / 2 - 1;
+            int i = cell * 0x9E3779B9 >>> Integer.numberOfLeadingZeros(mask);
+            while (entries[2 * i] != -1 && entries[2 * i] != cell) {
+                i = (i + 1) & mask;
+            }
+            return i;
+        }
+
+        /**
+         * Return the distance of cell, or Integer.MAX_VALUE if it has none.
+         */
+        int get(int cell) {
+            int i = slot(cell);
+            return entries[2 * i] == -1 ? Integer.MAX_VALUE : entries[2 * i + 1];
+        }
+
+        /**
+         * Set the distance of cell to d.
+         */
+        void put(int cell, int d) {
+            int i = slot(cell);
+            if (entries[2 * i] == -1) {
+                if (2 * (size + 1) > entries.length / 2) {
+                    int[] old = entries;
+                    entries = newEntries(old.length);
+                    for (int k = 0; k < old.length; k += 2) {
+                        if (old[k] != -1) {
+                            int j = slot(old[k]);
+                            entries[2 * j] = old[k];
+                            entries[2 * j + 1] = old[k + 1];
+                        }
+                    }
+                    i = slot(cell);
+                }
+                entries[2 * i] = cell;
+                size++;
+            }
+            entries[2 * i + 1] = d;
+        }
+    }
+
+    /**
+     * A first-in first-out queue of ints in a circular array that grows as needed.
+     */
+    private static final class IntQueue {
+
+        /**
+         * The elements are items[head], items[head + 1], ... (mod items.length), size of them.
+         * items.length is a power of 2.
+         */
+        private int[] items = new int[64];
+        private int head;
+        private int size;
+
+        void clear() {
+            head = 0;
+            size = 0;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void add(int x) {
+            if (size == items.length) {
+                int[] bigger = new int[2 * items.length];
+                for (int i = 0; i < size; i++) {
+                    bigger[i] = items[(head + i) & (items.length - 1)];
+                }
+                items = bigger;
+                head = 0;
+            }
+            items[(head + size) & (items.length - 1)] = x;
+            size++;
+        }
+
+        int remove() {
+            int x = items[head];
+            head = (head + 1) & (items.length - 1);
+            size--;
+            return x;
+        }
+    }
+}
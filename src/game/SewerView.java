@@ -0,0 +1,30 @@
+package game;
+
+/**
+ * Read access to the tiles of a sewer system by position, shared by Sewers and SewerGrid so
+ * that code that only looks at tiles, such as the GUI's maze panel, works with either.
+ */
+public interface SewerView {
+
+    /**
+     * Return the number of rows of the grid.
+     */
+    int rowCount();
+
+    /**
+     * Return the number of columns of the grid.
+     */
+    int columnCount();
+
+    /**
+     * Return the Tile information for tile (r, c).
+     * Requires: (r, c) must be in the grid.
+     */
+    Tile tileAt(int r, int c);
+
+    /**
+     * Return the node at the given (r, c).
+     * Requires: (r, c) must be in the grid.
+     */
+    Node nodeAt(int r, int c);
+}
@@ -1,21 +1,27 @@
 package game;
 
 import graph.ShortestPaths;
+import graph.UnitBfs;
 
-import java.util.ArrayDeque;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Queue;
 import java.util.Random;
 import java.util.Set;
-import java.util.function.Supplier;
+import java.util.function.IntSupplier;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 /**
  * A sewer through which a sewer diver can move: a grid of Tile objects
@@ -24,10 +30,10 @@ import java.util.stream.Stream;
  * There is an entrance to the sewer system and a ring location
  * (which may also be the entrance).
  */
-public class Sewers {
+public class Sewers implements SewerView {
 
     public static final int MAX_EDGE_WEIGHT = 15;
-    private static final double DENSITY = 0.6;
+    static final double DENSITY = 0.6;
     private static final double COIN_PROBABILITY = 0.33;
     public static final int MAX_COIN_VALUE = 1000;
     public static final int TASTY_VALUE = 5000;
@@ -119,19 +125,76 @@ public class Sewers {
      */
     private final Node[][] tiles;
 
+    /**
+     * The nodes opened to carve a way to a required cell, in the order
+     * opened; empty if there are none. They were added to graph after all
+     * the others, which shows in the order in which graph is iterated.
+     */
+    private final List<Node> carved;
+
+    /**
+     * The weight shared by every edge if all edges have the same weight; 0 otherwise.
+     */
+    private final int uniformWeight;
+
+    /**
+     * True iff the edges run exactly between adjacent open tiles of the grid.
+     */
+    private final boolean matchesGrid;
+
+    /**
+     * Jump point search over the grid, created on first use. Only used when uniformWeight > 0
+     * and matchesGrid.
+     */
+    private JumpPointSearch jps;
+
+    /**
+     * Distances from every tile to the ring over the grid, created on first use. Only used when
+     * the edges have different weights and matchesGrid.
+     */
+    private GridDijkstra toRing;
+
+    /**
+     * All-pairs distances for distance(), if a file for them was set with setDistanceOracleFile
+     * and they have been opened; otherwise null.
+     */
+    private DistanceOracle oracle;
+
+    /**
+     * The file of the all-pairs distances, if it was set with setDistanceOracleFile and the
+     * oracle has not been opened yet; otherwise null.
+     */
+    private Path oracleFile;
+
+    /**
+     * The search from searchedFrom over the grid that answers distance() without an oracle,
+     * created on first use. Only used when matchesGrid.
+     */
+    private GridDijkstra fromSource;
+
+    /**
+     * The search from searchedFrom over the graph that answers distance() without an oracle.
+     * Only used when the edges do not follow the grid.
+     */
+    private ShortestPaths<Node, Edge> graphFromSource;
+
+    /**
+     * The node that distance() last searched from, or null.
+     */
+    private Node searchedFrom;
+
     /**
      * Return a new random sewer system with r rows, c columns, and no
      * coins, all edges have weight 1, and there is a ring a reasonable
      * distance from the exit. rand is the source of randomness for the
-     * sewer-system generation.
+     * sewer-system generation. The ring is placed while the sewer is dug,
+     * among the tiles far enough from the exit.
      */
     public static Sewers digExploreSewer(int r, int c, Random rand) {
         int minRingDist = minRingDistance(r, c);
-
-        Sewers sewers = new Sewers(r, c, rand, () -> 1, () -> 0, Tile.TileType.RING);
-        while (sewers.minPathLengthToRing(sewers.entrance()) < minRingDist) {
-            sewers = new Sewers(r, c, rand, () -> 1, () -> 0, Tile.TileType.RING);
-        }
+        Sewers sewers = new Sewers(r, c, rand, () -> 1, () -> 0, Tile.TileType.RING,
+                minRingDist, -1);
+        assert sewers.minPathLengthToRing(sewers.entrance()) >= minRingDist;
         return sewers;
     }
 
@@ -139,34 +202,31 @@ public class Sewers {
      * Return the minimum allowable path distance from the entrance to
      * the ring. The graph has r rows and c columns.
      */
-    private static int minRingDistance(int r, int c) {
+    static int minRingDistance(int r, int c) {
         return (r + c) / 2;
     }
 
     /**
      * Return a new random sewer system with r rows, c columns, and
      * random coins and edge weights. It is guaranteed that
-     * (currentRow, {currentCol) will be an open floor cell. rand is
-     * the source of randomness to use for the sewer-system generation.
+     * (currentRow, {currentCol) will be an open floor cell: it is kept open
+     * while the sewer is dug. rand is the source of randomness to use for the
+     * sewer-system generation.
+     * Requires: (currentRow, currentCol) is on the grid but not on its border.
      */
     public static Sewers digGetOutSewer(int r, int c, int currentRow, int currentCol,
             Random rand) {
-        Supplier<Integer> edgeWeightGen = () -> rand.nextInt(MAX_EDGE_WEIGHT) + 1;
-        Supplier<Integer> coinGen = () -> Sewers.randomCoinValue(rand);
-        Sewers potentialCavern = new Sewers(r, c, rand, edgeWeightGen, coinGen,
-                Tile.TileType.ENTRANCE);
-        while (potentialCavern.tileAt(currentRow, currentCol).type() != Tile.TileType.FLOOR) {
-            potentialCavern = new Sewers(r, c, rand, edgeWeightGen, coinGen,
-                    Tile.TileType.ENTRANCE);
-        }
-        return potentialCavern;
+        IntSupplier edgeWeightGen = () -> rand.nextInt(MAX_EDGE_WEIGHT) + 1;
+        IntSupplier coinGen = () -> Sewers.randomCoinValue(rand);
+        return new Sewers(r, c, rand, edgeWeightGen, coinGen, Tile.TileType.ENTRANCE,
+                0, currentRow * c + currentCol);
     }
 
     /**
      * Return a randomly determined gold value (to place on a tile).
      * Use rand as the source of randomness.
      */
-    private static int randomCoinValue(Random rand) {
+    static int randomCoinValue(Random rand) {
         if (rand.nextDouble() > COIN_PROBABILITY) {
             return 0;
         }
@@ -182,18 +242,26 @@ public class Sewers {
      * Constructor: a new sewer system of size (rws, cls).
      * Randomness rand is used to determine which grid tiles are
      * open. This uses edgeWeightGenerator and coinGenerator
-     * to generate edge weights and coin values.
+     * to generate edge weights and coin values. If targetType is
+     * Tile.TileType.RING, the ring is at least minRingDepth steps from the
+     * entrance. If requiredCell is not -1, that cell (row * cls + column) is
+     * open.
      * Requires: targetType is either Tile.TileType.RING or
-     * Tile.TileType.ENTRANCE.
+     * Tile.TileType.ENTRANCE, and requiredCell is -1 or is not on the border.
      */
     private Sewers(int rws, int cls, Random rand,
-            Supplier<Integer> edgeWeightGenerator,
-            Supplier<Integer> coinGenerator,
-            Tile.TileType targetType) {
+            IntSupplier edgeWeightGenerator,
+            IntSupplier coinGenerator,
+            Tile.TileType targetType,
+            int minRingDepth,
+            int requiredCell) {
         rows = rws;
         cols = cls;
 
-        graph = generateGraph(rand, targetType, coinGenerator);
+        List<Node> carvedNodes = new ArrayList<>();
+        graph = generateGraph(rand, targetType, coinGenerator, minRingDepth, requiredCell,
+                carvedNodes);
+        carved = Collections.unmodifiableList(carvedNodes);
         maze = new Maze(graph);
         entrance = graph.stream().filter((n) -> n.getTile().type() == Tile.TileType.ENTRANCE)
                 .findAny().get();
@@ -213,7 +281,8 @@ public class Sewers {
             }
         }
         createEdges(tiles, edgeWeightGenerator);
-
+        uniformWeight = computeUniformWeight();
+        matchesGrid = computeMatchesGrid();
     }
 
     /**
@@ -226,7 +295,17 @@ public class Sewers {
      *  2. trgt is a node in givenGraph.
      */
     private Sewers(Set<Node> givenGraph, Node[][] givenTiles, Node trgt) {
+        this(givenGraph, givenTiles, trgt, Collections.emptyList());
+    }
+
+    /**
+     * Constructor: as above, with the nodes of givenGraph in givenCarved
+     * recorded as carved.
+     */
+    private Sewers(Set<Node> givenGraph, Node[][] givenTiles, Node trgt,
+            List<Node> givenCarved) {
         tiles = givenTiles;
+        carved = givenCarved;
         rows = tiles.length;
         cols = tiles[0].length;
 
@@ -235,132 +314,279 @@ public class Sewers {
         entrance = graph.stream().filter((n) -> n.getTile().type() == Tile.TileType.ENTRANCE)
                 .findAny().get();
         ring = trgt;
+        uniformWeight = computeUniformWeight();
+        matchesGrid = computeMatchesGrid();
+    }
+
+    /**
+     * Return the weight shared by all edges of the graph, or 0 if the edges do
+     * not all have the same weight. A graph with no edges has uniform weight 1.
+     */
+    private int computeUniformWeight() {
+        int weight = 0;
+        for (Node n : graph) {
+            for (Edge e : n.getExits()) {
+                if (weight == 0) {
+                    weight = e.length();
+                } else if (e.length() != weight) {
+                    return 0;
+                }
+            }
+        }
+        return weight == 0 ? 1 : weight;
+    }
+
+    /**
+     * Return true iff every open tile has an exit for each open tile next to
+     * it on the grid, and no others.
+     */
+    private boolean computeMatchesGrid() {
+        for (Node n : graph) {
+            int r = n.getTile().row();
+            int c = n.getTile().column();
+            int openAround = 0;
+            if (r > 0 && tiles[r - 1][c].getTile().type() != Tile.TileType.WALL) {
+                openAround++;
+            }
+            if (c < cols - 1 && tiles[r][c + 1].getTile().type() != Tile.TileType.WALL) {
+                openAround++;
+            }
+            if (r < rows - 1 && tiles[r + 1][c].getTile().type() != Tile.TileType.WALL) {
+                openAround++;
+            }
+            if (c > 0 && tiles[r][c - 1].getTile().type() != Tile.TileType.WALL) {
+                openAround++;
+            }
+            if (n.getExits().size() != openAround) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
      * Given tiles without edges and a supplier to return edge weights,
-     * add edges to the nodes between adjacent non-wall tiles.
+     * add edges to the nodes between adjacent non-wall tiles. Pairs of
+     * tiles are visited row by row, and for each tile the pair to the south
+     * before the pair to the east, drawing one weight per pair.
      * Requires: all elements of tiles are non-null.
      */
-    private void createEdges(Node[][] tiles, Supplier<Integer> edgeWeightGenerator) {
+    private void createEdges(Node[][] tiles, IntSupplier edgeWeightGenerator) {
         for (int i = 0; i < tiles.length - 1; i++) {
             for (int j = 0; j < tiles[i].length - 1; j++) {
                 Node node = tiles[i][j];
                 if (node.getTile().type() == Tile.TileType.WALL) {
                     continue;
                 }
-
-                final Point p = new Point(i, j);
-                Stream.of(Direction.SOUTH, Direction.EAST)
-                        .map(Direction::direction)
-                        .map(p::add)
-                        .map((q) -> tiles[q.row][q.col])
-                        .filter((m) -> m.getTile().type() != Tile.TileType.WALL)
-                        .forEach((m) -> {
-                            int weight = edgeWeightGenerator.get();
-                            node.addEdge(new Edge(node, m, weight));
-                            m.addEdge(new Edge(m, node, weight));
-                        });
+                connect(node, tiles[i + 1][j], edgeWeightGenerator);
+                connect(node, tiles[i][j + 1], edgeWeightGenerator);
             }
         }
     }
 
     /**
-     * Return true iff p is on the grid.
+     * If m is not a wall, add edges in both directions between node and m,
+     * with a weight drawn from edgeWeightGenerator.
+     */
+    private static void connect(Node node, Node m, IntSupplier edgeWeightGenerator) {
+        if (m.getTile().type() == Tile.TileType.WALL) {
+            return;
+        }
+        int weight = edgeWeightGenerator.getAsInt();
+        node.addEdge(new Edge(node, m, weight));
+        m.addEdge(new Edge(m, node, weight));
+    }
+
+    /**
+     * Return true iff (r, c) is on the grid and not on its border.
      */
-    private boolean isValid(Point p) {
-        return 0 < p.row && p.row < rows - 1 &&
-                0 < p.col && p.col < cols - 1;
+    private boolean isValid(int r, int c) {
+        return 0 < r && r < rows - 1 &&
+                0 < c && c < cols - 1;
     }
 
     /**
      * Generate a new random graph that fits within the grid and return
-     * the set of nodes.
+     * the set of nodes. If targetType is Tile.TileType.RING, a tile at least
+     * minRingDepth steps from the entrance becomes the ring; if requiredCell
+     * is not -1, that cell is open, and the nodes opened to carve a way to
+     * it are added to carved.
+     * <p>
+     * Tiles are opened breadth-first from the entrance. Cells are packed as
+     * row * cols + column in int arrays, so apart from the Nodes and Tiles
+     * it returns, generation allocates only a few arrays.
+     * <p>
+     * Because tiles are opened in breadth-first order, the depth at which a
+     * tile is opened is its number of steps from the entrance in the final
+     * graph, so the ring can be placed as soon as digging ends. Only if no
+     * tile is deep enough (which is rare) is the sewer dug again.
      */
     private Set<Node> generateGraph(Random rand,
             Tile.TileType targetType,
-            Supplier<Integer> coinGenerator) {
-        List<Node> nodes = new ArrayList<>();
-
-        Set<Point> pointsSeen = new HashSet<>();
-        Set<Point> openPoints = new HashSet<>();
-        Queue<Node> frontier = new ArrayDeque<>();
-
-        Point entrancePoint = getEntrancePoint(rand);
-        Node entrance = new Node(new Tile(entrancePoint.row,
-                entrancePoint.col, 0, Tile.TileType.ENTRANCE), cols);
-        nodes.add(entrance);
-
-        pointsSeen.add(entrancePoint);
-        openPoints.add(entrancePoint);
-        frontier.add(entrance);
-        while (!frontier.isEmpty()) {
-            Node node = frontier.remove();
-            Point p = new Point(node.getTile().row(), node.getTile().column());
-
-            // We want to make sure there's a way out if we can get one.
-            // This will prevent stupid degenerate graphs.
-            int existingExits = 0;
-            List<Point> newExits = new ArrayList<>();
-            for (Direction dir : Direction.values()) {
-                Point newPt = dir.direction().add(p);
-                if (isValid(newPt)) {
-                    if (openPoints.contains(newPt)) {
-                        existingExits++;
-                    } else if (pointsSeen.add(newPt)) {
-                        newExits.add(newPt);
+            IntSupplier coinGenerator,
+            int minRingDepth,
+            int requiredCell,
+            List<Node> carved) {
+        int cells = rows * cols;
+        while (true) {
+            boolean[] seen = new boolean[cells];
+            boolean[] open = new boolean[cells];
+            // Every open cell is queued once, so the queue also lists the nodes in the order
+            // opened. depth[i] is the number of steps from the entrance to nodes[i].
+            Node[] nodes = new Node[cells];
+            int[] depth = new int[cells];
+            int head = 0;
+            int count = 0;
+            int[] newExits = new int[4];
+
+            int entranceCell = getEntranceCell(rand);
+            nodes[count++] = new Node(new Tile(entranceCell / cols,
+                    entranceCell % cols, 0, Tile.TileType.ENTRANCE), cols);
+            seen[entranceCell] = true;
+            open[entranceCell] = true;
+            while (head < count) {
+                int d = depth[head];
+                Tile tile = nodes[head++].getTile();
+                int r = tile.row();
+                int c = tile.column();
+
+                // We want to make sure there's a way out if we can get one.
+                // This will prevent stupid degenerate graphs.
+                int existingExits = 0;
+                int nExits = 0;
+                // Directions in the order of Direction.values(): north, east, south, west.
+                for (int dir = 0; dir < 4; dir++) {
+                    int nr = r + (dir == 0 ? -1 : dir == 2 ? 1 : 0);
+                    int nc = c + (dir == 1 ? 1 : dir == 3 ? -1 : 0);
+                    if (isValid(nr, nc)) {
+                        int cell = nr * cols + nc;
+                        if (open[cell]) {
+                            existingExits++;
+                        } else if (!seen[cell]) {
+                            seen[cell] = true;
+                            newExits[nExits++] = cell;
+                        }
+                    }
+                }
+
+                if (nExits > 0) {
+                    double modifiedDensity;
+                    int forcedExit;
+                    // Modify the density function so that the expected
+                    // number of open exits is the same even though we're
+                    // forcing something to be open.
+                    if (existingExits < 2) {
+                        modifiedDensity =
+                                nExits == 1 ? 0.0 : (nExits * DENSITY - 1) / (nExits - 1);
+                        forcedExit = newExits[rand.nextInt(nExits)];
+                    } else {
+                        modifiedDensity = DENSITY;
+                        forcedExit = -1;
+                    }
+                    for (int k = 0; k < nExits; k++) {
+                        int cell = newExits[k];
+                        if (cell == forcedExit || cell == requiredCell
+                                || rand.nextDouble() < modifiedDensity) {
+                            open[cell] = true;
+                            depth[count] = d + 1;
+                            nodes[count++] = new Node(new Tile(cell / cols, cell % cols,
+                                    coinGenerator.getAsInt(), Tile.TileType.FLOOR), cols);
+                        }
                     }
                 }
             }
 
-            int nExits = newExits.size();
-            if (nExits > 0) {
-                double modifiedDensity;
-                Point forcedExit;
-                // Modify the density function so that the expected
-                // number of open exits is the same even though we're
-                // forcing something to be open.
-                if (existingExits < 2) {
-                    modifiedDensity = nExits == 1 ? 0.0 : (nExits * DENSITY - 1) / (nExits - 1);
-                    forcedExit = newExits.get(rand.nextInt(newExits.size()));
-                } else {
-                    modifiedDensity = DENSITY;
-                    forcedExit = null;
+            int dug = count;
+            if (requiredCell >= 0 && !open[requiredCell]) {
+                count = carveTo(requiredCell, open, nodes, count, coinGenerator);
+            }
+
+            if (targetType != Tile.TileType.ENTRANCE) {
+                // Grab a random tile far enough from the entrance and make it the ring.
+                int candidates = 0;
+                for (int i = 1; i < count; i++) {
+                    if (depth[i] >= minRingDepth) {
+                        candidates++;
+                    }
+                }
+                if (candidates == 0) {
+                    continue;
+                }
+                int pick = rand.nextInt(candidates);
+                for (int i = 1; i < count; i++) {
+                    if (depth[i] >= minRingDepth && pick-- == 0) {
+                        nodes[i].getTile().setType(targetType);
+                        break;
+                    }
                 }
-                newExits.stream()
-                        .filter((q) -> q.equals(forcedExit) || rand.nextDouble() < modifiedDensity)
-                        .peek(openPoints::add)
-                        .map((q) -> new Node(
-                                new Tile(q.row, q.col, coinGenerator.get(), Tile.TileType.FLOOR),
-                                cols))
-                        .peek(frontier::add)
-                        .forEach(nodes::add);
             }
-        }
 
-        if (targetType != Tile.TileType.ENTRANCE) {
-            // Grab a random tile that's not the entrance and make it the ring.
-            int targetIdx = rand.nextInt(nodes.size() - 1) + 1;
-            nodes.get(targetIdx).getTile().setType(targetType);
+            carved.addAll(Arrays.asList(nodes).subList(dug, count));
+            return Collections.unmodifiableSet(
+                    new HashSet<>(Arrays.asList(nodes).subList(0, count)));
         }
+    }
 
-        return Collections.unmodifiableSet(new HashSet<>(nodes));
+    /**
+     * Open the cells on a shortest path through the interior of the grid
+     * from target to the nearest open cell, appending their nodes to
+     * nodes[0..count-1] and marking them in open. Return the new count.
+     * Requires: target is not open and not on the border, and some cell is
+     * open.
+     */
+    private int carveTo(int target, boolean[] open, Node[] nodes, int count,
+            IntSupplier coinGenerator) {
+        int[] prev = new int[rows * cols];
+        Arrays.fill(prev, -1);
+        int[] queue = new int[rows * cols];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = target;
+        prev[target] = target;
+        int reached = -1;
+        while (reached < 0) {
+            int cell = queue[head++];
+            int r = cell / cols;
+            int c = cell % cols;
+            for (int dir = 0; dir < 4 && reached < 0; dir++) {
+                int nr = r + (dir == 0 ? -1 : dir == 2 ? 1 : 0);
+                int nc = c + (dir == 1 ? 1 : dir == 3 ? -1 : 0);
+                int next = nr * cols + nc;
+                if (isValid(nr, nc) && prev[next] < 0) {
+                    prev[next] = cell;
+                    if (open[next]) {
+                        reached = next;
+                    } else {
+                        queue[tail++] = next;
+                    }
+                }
+            }
+        }
+        for (int cell = prev[reached]; ; cell = prev[cell]) {
+            open[cell] = true;
+            nodes[count++] = new Node(new Tile(cell / cols, cell % cols,
+                    coinGenerator.getAsInt(), Tile.TileType.FLOOR), cols);
+            if (cell == target) {
+                return count;
+            }
+        }
     }
 
     /**
      * Return a randomly chosen entrance to the sewer system (the only
-     * non-wall tile along an edge of the grid), using rand.
+     * non-wall tile along an edge of the grid), using rand, as the cell
+     * row * cols + column.
      */
-    private Point getEntrancePoint(Random rand) {
+    private int getEntranceCell(Random rand) {
         switch (rand.nextInt(4)) {
             case 0: // North wall
-                return new Point(rand.nextInt(rows - 2) + 1, 0);
+                return (rand.nextInt(rows - 2) + 1) * cols;
             case 1: // South wall
-                return new Point(rand.nextInt(rows - 2) + 1, cols - 1);
+                return (rand.nextInt(rows - 2) + 1) * cols + cols - 1;
             case 2: // West wall
-                return new Point(0, rand.nextInt(cols - 2) + 1);
+                return rand.nextInt(cols - 2) + 1;
             case 3: // East wall
-                return new Point(rows - 1, rand.nextInt(cols - 2) + 1);
+                return (rows - 1) * cols + rand.nextInt(cols - 2) + 1;
             default:
                 throw new IllegalStateException("Unexpected random value!");
         }
@@ -425,6 +651,16 @@ public class Sewers {
         return tiles[r][c];
     }
 
+    /**
+     * Answer distance() from the DistanceOracle kept in file, which is opened (or built and
+     * saved) when the first distance is asked for. If this sewer system is too large for an
+     * oracle, distances are searched for as usual.
+     */
+    void setDistanceOracleFile(Path file) {
+        oracleFile = file;
+        oracle = null;
+    }
+
     // NOTE: if you are having trouble getting Dijkstra's algorithm to work well
     // enough to let the game run, you can change USE_MANHATTAN_DISTANCE to true
     // to allow progress on other tasks. However, it should be changed back to false
@@ -434,18 +670,79 @@ public class Sewers {
     /**
      * Returns: the shortest distance from node start to ring node -- unless
      * MANHATTAN_DISTANCE is true, in which case it just returns the Manhattan
-     * distance between the nodes.
+     * distance between the nodes. When all edges have the same weight (as in
+     * the seek sewer), this uses jump point search on the grid rather than
+     * Dijkstra's algorithm on the graph, or breadth-first search if the edges
+     * do not line up with the grid. Otherwise, if the edges line up with the
+     * grid, one grid-based Dijkstra search back from the ring gives the distance
+     * from every node at once; if they don't, Dijkstra's algorithm runs on
+     * the graph from start.
      * Requires: start must be a node of the graph.
      */
     int minPathLengthToRing(Node start) {
         if (USE_MANHATTAN_DISTANCE) {
             return (int) manhattanDistanceToRing(start);
         }
+        if (uniformWeight > 0 && matchesGrid) {
+            if (jps == null) {
+                jps = new JumpPointSearch(this);
+            }
+            int steps = jps.steps(start, ring);
+            assert steps >= 0 : "ring not reachable from start";
+            return steps * uniformWeight;
+        }
+        if (uniformWeight > 0) {
+            UnitBfs<Node, Edge> bfs = new UnitBfs<>(maze, uniformWeight);
+            bfs.singleSourceDistances(start);
+            return (int) bfs.getDistance(ring);
+        }
+        if (matchesGrid) {
+            if (toRing == null) {
+                toRing = new GridDijkstra(this);
+                toRing.toTarget(ring);
+            }
+            return toRing.distance(start);
+        }
         ShortestPaths<Node, Edge> dijkstra = new ShortestPaths<>(maze);
         dijkstra.singleSourceDistances(start);
         return (int) dijkstra.getDistance(ring);
     }
 
+    /**
+     * Return the length of a shortest path from from to to, or -1 if there
+     * is none. If a distance oracle file has been set, the oracle is opened
+     * (or built and saved) on the first call and looks up every distance;
+     * otherwise, or if this sewer system is too large for an oracle, a
+     * search from from answers the distances from the node asked about last,
+     * so it pays to ask for the distances from one node together.
+     * Requires: from and to are nodes of the graph.
+     */
+    int distance(Node from, Node to) {
+        if (oracleFile != null) {
+            oracle = DistanceOracle.open(this, oracleFile);
+            oracleFile = null;
+        }
+        if (oracle != null) {
+            return oracle.distance(from, to);
+        }
+        if (matchesGrid) {
+            if (fromSource == null) {
+                fromSource = new GridDijkstra(this);
+            }
+            if (from != searchedFrom) {
+                fromSource.fromSource(from);
+                searchedFrom = from;
+            }
+            return fromSource.isReachable(to) ? fromSource.distance(to) : -1;
+        }
+        if (from != searchedFrom) {
+            graphFromSource = new ShortestPaths<>(maze);
+            graphFromSource.singleSourceDistances(from);
+            searchedFrom = from;
+        }
+        return graphFromSource.isReachable(to) ? (int) graphFromSource.getDistance(to) : -1;
+    }
+
     /** The Manhattan distance from start to the ring. */
     int manhattanDistanceToRing(Node start) {
         return Math.abs(start.getTile().row() - ring.getTile().row())
@@ -534,4 +831,666 @@ public class Sewers {
         }
         return new Sewers(new HashSet<>(idToNode.values()), tiles, idToNode.get(targetId));
     }
+
+    /**
+     * Write this sewer system to out in the text format of serialize(), one
+     * line per element of the list serialize() returns, each ended by '\n'.
+     * Unlike serialize(), does not build the whole text in memory.
+     */
+    public void write(Writer out) throws IOException {
+        StringBuilder line = new StringBuilder();
+        line.append(rows).append(':').append(cols).append(",trgt:").append(ring.getId());
+        out.append(line).append('\n');
+        for (Node n : graph) {
+            Tile t = n.getTile();
+            line.setLength(0);
+            line.append(n.getId()).append(',').append(t.row()).append(',').append(t.column())
+                    .append(',').append(t.coins()).append(',').append(t.type().name())
+                    .append('=');
+            boolean first = true;
+            for (Edge e : n.exitArray()) {
+                if (!first) {
+                    line.append(',');
+                }
+                first = false;
+                line.append(e.getOther(n).getId()).append('-').append(e.length());
+            }
+            out.append(line).append('\n');
+        }
+    }
+
+    /**
+     * Read a sewer system in the text format of serialize() from in, as
+     * written by write() or by writing the lines of serialize() to a file.
+     * Reads in to its end in one pass, parsing the text as it goes.
+     * Returns the same Sewers as deserialize() does for the lines of in.
+     * Throws IllegalArgumentException if in is not in that format.
+     */
+    public static Sewers read(Reader in) throws IOException {
+        return read(new TextScanner(in, null));
+    }
+
+    /**
+     * Read a sewer system in the text format of serialize() from the bytes
+     * of in from its position to its limit, which must be ASCII. in may be a
+     * view of a mapped file. Otherwise the same as read(Reader).
+     */
+    public static Sewers read(ByteBuffer in) {
+        try {
+            return read(new TextScanner(null, in));
+        } catch (IOException e) {
+            throw new AssertionError("reading a ByteBuffer cannot fail", e);
+        }
+    }
+
+    /**
+     * Parse a sewer system in the text format of serialize() from in.
+     * Edges may name nodes that come later, so they are only added once all
+     * nodes have been read, each node's in the order they were read.
+     */
+    private static Sewers read(TextScanner in) throws IOException {
+        int rows = in.integer();
+        in.expect(':');
+        int cols = in.integer();
+        if (rows <= 0 || cols <= 0 || (long) rows * cols > Integer.MAX_VALUE) {
+            throw in.error("grid size out of range: " + rows + ":" + cols);
+        }
+        in.expect(',');
+        in.skipPast(':');
+        long targetId = in.number();
+        in.endLine();
+
+        Map<Long, Node> idToNode = new HashMap<>();
+        Node[][] tiles = new Node[rows][cols];
+        StringBuilder word = new StringBuilder();
+        // The edges in the order read: the node each leaves, its other end and weight, and the
+        // line it is on.
+        Node[] from = new Node[64];
+        long[] to = new long[64];
+        int[] weights = new int[64];
+        int[] lines = new int[64];
+        int edges = 0;
+        while (in.skipBlankLines()) {
+            long nodeId = in.number();
+            in.expect(',');
+            int row = in.integer();
+            in.expect(',');
+            int col = in.integer();
+            in.expect(',');
+            int coins = in.integer();
+            in.expect(',');
+            String typeName = in.word(word);
+            Tile.TileType type;
+            try {
+                type = Tile.TileType.valueOf(typeName);
+            } catch (IllegalArgumentException e) {
+                throw in.error("unknown tile type '" + typeName + "'");
+            }
+            in.expect('=');
+            if (row < 0 || row >= rows || col < 0 || col >= cols) {
+                throw in.error("tile (" + row + ", " + col + ") is outside the grid");
+            }
+            Node n = new Node(nodeId, new Tile(row, col, coins, type));
+            idToNode.put(nodeId, n);
+            tiles[row][col] = n;
+            while (!in.atEndOfLine()) {
+                if (edges == from.length) {
+                    from = Arrays.copyOf(from, 2 * edges);
+                    to = Arrays.copyOf(to, 2 * edges);
+                    weights = Arrays.copyOf(weights, 2 * edges);
+                    lines = Arrays.copyOf(lines, 2 * edges);
+                }
+                lines[edges] = in.line();
+                from[edges] = n;
+                to[edges] = in.number();
+                in.expect('-');
+                weights[edges] = in.integer();
+                edges++;
+                if (!in.atEndOfLine()) {
+                    in.expect(',');
+                }
+            }
+            in.endLine();
+        }
+
+        for (int k = 0; k < edges; k++) {
+            Node other = idToNode.get(to[k]);
+            if (other == null) {
+                throw in.error(lines[k], "edge to unknown node " + to[k]);
+            }
+            try {
+                from[k].addEdge(new Edge(from[k], other, weights[k]));
+            } catch (IllegalArgumentException e) {
+                throw in.error(lines[k], "edge to node " + to[k] + " does not join adjacent tiles");
+            }
+        }
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                if (tiles[i][j] == null) {
+                    tiles[i][j] = new Node(new Tile(i, j, 0, Tile.TileType.WALL), cols);
+                }
+            }
+        }
+        Node target = idToNode.get(targetId);
+        if (target == null) {
+            throw in.error(1, "unknown target node " + targetId);
+        }
+        return new Sewers(new HashSet<>(idToNode.values()), tiles, target);
+    }
+
+    /**
+     * A cursor over the characters of a Reader, read a buffer at a time, or
+     * of the ASCII bytes of a ByteBuffer, with just enough parsing for the
+     * text format of serialize(). Errors name the line they occur on.
+     */
+    private static final class TextScanner {
+
+        /**
+         * The source: exactly one of these is not null.
+         */
+        private final Reader reader;
+        private final ByteBuffer bytes;
+
+        /**
+         * If reading from reader: buf[pos..limit-1] are the characters read
+         * but not yet consumed.
+         */
+        private final char[] buf;
+        private int pos, limit;
+
+        /**
+         * The number of the line being read, starting at 1.
+         */
+        private int line = 1;
+
+        TextScanner(Reader reader, ByteBuffer bytes) {
+            this.reader = reader;
+            this.bytes = bytes;
+            buf = reader == null ? null : new char[8192];
+        }
+
+        /**
+         * Return the next character without consuming it, or -1 at the end.
+         */
+        int peek() throws IOException {
+            if (bytes != null) {
+                return bytes.hasRemaining() ? bytes.get(bytes.position()) & 0xFF : -1;
+            }
+            while (pos == limit) {
+                int n = reader.read(buf, 0, buf.length);
+                if (n < 0) {
+                    return -1;
+                }
+                pos = 0;
+                limit = n;
+            }
+            return buf[pos];
+        }
+
+        /**
+         * Consume and return the next character, or return -1 at the end.
+         */
+        int next() throws IOException {
+            int c = peek();
+            if (c >= 0) {
+                if (bytes != null) {
+                    bytes.get();
+                } else {
+                    pos++;
+                }
+                if (c == '\n') {
+                    line++;
+                }
+            }
+            return c;
+        }
+
+        /**
+         * Return the number of the line being read, starting at 1.
+         */
+        int line() {
+            return line;
+        }
+
+        /**
+         * Return an IllegalArgumentException for the current line.
+         */
+        IllegalArgumentException error(String message) {
+            return error(line, message);
+        }
+
+        /**
+         * Return an IllegalArgumentException for line number n.
+         */
+        IllegalArgumentException error(int n, String message) {
+            return new IllegalArgumentException("sewer text line " + n + ": " + message);
+        }
+
+        /**
+         * Consume the next character, which must be c.
+         */
+        void expect(char c) throws IOException {
+            int d = peek();
+            if (d != c) {
+                throw error("expected '" + c + "' but found "
+                        + (d < 0 ? "the end" : d == '\n' || d == '\r' ? "the end of the line"
+                                : "'" + (char) d + "'"));
+            }
+            next();
+        }
+
+        /**
+         * Consume characters up to and including the next c on this line.
+         */
+        void skipPast(char c) throws IOException {
+            for (int d = peek(); d != c; d = peek()) {
+                if (d < 0 || d == '\n') {
+                    throw error("expected '" + c + "'");
+                }
+                next();
+            }
+            next();
+        }
+
+        /**
+         * Consume and return a decimal number, with an optional minus sign.
+         */
+        long number() throws IOException {
+            boolean negative = peek() == '-';
+            if (negative) {
+                next();
+            }
+            int c = peek();
+            if (c < '0' || c > '9') {
+                throw error("expected a number");
+            }
+            long value = 0;
+            for (; c >= '0' && c <= '9'; c = peek()) {
+                value = Math.addExact(Math.multiplyExact(value, 10), c - '0');
+                next();
+            }
+            return negative ? -value : value;
+        }
+
+        /**
+         * Consume and return a decimal number that fits in an int.
+         */
+        int integer() throws IOException {
+            long value = number();
+            if (value != (int) value) {
+                throw error("number out of range: " + value);
+            }
+            return (int) value;
+        }
+
+        /**
+         * Consume a run of letters and underscores and return it, using sb
+         * to build it.
+         */
+        String word(StringBuilder sb) throws IOException {
+            sb.setLength(0);
+            for (int c = peek(); Character.isLetter(c) || c == '_'; c = peek()) {
+                sb.append((char) next());
+            }
+            return sb.toString();
+        }
+
+        /**
+         * Return true iff the next character ends the line or the text.
+         */
+        boolean atEndOfLine() throws IOException {
+            int c = peek();
+            return c < 0 || c == '\n' || c == '\r';
+        }
+
+        /**
+         * Consume the end of the line: "\n", "\r\n", "\r" or the end of the
+         * text.
+         */
+        void endLine() throws IOException {
+            int c = next();
+            if (c == '\r' && peek() == '\n') {
+                next();
+            } else if (c >= 0 && c != '\n' && c != '\r') {
+                throw error("unexpected '" + (char) c + "'");
+            }
+        }
+
+        /**
+         * Consume empty lines, and return true iff there is more text.
+         */
+        boolean skipBlankLines() throws IOException {
+            int c = peek();
+            while (c == '\n' || c == '\r') {
+                next();
+                c = peek();
+            }
+            return c >= 0;
+        }
+    }
+
+    /**
+     * The first three bytes of the compact binary format ("SWR"), and the
+     * version of the format that follows them in the fourth byte.
+     */
+    static final byte[] COMPACT_MAGIC = { 'S', 'W', 'R' };
+    static final int COMPACT_VERSION = 2;
+
+    /**
+     * Return this sewer system in the compact binary format, which fromBytes()
+     * converts back into an equal Sewers. The format is:
+     * <ol>
+     *     <li>the bytes "SWR" and the version number 2;</li>
+     *     <li>varints: rows, cols, the entrance cell and the ring cell, where
+     *     the cell of (r, c) is r * cols + c;</li>
+     *     <li>a bitmap of the open (non-wall) cells in row-major order, 8
+     *     cells per byte, lowest bit first;</li>
+     *     <li>one byte per open cell in row-major order: the weight of the
+     *     edge to the east in the high 4 bits and that of the edge to the
+     *     south in the low 4 bits, 0 meaning no edge (the edges to the west
+     *     and north are the reverses of their neighbors' edges);</li>
+     *     <li>a varint per open cell in row-major order: its coins;</li>
+     *     <li>a varint, the number of carved cells, and a varint per carved
+     *     cell in the order carved: its cell.</li>
+     * </ol>
+     * fromBytes() adds the nodes to the graph in the order of a breadth-first
+     * search from the entrance over the cells that were not carved, trying
+     * neighbors north, east, south, west, and then the carved cells. That is
+     * the order in which they were dug, so the graph is iterated in the same
+     * order as this one's and serialize() gives the same text.
+     * Varints are unsigned, 7 bits per byte, lowest group first, with the
+     * high bit set on every byte but the last.
+     * Throws IllegalArgumentException if this sewer system cannot be
+     * represented: its node ids are not row * cols + column, an edge does not
+     * join adjacent tiles, is not matched by a reverse edge of the same
+     * weight, or has a weight outside 1..15, or a tile other than the
+     * entrance and ring is not FLOOR.
+     */
+    public byte[] toBytes() {
+        if (!matchesGrid) {
+            throw new IllegalArgumentException("edges do not follow the grid");
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(COMPACT_MAGIC, 0, COMPACT_MAGIC.length);
+        out.write(COMPACT_VERSION);
+        writeVarint(out, rows);
+        writeVarint(out, cols);
+        writeVarint(out, cellOf(entrance));
+        writeVarint(out, cellOf(ring));
+
+        byte[] bitmap = new byte[(rows * cols + 7) / 8];
+        for (Node n : graph) {
+            int cell = cellOf(n);
+            if (n.getId() != cell) {
+                throw new IllegalArgumentException("node id is not row * cols + column");
+            }
+            Tile.TileType expected = n == entrance ? Tile.TileType.ENTRANCE
+                    : n == ring ? Tile.TileType.RING : Tile.TileType.FLOOR;
+            if (n.getTile().type() != expected) {
+                throw new IllegalArgumentException("unexpected tile type " + n.getTile().type());
+            }
+            bitmap[cell >> 3] |= 1 << (cell & 7);
+        }
+        out.write(bitmap, 0, bitmap.length);
+
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                Node n = tiles[r][c];
+                if (n.getTile().type() != Tile.TileType.WALL) {
+                    int east = c + 1 < cols ? symmetricWeight(n, tiles[r][c + 1]) : 0;
+                    int south = r + 1 < rows ? symmetricWeight(n, tiles[r + 1][c]) : 0;
+                    out.write(east << 4 | south);
+                }
+            }
+        }
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                Tile t = tiles[r][c].getTile();
+                if (t.type() != Tile.TileType.WALL) {
+                    writeVarint(out, t.coins());
+                }
+            }
+        }
+        writeVarint(out, carved.size());
+        for (Node n : carved) {
+            writeVarint(out, cellOf(n));
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Return the cell of node n: row * cols + column.
+     */
+    private int cellOf(Node n) {
+        return n.getTile().row() * cols + n.getTile().column();
+    }
+
+    /**
+     * Return the weight of the edges between n and m, or 0 if they are not
+     * joined. Throw an IllegalArgumentException if there is an edge in only
+     * one direction, the weights differ, or the weight is not in 1..15.
+     */
+    private static int symmetricWeight(Node n, Node m) {
+        Edge there = null;
+        Edge back = null;
+        for (Edge e : n.getExits()) {
+            if (e.destination() == m) {
+                there = e;
+            }
+        }
+        for (Edge e : m.getExits()) {
+            if (e.destination() == n) {
+                back = e;
+            }
+        }
+        if (there == null && back == null) {
+            return 0;
+        }
+        if (there == null || back == null || there.length() != back.length()) {
+            throw new IllegalArgumentException("edge without a matching reverse edge");
+        }
+        if (there.length() < 1 || there.length() > MAX_EDGE_WEIGHT) {
+            throw new IllegalArgumentException("edge weight out of range: " + there.length());
+        }
+        return there.length();
+    }
+
+    /**
+     * Write value to out as an unsigned varint.
+     */
+    static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    /**
+     * Convert data, which was output by toBytes(), back into a Sewers.
+     * Throws IllegalArgumentException if data is not in the compact binary
+     * format.
+     */
+    public static Sewers fromBytes(byte[] data) {
+        return fromBytes(ByteBuffer.wrap(data));
+    }
+
+    /**
+     * Convert the compact binary sewer that starts at the position of data
+     * back into a Sewers, reading it in place and leaving the position just
+     * after it. data may be a view of a mapped file.
+     * Throws IllegalArgumentException if data does not hold a sewer in the
+     * compact binary format.
+     */
+    public static Sewers fromBytes(ByteBuffer data) {
+        try {
+            for (byte b : COMPACT_MAGIC) {
+                if (data.get() != b) {
+                    throw new IllegalArgumentException("not a compact sewer");
+                }
+            }
+            if (data.get() != COMPACT_VERSION) {
+                throw new IllegalArgumentException("unsupported compact sewer version");
+            }
+            int rows = readVarint(data);
+            int cols = readVarint(data);
+            int entranceCell = readVarint(data);
+            int ringCell = readVarint(data);
+            long size = (long) rows * cols;
+            // Every cell takes at least a bit of the bitmap, so a grid larger than the rest of
+            // data is malformed; checking this first keeps a bad size from allocating a grid.
+            if (rows == 0 || cols == 0 || size > Integer.MAX_VALUE
+                    || (size + 7) / 8 > data.remaining()) {
+                throw new IllegalArgumentException("grid size out of range: " + rows + " x "
+                        + cols);
+            }
+            int cells = (int) size;
+            if (entranceCell >= cells || ringCell >= cells) {
+                throw new IllegalArgumentException("entrance or ring cell out of range");
+            }
+            int bitmap = data.position();
+            int weights = bitmap + (cells + 7) / 8;
+            int open = 0;
+            for (int cell = 0; cell < cells; cell++) {
+                if ((data.get(bitmap + (cell >> 3)) & 1 << (cell & 7)) != 0) {
+                    open++;
+                }
+            }
+            data.position(weights + open);
+
+            Node[][] tiles = new Node[rows][cols];
+            // eastSouth[cell] is the packed weight byte of each open cell.
+            int[] eastSouth = new int[cells];
+            List<Node> nodes = new ArrayList<>(open);
+            Node ring = null;
+            int k = 0;
+            for (int cell = 0; cell < cells; cell++) {
+                int r = cell / cols;
+                int c = cell % cols;
+                if ((data.get(bitmap + (cell >> 3)) & 1 << (cell & 7)) == 0) {
+                    tiles[r][c] = new Node(new Tile(r, c, 0, Tile.TileType.WALL), cols);
+                    continue;
+                }
+                eastSouth[cell] = data.get(weights + k++) & 0xFF;
+                Tile.TileType type = cell == entranceCell ? Tile.TileType.ENTRANCE
+                        : cell == ringCell ? Tile.TileType.RING : Tile.TileType.FLOOR;
+                Node n = new Node(new Tile(r, c, readVarint(data), type), cols);
+                tiles[r][c] = n;
+                nodes.add(n);
+                if (cell == ringCell) {
+                    ring = n;
+                }
+            }
+            if (ring == null || tiles[entranceCell / cols][entranceCell % cols].getTile().type()
+                    != Tile.TileType.ENTRANCE) {
+                throw new IllegalArgumentException("entrance or ring is not open");
+            }
+
+            // Add edges in the same order as createEdges, so that every node's exits come out
+            // in the same order as in a generated sewer system.
+            for (int i = 0; i < rows - 1; i++) {
+                for (int j = 0; j < cols - 1; j++) {
+                    Node node = tiles[i][j];
+                    if (node.getTile().type() == Tile.TileType.WALL) {
+                        continue;
+                    }
+                    int packed = eastSouth[i * cols + j];
+                    connect(node, tiles[i + 1][j], packed & 0xF);
+                    connect(node, tiles[i][j + 1], packed >>> 4);
+                }
+            }
+            int carvedCount = readVarint(data);
+            if (carvedCount >= open) {
+                throw new IllegalArgumentException("too many carved cells: " + carvedCount);
+            }
+            List<Node> carved = new ArrayList<>(carvedCount);
+            for (int i = 0; i < carvedCount; i++) {
+                int cell = readVarint(data);
+                if (cell >= cells || cell == entranceCell
+                        || tiles[cell / cols][cell % cols].getTile().type() == Tile.TileType.WALL) {
+                    throw new IllegalArgumentException("bad carved cell " + cell);
+                }
+                carved.add(tiles[cell / cols][cell % cols]);
+            }
+            return new Sewers(new HashSet<>(openOrder(tiles, nodes, entranceCell, carved)),
+                    tiles, ring, Collections.unmodifiableList(carved));
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("truncated compact sewer", e);
+        }
+    }
+
+    /**
+     * Return the open nodes, which are listed in nodes, in the order in which they were dug:
+     * that of a breadth-first search from the entrance over the nodes not in carved, trying
+     * the neighbors of each node north, east, south, west, then any nodes it missed, then
+     * carved. Throws IllegalArgumentException if carved lists a node twice.
+     */
+    private static List<Node> openOrder(Node[][] tiles, List<Node> nodes, int entranceCell,
+            List<Node> carved) {
+        int rows = tiles.length;
+        int cols = tiles[0].length;
+        boolean[] reached = new boolean[rows * cols];
+        for (Node n : carved) {
+            if (reached[(int) n.getId()]) {
+                throw new IllegalArgumentException("carved cell listed twice: " + n.getId());
+            }
+            reached[(int) n.getId()] = true;
+        }
+        List<Node> order = new ArrayList<>(nodes.size());
+        order.add(tiles[entranceCell / cols][entranceCell % cols]);
+        reached[entranceCell] = true;
+        for (int head = 0; head < order.size(); head++) {
+            Tile t = order.get(head).getTile();
+            for (int dir = 0; dir < 4; dir++) {
+                int nr = t.row() + (dir == 0 ? -1 : dir == 2 ? 1 : 0);
+                int nc = t.column() + (dir == 1 ? 1 : dir == 3 ? -1 : 0);
+                if (nr >= 0 && nr < rows && nc >= 0 && nc < cols && !reached[nr * cols + nc]
+                        && tiles[nr][nc].getTile().type() != Tile.TileType.WALL) {
+                    reached[nr * cols + nc] = true;
+                    order.add(tiles[nr][nc]);
+                }
+            }
+        }
+        for (Node n : nodes) {
+            if (!reached[(int) n.getId()]) {
+                order.add(n);
+            }
+        }
+        order.addAll(carved);
+        return order;
+    }
+
+    /**
+     * If weight is not 0, add edges with that weight in both directions
+     * between node and m. Throws IllegalArgumentException if weight is not
+     * 0 and m is a wall.
+     */
+    private static void connect(Node node, Node m, int weight) {
+        if (weight != 0) {
+            if (m.getTile().type() == Tile.TileType.WALL) {
+                throw new IllegalArgumentException("edge to a wall");
+            }
+            node.addEdge(new Edge(node, m, weight));
+            m.addEdge(new Edge(m, node, weight));
+        }
+    }
+
+    /**
+     * Return the unsigned varint at the position of data, advancing the
+     * position past it. Throws IllegalArgumentException if its value is
+     * more than Integer.MAX_VALUE, so the result is never negative.
+     */
+    static int readVarint(ByteBuffer data) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = data.get();
+            if (shift == 28 && (b & 0xF8) != 0) {
+                throw new IllegalArgumentException("varint out of range");
+            }
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
 }
@@ -0,0 +1,146 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * All-pairs shortest-path distances of a graph with nonnegative integer weights, stored as an
+ * n-by-n matrix of ints so that any distance can be looked up in constant time. Meant for graphs
+ * with up to a few thousand vertices, such as the open tiles of a sewer.
+ * <p>
+ * The matrix is computed by blocked Floyd-Warshall. The matrix is cut into TILE-by-TILE tiles,
+ * and for each diagonal tile in turn: the diagonal tile is closed, then the tiles in its row and
+ * column are updated from it, then every other tile is updated with a min-plus product of a row
+ * tile and a column tile. Within each round the tiles of the last two steps are independent, so
+ * they are processed in parallel on the common fork-join pool when parallel is true. A tile of
+ * ints fits in the L1/L2 cache, and the innermost loop of every step is a plain
+ * {@code d[j] = min(d[j], a + b[j])} over contiguous ints, which HotSpot compiles to SIMD
+ * instructions on ordinary x86 and ARM processors without any special API.
+ */
+public class AllPairsShortestPaths {
+
+    /**
+     * The distance reported for unreachable pairs. Small enough that adding two of them does not
+     * overflow.
+     */
+    public static final int INFINITY = Integer.MAX_VALUE / 2;
+
+    /**
+     * The side of a tile. 64 ints per row keeps three tiles within a typical L1 data cache.
+     */
+    static final int TILE = 64;
+
+    /**
+     * Number of vertices.
+     */
+    private final int n;
+
+    /**
+     * dist[u * n + v] is the distance from u to v.
+     */
+    private final int[] dist;
+
+    /**
+     * Creates: the all-pairs distances of graph, computed in parallel if parallel is true.
+     * Requires: all weights are nonnegative.
+     */
+    public AllPairsShortestPaths(CsrGraph<?, ?> graph, boolean parallel) {
+        n = graph.vertexCount();
+        dist = new int[n * n];
+        Arrays.fill(dist, INFINITY);
+        for (int u = 0; u < n; u++) {
+            dist[u * n + u] = 0;
+            for (int e = graph.offset(u); e < graph.offset(u + 1); e++) {
+                int v = graph.target(e);
+                dist[u * n + v] = Math.min(dist[u * n + v], graph.intWeight(e));
+            }
+        }
+        floydWarshall(parallel);
+    }
+
+    /**
+     * Creates: the all-pairs distances of graph, computed in parallel.
+     * Requires: all weights are nonnegative.
+     */
+    public AllPairsShortestPaths(CsrGraph<?, ?> graph) {
+        this(graph, true);
+    }
+
+    /**
+     * Effect: closes dist under min-plus composition, tile by tile.
+     */
+    private void floydWarshall(boolean parallel) {
+        int tiles = (n + TILE - 1) / TILE;
+        for (int kt = 0; kt < tiles; kt++) {
+            final int k = kt;
+            relaxTile(k, k, k);
+            // The row and column of the diagonal tile only depend on the diagonal tile.
+            forEach(parallel, 2 * tiles, x -> {
+                int t = x / 2;
+                if (t == k) {
+                    return;
+                }
+                if (x % 2 == 0) {
+                    relaxTile(k, t, k);
+                } else {
+                    relaxTile(t, k, k);
+                }
+            });
+            // Every other tile only depends on its row and column tiles.
+            forEach(parallel, tiles * tiles, x -> {
+                int it = x / tiles;
+                int jt = x % tiles;
+                if (it != k && jt != k) {
+                    relaxTile(it, jt, k);
+                }
+            });
+        }
+    }
+
+    /**
+     * Effect: calls body on 0..count-1, in parallel if parallel is true.
+     */
+    private static void forEach(boolean parallel, int count, IntConsumer body) {
+        IntStream range = IntStream.range(0, count);
+        (parallel ? range.parallel() : range).forEach(body);
+    }
+
+    /**
+     * Effect: for each intermediate vertex k of tile kt in order, relaxes every pair (i, j) in
+     * tile (it, jt) through k: d(i, j) = min(d(i, j), d(i, k) + d(k, j)).
+     */
+    private void relaxTile(int it, int jt, int kt) {
+        int iLo = it * TILE, iHi = Math.min(iLo + TILE, n);
+        int jLo = jt * TILE, jHi = Math.min(jLo + TILE, n);
+        int kLo = kt * TILE, kHi = Math.min(kLo + TILE, n);
+        int[] d = dist;
+        for (int k = kLo; k < kHi; k++) {
+            int kRow = k * n;
+            for (int i = iLo; i < iHi; i++) {
+                int iRow = i * n;
+                int dik = d[iRow + k];
+                if (dik >= INFINITY) {
+                    continue;
+                }
+                for (int j = jLo; j < jHi; j++) {
+                    d[iRow + j] = Math.min(d[iRow + j], dik + d[kRow + j]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns: the number of vertices.
+     */
+    public int size() {
+        return n;
+    }
+
+    /**
+     * Returns: the distance from vertex u to vertex v, or INFINITY if v is not reachable from u.
+     */
+    public int distance(int u, int v) {
+        return dist[u * n + v];
+    }
+}
@@ -0,0 +1,379 @@
+package graph;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+/**
+ * The articulation points, bridges and biconnected components (blocks) of the part of an
+ * undirected graph that is reachable from a root vertex, found in O(V+E) time by Tarjan's
+ * depth-first search. The search keeps its own explicit stack, so it cannot overflow the call
+ * stack however long the paths in the graph are.
+ * <p>
+ * The graph is given as a DirectedGraph in which every edge has a reverse edge, as in the sewer
+ * Maze. Each vertex can carry an integer value (such as the coins on a tile), and the index
+ * reports the total value that lies behind each articulation point as seen from the root: a
+ * walk from the root that collects any of that value must pass through the articulation point
+ * twice.
+ * <p>
+ * The block-cut tree has one node per block and one per articulation point, with an edge between
+ * each articulation point and the blocks that contain it. It is rooted at the node for the root
+ * vertex: the root's articulation point if it is one, otherwise the one block containing it.
+ * Blocks and articulation points are numbered 0..blockCount()-1 and
+ * 0..articulationPoints().size()-1 respectively.
+ */
+public class Biconnectivity<Vertex, Edge> {
+
+    /**
+     * The model for treating types Vertex and Edge as forming a graph.
+     */
+    private final DirectedGraph<Vertex, Edge> graph;
+
+    /**
+     * The vertices reached from the root, numbered in depth-first discovery order. A vertex's
+     * number is its discovery time.
+     */
+    private final List<Vertex> vertices = new ArrayList<>();
+    private final Map<Vertex, Integer> index = new HashMap<>();
+
+    /**
+     * For the vertex numbered i: the number of its parent in the search tree (-1 for the root),
+     * the lowest discovery number reachable from its subtree by one back edge, and the total
+     * value of its subtree.
+     */
+    private int[] parent, low;
+    private long[] subtreeValue;
+
+    /**
+     * The articulation points, in order of discovery, and the number of each.
+     */
+    private final List<Vertex> cuts = new ArrayList<>();
+    private final Map<Vertex, Integer> cutIndex = new HashMap<>();
+
+    /**
+     * The bridges, each given as the tree edge from parent to child.
+     */
+    private final List<Edge> bridges = new ArrayList<>();
+
+    /**
+     * The vertices of each block.
+     */
+    private final List<List<Vertex>> blocks = new ArrayList<>();
+
+    /**
+     * Block-cut tree: the articulation points contained in each block, the blocks containing each
+     * articulation point, and the parent of each block (an articulation point number, or -1 for
+     * the root block).
+     */
+    private final List<List<Integer>> blockCuts = new ArrayList<>();
+    private final List<List<Integer>> cutBlocks = new ArrayList<>();
+    private final List<Integer> blockParent = new ArrayList<>();
+
+    /**
+     * Total value of the vertices in the subtree of the block-cut tree below each block and each
+     * articulation point (including the articulation point itself).
+     */
+    private long[] blockSubtreeValue, cutSubtreeValue;
+
+    /**
+     * Creates: the biconnectivity index of the part of graph reachable from root, where each
+     * vertex v has value value.applyAsInt(v).
+     * Requires: every edge of graph has a reverse edge.
+     */
+    public Biconnectivity(DirectedGraph<Vertex, Edge> graph, Vertex root,
+            ToIntFunction<Vertex> value) {
+        this.graph = graph;
+        search(root, value);
+        buildTreeValues(value);
+    }
+
+    /**
+     * Creates: the biconnectivity index of the part of graph reachable from root, with every
+     * vertex having value 0.
+     * Requires: every edge of graph has a reverse edge.
+     */
+    public Biconnectivity(DirectedGraph<Vertex, Edge> graph, Vertex root) {
+        this(graph, root, v -> 0);
+    }
+
+    /**
+     * Effect: runs Tarjan's depth-first search from root, filling in the search tree, the
+     * articulation points, the bridges and the blocks.
+     */
+    private void search(Vertex root, ToIntFunction<Vertex> value) {
+        int capacity = 16;
+        parent = new int[capacity];
+        low = new int[capacity];
+        subtreeValue = new long[capacity];
+        Edge[] parentEdge = newEdgeArray(capacity);
+        boolean[] isCut = new boolean[capacity];
+        boolean[] skippedParent = new boolean[capacity];
+
+        // Each frame of the explicit stack is a vertex and the iterator over its edges.
+        Deque<Iterator<Edge>> frames = new ArrayDeque<>();
+        Deque<Integer> frameVertex = new ArrayDeque<>();
+        // Vertices of the blocks not yet completed, in discovery order.
+        Deque<Integer> pending = new ArrayDeque<>();
+
+        index.put(root, 0);
+        vertices.add(root);
+        parent[0] = -1;
+        subtreeValue[0] = value.applyAsInt(root);
+        frames.push(graph.outgoingEdges(root).iterator());
+        frameVertex.push(0);
+        pending.push(0);
+        int rootChildren = 0;
+
+        while (!frames.isEmpty()) {
+            int u = frameVertex.peek();
+            Iterator<Edge> it = frames.peek();
+            if (it.hasNext()) {
+                Edge edge = it.next();
+                Vertex w = graph.dest(edge);
+                Integer wi = index.get(w);
+                if (wi == null) {
+                    int n = vertices.size();
+                    if (n == capacity) {
+                        capacity *= 2;
+                        parent = Arrays.copyOf(parent, capacity);
+                        low = Arrays.copyOf(low, capacity);
+                        subtreeValue = Arrays.copyOf(subtreeValue, capacity);
+                        parentEdge = Arrays.copyOf(parentEdge, capacity);
+                        isCut = Arrays.copyOf(isCut, capacity);
+                        skippedParent = Arrays.copyOf(skippedParent, capacity);
+                    }
+                    index.put(w, n);
+                    vertices.add(w);
+                    low[n] = n;
+                    parent[n] = u;
+                    parentEdge[n] = edge;
+                    subtreeValue[n] = value.applyAsInt(w);
+                    if (u == 0) {
+                        rootChildren++;
+                    }
+                    frames.push(graph.outgoingEdges(w).iterator());
+                    frameVertex.push(n);
+                    pending.push(n);
+                } else if (wi == parent[u] && !skippedParent[u]) {
+                    // The reverse of the tree edge into u is not a back edge. Any further
+                    // parallel edge back to the parent is.
+                    skippedParent[u] = true;
+                } else {
+                    low[u] = Math.min(low[u], wi);
+                }
+                continue;
+            }
+
+            // All edges of u are done: retreat to its parent.
+            frames.pop();
+            frameVertex.pop();
+            int p = parent[u];
+            if (p < 0) {
+                continue;
+            }
+            low[p] = Math.min(low[p], low[u]);
+            subtreeValue[p] += subtreeValue[u];
+            if (low[u] > p) {
+                bridges.add(parentEdge[u]);
+            }
+            if (low[u] >= p) {
+                // p separates the subtree of u from the rest: pop that subtree's block.
+                if (p != 0) {
+                    isCut[p] = true;
+                }
+                List<Vertex> block = new ArrayList<>();
+                int x;
+                do {
+                    x = pending.pop();
+                    block.add(vertices.get(x));
+                } while (x != u);
+                block.add(vertices.get(p));
+                blocks.add(block);
+            }
+        }
+        if (rootChildren > 1) {
+            isCut[0] = true;
+        }
+        if (blocks.isEmpty()) {
+            blocks.add(List.of(root)); // an isolated root is a block by itself
+        }
+
+        for (int i = 0; i < vertices.size(); i++) {
+            if (isCut[i]) {
+                cutIndex.put(vertices.get(i), cuts.size());
+                cuts.add(vertices.get(i));
+            }
+        }
+    }
+
+    /**
+     * Effect: builds the block-cut tree and the total value below each of its nodes.
+     */
+    private void buildTreeValues(ToIntFunction<Vertex> value) {
+        for (int c = 0; c < cuts.size(); c++) {
+            cutBlocks.add(new ArrayList<>());
+        }
+        // Blocks were completed in post-order, so a block's parent articulation point (its
+        // vertex closest to the root) is the last vertex added to it.
+        for (int b = 0; b < blocks.size(); b++) {
+            List<Vertex> block = blocks.get(b);
+            List<Integer> bc = new ArrayList<>();
+            for (Vertex v : block) {
+                Integer c = cutIndex.get(v);
+                if (c != null) {
+                    bc.add(c);
+                    cutBlocks.get(c).add(b);
+                }
+            }
+            blockCuts.add(bc);
+            Integer top = cutIndex.get(block.get(block.size() - 1));
+            blockParent.add(top == null ? -1 : top);
+        }
+
+        blockSubtreeValue = new long[blocks.size()];
+        cutSubtreeValue = new long[cuts.size()];
+        for (int c = 0; c < cuts.size(); c++) {
+            cutSubtreeValue[c] = value.applyAsInt(cuts.get(c));
+        }
+        // Post-order again: each block's children were completed before it.
+        for (int b = 0; b < blocks.size(); b++) {
+            List<Vertex> block = blocks.get(b);
+            long sum = 0;
+            for (int i = 0; i < block.size() - 1; i++) {
+                Vertex v = block.get(i);
+                sum += cutIndex.containsKey(v) ? cutSubtreeValue[cutIndex.get(v)]
+                                               : value.applyAsInt(v);
+            }
+            if (blockParent.get(b) < 0) {
+                Vertex top = block.get(block.size() - 1);
+                sum += value.applyAsInt(top);
+            }
+            blockSubtreeValue[b] = sum;
+            if (blockParent.get(b) >= 0) {
+                cutSubtreeValue[blockParent.get(b)] += sum;
+            }
+        }
+    }
+
+    /**
+     * Returns: an array of n nulls of type Edge.
+     */
+    @SuppressWarnings("unchecked")
+    private Edge[] newEdgeArray(int n) {
+        return (Edge[]) new Object[n];
+    }
+
+    /**
+     * Returns: the vertices reachable from the root, in depth-first discovery order.
+     */
+    public List<Vertex> vertices() {
+        return Collections.unmodifiableList(vertices);
+    }
+
+    /**
+     * Returns: the articulation points, i.e. the vertices whose removal disconnects some other
+     * vertices from each other.
+     */
+    public List<Vertex> articulationPoints() {
+        return Collections.unmodifiableList(cuts);
+    }
+
+    /**
+     * Returns: whether v is an articulation point.
+     */
+    public boolean isArticulationPoint(Vertex v) {
+        return cutIndex.containsKey(v);
+    }
+
+    /**
+     * Returns: the bridges, i.e. the edges whose removal disconnects the graph. Each bridge is
+     * given once, directed away from the root.
+     */
+    public List<Edge> bridges() {
+        return Collections.unmodifiableList(bridges);
+    }
+
+    /**
+     * Returns: the number of blocks.
+     */
+    public int blockCount() {
+        return blocks.size();
+    }
+
+    /**
+     * Returns: the vertices of block b. The last one is the block's vertex closest to the root.
+     */
+    public List<Vertex> block(int b) {
+        return Collections.unmodifiableList(blocks.get(b));
+    }
+
+    /**
+     * Returns: the numbers of the articulation points contained in block b.
+     */
+    public List<Integer> cutsOfBlock(int b) {
+        return Collections.unmodifiableList(blockCuts.get(b));
+    }
+
+    /**
+     * Returns: the numbers of the blocks containing articulation point c.
+     */
+    public List<Integer> blocksOfCut(int c) {
+        return Collections.unmodifiableList(cutBlocks.get(c));
+    }
+
+    /**
+     * Returns: the number of the articulation point above block b in the block-cut tree, or -1 if
+     * b is the root block.
+     */
+    public int parentOfBlock(int b) {
+        return blockParent.get(b);
+    }
+
+    /**
+     * Returns: the total value of the vertices in block b and everything below it in the
+     * block-cut tree, not counting the articulation point above b.
+     */
+    public long blockSubtreeValue(int b) {
+        return blockSubtreeValue[b];
+    }
+
+    /**
+     * Returns: the total value of v and of every vertex that the root can only reach through v,
+     * or 0 if v is not an articulation point other than the root.
+     */
+    public long valueBehind(Vertex v) {
+        Integer c = cutIndex.get(v);
+        if (c == null || vertices.get(0).equals(v)) {
+            return 0;
+        }
+        return cutSubtreeValue[c];
+    }
+
+    /**
+     * Returns: the total value of v and its descendants in the depth-first search tree.
+     * Requires: v is reachable from the root.
+     */
+    public long subtreeValue(Vertex v) {
+        Integer i = index.get(v);
+        assert i != null : "v not reachable from root";
+        return subtreeValue[i];
+    }
+
+    /**
+     * Returns: whether the depth-first subtree of v is cut off from the root by v's parent, so
+     * that reaching any of it from the root means entering and leaving through that parent.
+     * Requires: v is reachable from the root.
+     */
+    public boolean isSeparatedFromRoot(Vertex v) {
+        Integer i = index.get(v);
+        assert i != null : "v not reachable from root";
+        return parent[i] >= 0 && low[i] >= parent[i];
+    }
+}
@@ -0,0 +1,67 @@
+package graph;
+
+/**
+ * A weighted directed graph that forwards every operation to another graph and counts the calls
+ * of outgoingEdges and of weight. Shortest-path algorithms ask for the weight of an edge exactly
+ * when they relax it, so the second count is the number of edges relaxed. A call of
+ * forEachOutgoing counts as a call of outgoingEdges plus one weight call per edge visited. Used
+ * to measure how much work an algorithm does.
+ */
+public class CountingDigraph<V, E> implements WeightedDigraph<V, E> {
+
+    /**
+     * The graph that does the work.
+     */
+    private final WeightedDigraph<V, E> graph;
+
+    /**
+     * Number of calls of outgoingEdges and of weight so far.
+     */
+    private long outgoingEdgesCalls, edgesRelaxed;
+
+    /**
+     * Creates: a counting view of graph.
+     */
+    public CountingDigraph(WeightedDigraph<V, E> graph) {
+        this.graph = graph;
+    }
+
+    /**
+     * Returns: the number of calls of outgoingEdges so far.
+     */
+    public long outgoingEdgesCalls() {
+        return outgoingEdgesCalls;
+    }
+
+    /**
+     * Returns: the number of calls of weight so far.
+     */
+    public long edgesRelaxed() {
+        return edgesRelaxed;
+    }
+
+    // The following are all standard graph operations specified in WeightedDigraph.
+
+    @Override
+    public Iterable<E> outgoingEdges(V vertex) {
+        outgoingEdgesCalls++;
+        return graph.outgoingEdges(vertex);
+    }
+    @Override
+    public V source(E edge) { return graph.source(edge); }
+    @Override
+    public V dest(E edge) { return graph.dest(edge); }
+    @Override
+    public double weight(E edge) {
+        edgesRelaxed++;
+        return graph.weight(edge);
+    }
+    @Override
+    public void forEachOutgoing(V vertex, EdgeVisitor<V, E> visitor) {
+        outgoingEdgesCalls++;
+        graph.forEachOutgoing(vertex, (edge, dest, weight) -> {
+            edgesRelaxed++;
+            visitor.visit(edge, dest, weight);
+        });
+    }
+}
@@ -0,0 +1,192 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compact, immutable snapshot of a weighted directed graph in compressed sparse row (CSR)
+ * form. Vertices are numbered 0..n-1 and edges 0..m-1, and the edges leaving vertex v are the
+ * numbers offset(v) to offset(v+1)-1, so graph algorithms can work on int arrays instead of maps
+ * and edge objects. Weights must be integers.
+ * <p>
+ * A CsrGraph is itself a WeightedDigraph whose vertices and edges are their numbers, and it
+ * remembers the original vertex and edge for each number.
+ */
+public class CsrGraph<Vertex, Edge> implements WeightedDigraph<Integer, Integer> {
+
+    /**
+     * The original vertices and edges, by number.
+     */
+    private final List<Vertex> vertices;
+    private final List<Edge> edges;
+
+    /**
+     * The number of each original vertex.
+     */
+    private final Map<Vertex, Integer> index;
+
+    /**
+     * The edges leaving vertex v are numbered offsets[v] to offsets[v+1]-1.
+     */
+    private final int[] offsets;
+
+    /**
+     * The source, destination and weight of each edge, by number.
+     */
+    private final int[] sources, targets, weights;
+
+    /**
+     * Creates: the CSR form of the part of graph on the given vertices. Edges to vertices outside
+     * the collection are left out. Throws IllegalArgumentException if an edge weight is not an
+     * integer.
+     */
+    public CsrGraph(WeightedDigraph<Vertex, Edge> graph, Collection<Vertex> vertices) {
+        this.vertices = new ArrayList<>(vertices);
+        int n = this.vertices.size();
+        index = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            index.put(this.vertices.get(i), i);
+        }
+
+        edges = new ArrayList<>();
+        List<Integer> dest = new ArrayList<>();
+        offsets = new int[n + 1];
+        for (int v = 0; v < n; v++) {
+            offsets[v] = edges.size();
+            for (Edge e : graph.outgoingEdges(this.vertices.get(v))) {
+                Integer d = index.get(graph.dest(e));
+                if (d != null) {
+                    edges.add(e);
+                    dest.add(d);
+                }
+            }
+        }
+        int m = edges.size();
+        offsets[n] = m;
+
+        sources = new int[m];
+        targets = new int[m];
+        weights = new int[m];
+        for (int v = 0; v < n; v++) {
+            for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+                double w = graph.weight(edges.get(e));
+                if (w != (int) w) {
+                    throw new IllegalArgumentException("edge weight is not an integer: " + w);
+                }
+                sources[e] = v;
+                targets[e] = dest.get(e);
+                weights[e] = (int) w;
+            }
+        }
+    }
+
+    /**
+     * Returns: the number of vertices.
+     */
+    public int vertexCount() {
+        return vertices.size();
+    }
+
+    /**
+     * Returns: the number of edges.
+     */
+    public int edgeCount() {
+        return edges.size();
+    }
+
+    /**
+     * Returns: the number of vertex v, or -1 if v is not in this graph.
+     */
+    public int indexOf(Vertex v) {
+        Integer i = index.get(v);
+        return i == null ? -1 : i;
+    }
+
+    /**
+     * Returns: the original vertex numbered i.
+     */
+    public Vertex vertex(int i) {
+        return vertices.get(i);
+    }
+
+    /**
+     * Returns: the original edge numbered e.
+     */
+    public Edge edge(int e) {
+        return edges.get(e);
+    }
+
+    /**
+     * Returns: the original vertices, in order of their numbers.
+     */
+    public List<Vertex> vertices() {
+        return Collections.unmodifiableList(vertices);
+    }
+
+    /**
+     * Returns: the number of the first edge leaving vertex v. The edges leaving v are numbered
+     * offset(v) to offset(v+1)-1.
+     */
+    public int offset(int v) {
+        return offsets[v];
+    }
+
+    /**
+     * Returns: the number of the destination of edge e.
+     */
+    public int target(int e) {
+        return targets[e];
+    }
+
+    /**
+     * Returns: the weight of edge e.
+     */
+    public int intWeight(int e) {
+        return weights[e];
+    }
+
+    /**
+     * An action performed on each outgoing edge of a vertex by forEachOut, given as numbers.
+     */
+    @FunctionalInterface
+    public interface IntEdgeVisitor {
+        /** Visit edge number edge, which goes to vertex number dest and has weight weight. */
+        void visit(int edge, int dest, int weight);
+    }
+
+    /**
+     * Effect: calls visitor on every edge leaving vertex number v, in order of edge number.
+     */
+    public void forEachOut(int v, IntEdgeVisitor visitor) {
+        for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+            visitor.visit(e, targets[e], weights[e]);
+        }
+    }
+
+    // The following are all standard graph operations specified in WeightedDigraph.
+
+    @Override
+    public Iterable<Integer> outgoingEdges(Integer vertex) {
+        List<Integer> out = new ArrayList<>(offsets[vertex + 1] - offsets[vertex]);
+        for (int e = offsets[vertex]; e < offsets[vertex + 1]; e++) {
+            out.add(e);
+        }
+        return out;
+    }
+    @Override
+    public Integer source(Integer edge) { return sources[edge]; }
+    @Override
+    public Integer dest(Integer edge) { return targets[edge]; }
+    @Override
+    public double weight(Integer edge) { return weights[edge]; }
+    @Override
+    public void forEachOutgoing(Integer vertex, EdgeVisitor<Integer, Integer> visitor) {
+        for (int e = offsets[vertex]; e < offsets[vertex + 1]; e++) {
+            visitor.visit(e, targets[e], weights[e]);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package graph;
+
+/**
+ * An action performed on each outgoing edge of a vertex by WeightedDigraph.forEachOutgoing.
+ * It receives the edge's destination and weight along with the edge, so that the caller does
+ * not have to ask the graph for them.
+ * @param <V> the type of vertices
+ * @param <E> the type of edges
+ */
+@FunctionalInterface
+public interface EdgeVisitor<V, E> {
+    /** Visit edge, which goes to dest and has weight weight. */
+    void visit(E edge, V dest, double weight);
+}
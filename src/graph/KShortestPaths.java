@@ -0,0 +1,198 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Enumerates the loopless paths from a source vertex to a target vertex of a weighted, directed
+ * graph with nonnegative weights, in order of increasing total weight (Yen's algorithm). Paths
+ * are produced lazily: each call to next() does only the work needed to find one more path, so a
+ * caller that only needs the first few paths pays only for those.
+ * <p>
+ * The first path is found with ShortestPaths. Each later path is the cheapest "spur" that
+ * leaves some earlier path at one of its vertices and avoids every edge already used by an
+ * earlier path with the same prefix; spurs are also found with ShortestPaths, run over a view of
+ * the graph with those edges and the prefix's vertices removed.
+ */
+public class KShortestPaths<Vertex, Edge> implements Iterator<KShortestPaths.WeightedPath<Edge>> {
+
+    /**
+     * A path, represented as a list of edges, together with its total weight.
+     */
+    public record WeightedPath<Edge>(List<Edge> edges, double weight) {}
+
+    /**
+     * The model for treating types Vertex and Edge as forming a weighted directed graph.
+     */
+    private final WeightedDigraph<Vertex, Edge> graph;
+
+    /**
+     * The endpoints of every path.
+     */
+    private final Vertex source, target;
+
+    /**
+     * The paths returned so far, in order.
+     */
+    private final List<WeightedPath<Edge>> found;
+
+    /**
+     * Candidate paths not yet returned, cheapest first.
+     */
+    private final PriorityQueue<WeightedPath<Edge>> candidates;
+
+    /**
+     * The edge lists of all paths ever added to candidates, to avoid duplicates.
+     */
+    private final Set<List<Edge>> seen;
+
+    /**
+     * True iff the spurs of the last path returned have not yet been added to candidates.
+     */
+    private boolean spursPending;
+
+    /**
+     * Creates: an enumeration of the loopless paths from source to target in graph.
+     *
+     * @param graph The model that supplies all graph operations.
+     */
+    public KShortestPaths(WeightedDigraph<Vertex, Edge> graph, Vertex source, Vertex target) {
+        this.graph = graph;
+        this.source = source;
+        this.target = target;
+        found = new ArrayList<>();
+        candidates = new PriorityQueue<>(Comparator.comparingDouble(WeightedPath::weight));
+        seen = new HashSet<>();
+
+        ShortestPaths<Vertex, Edge> ssp = new ShortestPaths<>(graph);
+        ssp.singleSourceDistances(source);
+        if (ssp.isReachable(target)) {
+            List<Edge> first = source.equals(target) ? List.of() : ssp.bestPath(target);
+            offer(first);
+        }
+    }
+
+    /**
+     * Returns: whether there is another loopless path from source to target.
+     */
+    @Override
+    public boolean hasNext() {
+        if (spursPending) {
+            addSpurs(found.get(found.size() - 1));
+            spursPending = false;
+        }
+        return !candidates.isEmpty();
+    }
+
+    /**
+     * Returns: the next cheapest loopless path from source to target. Paths of equal weight are
+     * returned in no particular order.
+     * Throws NoSuchElementException if every such path has already been returned.
+     */
+    @Override
+    public WeightedPath<Edge> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        WeightedPath<Edge> path = candidates.poll();
+        found.add(path);
+        // The spurs of this path are only needed to find the path after it, so they are
+        // computed by the next call to hasNext() rather than now.
+        spursPending = true;
+        return path;
+    }
+
+    /**
+     * Returns: up to k of the cheapest loopless paths from source to target, cheapest first.
+     */
+    public static <V, E> List<WeightedPath<E>> firstK(WeightedDigraph<V, E> graph,
+            V source, V target, int k) {
+        KShortestPaths<V, E> paths = new KShortestPaths<>(graph, source, target);
+        List<WeightedPath<E>> result = new ArrayList<>();
+        while (result.size() < k && paths.hasNext()) {
+            result.add(paths.next());
+        }
+        return result;
+    }
+
+    /**
+     * Effect: adds to candidates every spur path that deviates from path.
+     */
+    private void addSpurs(WeightedPath<Edge> path) {
+        List<Edge> edges = path.edges();
+        Set<Vertex> bannedVertices = new HashSet<>();
+        Vertex spur = source;
+        for (int i = 0; i < edges.size(); i++) {
+            List<Edge> root = edges.subList(0, i);
+            Set<Edge> bannedEdges = new HashSet<>();
+            for (WeightedPath<Edge> p : found) {
+                List<Edge> pe = p.edges();
+                if (pe.size() > i && pe.subList(0, i).equals(root)) {
+                    bannedEdges.add(pe.get(i));
+                }
+            }
+
+            ShortestPaths<Vertex, Edge> ssp =
+                    new ShortestPaths<>(new Restricted(bannedVertices, bannedEdges));
+            ssp.singleSourceDistances(spur);
+            if (ssp.isReachable(target)) {
+                List<Edge> candidate = new ArrayList<>(root);
+                candidate.addAll(ssp.bestPath(target));
+                offer(candidate);
+            }
+
+            bannedVertices.add(spur);
+            spur = graph.dest(edges.get(i));
+        }
+    }
+
+    /**
+     * Effect: adds the path with the given edges to candidates unless it was added before.
+     */
+    private void offer(List<Edge> edges) {
+        List<Edge> path = Collections.unmodifiableList(edges);
+        if (seen.add(path)) {
+            double weight = 0;
+            for (Edge e : edges) {
+                weight += graph.weight(e);
+            }
+            candidates.add(new WeightedPath<>(path, weight));
+        }
+    }
+
+    /**
+     * The graph with some vertices and edges removed.
+     */
+    private class Restricted implements WeightedDigraph<Vertex, Edge> {
+        private final Set<Vertex> bannedVertices;
+        private final Set<Edge> bannedEdges;
+
+        Restricted(Set<Vertex> bannedVertices, Set<Edge> bannedEdges) {
+            this.bannedVertices = bannedVertices;
+            this.bannedEdges = bannedEdges;
+        }
+
+        public Iterable<Edge> outgoingEdges(Vertex vertex) {
+            List<Edge> result = new ArrayList<>();
+            if (bannedVertices.contains(vertex)) {
+                return result;
+            }
+            for (Edge e : graph.outgoingEdges(vertex)) {
+                if (!bannedEdges.contains(e) && !bannedVertices.contains(graph.dest(e))) {
+                    result.add(e);
+                }
+            }
+            return result;
+        }
+        public Vertex source(Edge edge) { return graph.source(edge); }
+        public Vertex dest(Edge edge) { return graph.dest(edge); }
+        public double weight(Edge edge) { return graph.weight(edge); }
+    }
+}
@@ -0,0 +1,104 @@
+package graph;
+
+import java.util.Arrays;
+
+/**
+ * Breadth-first search from many sources at once over a CsrGraph, counting hops (edges) and
+ * ignoring weights. It is meant for graphs whose edges all have the same weight, such as seek
+ * sewers, where hop counts times that weight are distances.
+ * <p>
+ * The sources are processed in batches of 64. Each vertex holds one long per batch in which bit
+ * i says whether source i has reached it, and one step of all 64 searches is a single scan of
+ * the graph that ORs each frontier vertex's bits into its neighbors. Searches that are at the
+ * same vertex at the same time share the scan, so a batch costs little more than one search
+ * (bit-parallel multi-source BFS).
+ */
+public class MultiSourceBfs {
+
+    /**
+     * The number of searches in a batch: the bits in a long.
+     */
+    static final int BATCH = Long.SIZE;
+
+    /**
+     * The graph to search.
+     */
+    private final CsrGraph<?, ?> graph;
+
+    /**
+     * Creates: a multi-source BFS engine for graph.
+     */
+    public MultiSourceBfs(CsrGraph<?, ?> graph) {
+        this.graph = graph;
+    }
+
+    /**
+     * Returns: an array whose element i gives the number of edges on a shortest path from vertex
+     * number sources[i] to each vertex number v, or -1 if v is not reachable from it.
+     */
+    public int[][] hops(int[] sources) {
+        int n = graph.vertexCount();
+        int[][] result = new int[sources.length][];
+        long[] seen = new long[n];
+        long[] visit = new long[n];
+        long[] next = new long[n];
+        for (int start = 0; start < sources.length; start += BATCH) {
+            int count = Math.min(BATCH, sources.length - start);
+            Arrays.fill(seen, 0);
+            Arrays.fill(visit, 0);
+            for (int i = 0; i < count; i++) {
+                int[] dist = new int[n];
+                Arrays.fill(dist, -1);
+                result[start + i] = dist;
+                int s = sources[start + i];
+                seen[s] |= 1L << i;
+                visit[s] |= 1L << i;
+                dist[s] = 0;
+            }
+            for (int level = 1; ; level++) {
+                boolean any = false;
+                for (int v = 0; v < n; v++) {
+                    long bits = visit[v];
+                    if (bits == 0) {
+                        continue;
+                    }
+                    for (int e = graph.offset(v); e < graph.offset(v + 1); e++) {
+                        next[graph.target(e)] |= bits;
+                    }
+                }
+                for (int v = 0; v < n; v++) {
+                    long fresh = next[v] & ~seen[v];
+                    next[v] = 0;
+                    visit[v] = fresh;
+                    if (fresh == 0) {
+                        continue;
+                    }
+                    any = true;
+                    seen[v] |= fresh;
+                    while (fresh != 0) {
+                        int i = Long.numberOfTrailingZeros(fresh);
+                        result[start + i][v] = level;
+                        fresh &= fresh - 1;
+                    }
+                }
+                if (!any) {
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns: the number of edges on a shortest path from every vertex to every vertex:
+     * element [u][v] is the count from vertex number u to vertex number v, or -1 if there is no
+     * path.
+     */
+    public int[][] allHops() {
+        int[] sources = new int[graph.vertexCount()];
+        for (int i = 0; i < sources.length; i++) {
+            sources[i] = i;
+        }
+        return hops(sources);
+    }
+}
@@ -0,0 +1,143 @@
+package graph;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * A bounded cache of shortest-path results over a weighted, directed graph with nonnegative
+ * weights. Distances and best paths are asked for by (source, target); the first query from a
+ * source runs Dijkstra's algorithm from it, and the result answers every later query from that
+ * source for any target. At most capacity sources are kept, and when another is needed the one
+ * used least recently is evicted.
+ * <p>
+ * Like ShortestPaths, a PathCache may break ties between shortest paths by a value on vertices.
+ * <p>
+ * A PathCache may be used by several threads at once. Two threads that miss on the same source
+ * at the same time may both compute its paths; one of the results is kept.
+ * <p>
+ * The graph must not change while it is cached.
+ */
+public class PathCache<Vertex, Edge> {
+
+    /**
+     * The model for treating types Vertex and Edge as forming a weighted directed graph.
+     */
+    private final WeightedDigraph<Vertex, Edge> graph;
+
+    /**
+     * The value used to break ties between shortest paths, or null if ties are not broken.
+     */
+    private final ToDoubleFunction<Vertex> tieValue;
+
+    /**
+     * The computed shortest paths from each cached source, least recently used first.
+     * Guarded by this.
+     */
+    private final LinkedHashMap<Vertex, ShortestPaths<Vertex, Edge>> cache;
+
+    /**
+     * The number of queries answered from the cache and the number that had to run Dijkstra's
+     * algorithm. Guarded by this.
+     */
+    private long hits, misses;
+
+    /**
+     * Creates: an empty cache of shortest paths in graph that keeps the paths from at most
+     * capacity sources. Requires: capacity > 0.
+     */
+    public PathCache(WeightedDigraph<Vertex, Edge> graph, int capacity) {
+        this(graph, null, capacity);
+    }
+
+    /**
+     * Creates: an empty cache of shortest paths in graph that keeps the paths from at most
+     * capacity sources and, among shortest paths, picks one with the greatest total tieValue
+     * over its vertices after the source, as ShortestPaths does.
+     * Requires: capacity > 0, and if tieValue is not null, all weights of graph are positive.
+     */
+    public PathCache(WeightedDigraph<Vertex, Edge> graph, ToDoubleFunction<Vertex> tieValue,
+            int capacity) {
+        assert capacity > 0;
+        this.graph = graph;
+        this.tieValue = tieValue;
+        cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(
+                    Map.Entry<Vertex, ShortestPaths<Vertex, Edge>> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Returns: the shortest paths from source, computing them if they are not cached.
+     */
+    private ShortestPaths<Vertex, Edge> from(Vertex source) {
+        synchronized (this) {
+            ShortestPaths<Vertex, Edge> paths = cache.get(source);
+            if (paths != null) {
+                hits++;
+                return paths;
+            }
+            misses++;
+        }
+        ShortestPaths<Vertex, Edge> paths = new ShortestPaths<>(graph, tieValue);
+        paths.singleSourceDistances(source);
+        synchronized (this) {
+            cache.put(source, paths);
+        }
+        return paths;
+    }
+
+    /**
+     * Returns: whether target is reachable from source.
+     */
+    public boolean isReachable(Vertex source, Vertex target) {
+        return from(source).isReachable(target);
+    }
+
+    /**
+     * Returns: the distance from source to target. Requires: target is reachable from source.
+     */
+    public double distance(Vertex source, Vertex target) {
+        return from(source).getDistance(target);
+    }
+
+    /**
+     * Returns: a shortest path from source to target, as a list of edges. Requires: target is
+     * reachable from source.
+     */
+    public List<Edge> path(Vertex source, Vertex target) {
+        return from(source).bestPath(target);
+    }
+
+    /**
+     * Returns: the number of queries answered from the cache so far.
+     */
+    public synchronized long hits() {
+        return hits;
+    }
+
+    /**
+     * Returns: the number of queries so far that were not answered from the cache.
+     */
+    public synchronized long misses() {
+        return misses;
+    }
+
+    /**
+     * Returns: the number of sources whose paths are cached.
+     */
+    public synchronized int size() {
+        return cache.size();
+    }
+
+    /**
+     * Effect: empties the cache. The hit and miss counts are kept.
+     */
+    public synchronized void clear() {
+        cache.clear();
+    }
+}
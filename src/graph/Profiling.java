@@ -0,0 +1,150 @@
+package graph;
+
+import datastructures.CountingPQueue;
+import datastructures.PQueue;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Optional counting of the work done by the graph algorithms, for comparing them on the same
+ * inputs. Profiling is turned on by running the JVM with {@code -Dgraph.profile=true}. When it is
+ * off, graph() and queue() return their arguments unchanged, so the algorithms run exactly as
+ * they would without it.
+ * <p>
+ * When it is on, every graph and priority queue passed through graph() and queue() is wrapped
+ * in a counting decorator that also adds each operation to counters kept here, and summary()
+ * reports those counters. The decorators themselves are not kept, so a queue (and the vertices
+ * it holds) can be collected as soon as the algorithm that used it is done.
+ */
+public final class Profiling {
+
+    /**
+     * Whether profiling is on.
+     */
+    public static final boolean ENABLED = Boolean.getBoolean("graph.profile");
+
+    /**
+     * The work counted since the last reset: decorators created, and the operations on them.
+     */
+    private static final LongAdder graphs = new LongAdder();
+    private static final LongAdder outgoing = new LongAdder();
+    private static final LongAdder relaxed = new LongAdder();
+    private static final LongAdder queues = new LongAdder();
+    private static final LongAdder adds = new LongAdder();
+    private static final LongAdder extracts = new LongAdder();
+    private static final LongAdder changes = new LongAdder();
+
+    /**
+     * The largest size any queue has reached since the last reset.
+     */
+    private static final LongAccumulator maxSize = new LongAccumulator(Math::max, 0);
+
+    private Profiling() {}
+
+    /**
+     * Returns: graph, wrapped in a CountingDigraph if profiling is on.
+     */
+    public static <V, E> WeightedDigraph<V, E> graph(WeightedDigraph<V, E> graph) {
+        if (!ENABLED) {
+            return graph;
+        }
+        graphs.increment();
+        return new ProfiledDigraph<>(graph);
+    }
+
+    /**
+     * Returns: queue, wrapped in a CountingPQueue if profiling is on.
+     */
+    public static <E> PQueue<E> queue(PQueue<E> queue) {
+        if (!ENABLED) {
+            return queue;
+        }
+        queues.increment();
+        maxSize.accumulate(queue.size());
+        return new ProfiledPQueue<>(queue);
+    }
+
+    /**
+     * Effect: forgets all counts so far.
+     */
+    public static void reset() {
+        graphs.reset();
+        outgoing.reset();
+        relaxed.reset();
+        queues.reset();
+        adds.reset();
+        extracts.reset();
+        changes.reset();
+        maxSize.reset();
+    }
+
+    /**
+     * Returns: a one-line summary of the work counted since the last reset.
+     */
+    public static String summary() {
+        return graphs.sum() + " graphs, " + outgoing.sum() + " outgoingEdges, " + relaxed.sum()
+                + " edges relaxed; " + queues.sum() + " queues, " + adds.sum() + " adds, "
+                + extracts.sum() + " extractMins, " + changes.sum() + " changePriority, max size "
+                + maxSize.get();
+    }
+
+    /**
+     * A CountingDigraph that also adds its counts to the counters of Profiling.
+     */
+    private static final class ProfiledDigraph<V, E> extends CountingDigraph<V, E> {
+
+        ProfiledDigraph(WeightedDigraph<V, E> graph) {
+            super(graph);
+        }
+
+        @Override
+        public Iterable<E> outgoingEdges(V vertex) {
+            outgoing.increment();
+            return super.outgoingEdges(vertex);
+        }
+
+        @Override
+        public double weight(E edge) {
+            relaxed.increment();
+            return super.weight(edge);
+        }
+
+        @Override
+        public void forEachOutgoing(V vertex, EdgeVisitor<V, E> visitor) {
+            outgoing.increment();
+            super.forEachOutgoing(vertex, (edge, dest, weight) -> {
+                relaxed.increment();
+                visitor.visit(edge, dest, weight);
+            });
+        }
+    }
+
+    /**
+     * A CountingPQueue that also adds its counts to the counters of Profiling.
+     */
+    private static final class ProfiledPQueue<E> extends CountingPQueue<E> {
+
+        ProfiledPQueue(PQueue<E> queue) {
+            super(queue);
+        }
+
+        @Override
+        public void add(E e, double priority) throws IllegalArgumentException {
+            super.add(e, priority);
+            adds.increment();
+            maxSize.accumulate(size());
+        }
+
+        @Override
+        public E extractMin() {
+            extracts.increment();
+            return super.extractMin();
+        }
+
+        @Override
+        public void changePriority(E e, double p) {
+            changes.increment();
+            super.changePriority(e, p);
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package graph;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * A smaller graph with the same shortest-path distances between terminal vertices as an
+ * undirected graph it was reduced from. Two reductions are applied to the original graph:
+ * <ol>
+ *     <li>Dead ends are trimmed: a vertex that is not a terminal and has at most one neighbor is
+ *     removed, repeatedly, so whole trees of corridors without terminals disappear.</li>
+ *     <li>Corridors are contracted: every maximal chain of non-terminal vertices with exactly
+ *     two neighbors becomes a single super-edge between the vertices at its ends, whose weight
+ *     is the sum of the weights of the chain's edges.</li>
+ * </ol>
+ * Each super-edge remembers the original edges it replaces, so a path in the reduced graph can
+ * be expanded back to a path in the original graph. When two super-edges join the same pair of
+ * vertices, only the lightest is kept, since the chains carry no terminals. Components that
+ * contain no terminal are dropped.
+ * <p>
+ * The original graph is given as a WeightedDigraph in which every edge has a reverse edge of the
+ * same weight, as in the sewer Maze. The reduced graph has the same property.
+ */
+public class ReducedGraph<Vertex, Edge>
+        implements WeightedDigraph<Vertex, ReducedGraph.SuperEdge<Vertex, Edge>> {
+
+    /**
+     * An edge of the reduced graph: a path in the original graph from source to dest, with
+     * total weight weight, whose inner vertices all have been contracted away.
+     */
+    public record SuperEdge<Vertex, Edge>(Vertex source, Vertex dest, double weight,
+                                          List<Edge> edges) {}
+
+    /**
+     * The outgoing super-edges of each vertex of the reduced graph.
+     */
+    private final Map<Vertex, List<SuperEdge<Vertex, Edge>>> outgoing;
+
+    /**
+     * The number of vertices of the original graph.
+     */
+    private final int originalSize;
+
+    /**
+     * Creates: the reduction of the part of graph on the given vertices, keeping every vertex for
+     * which isTerminal is true.
+     * Requires: vertices contains every vertex adjacent to one of them, and every edge of graph
+     * has a reverse edge of the same weight.
+     */
+    public ReducedGraph(WeightedDigraph<Vertex, Edge> graph, Collection<Vertex> vertices,
+            Predicate<Vertex> isTerminal) {
+        originalSize = vertices.size();
+
+        // Neighbors of each remaining vertex. A LinkedHashMap keeps edge order deterministic.
+        Map<Vertex, Map<Vertex, Edge>> adj = new HashMap<>();
+        for (Vertex v : vertices) {
+            Map<Vertex, Edge> nbrs = new LinkedHashMap<>();
+            for (Edge e : graph.outgoingEdges(v)) {
+                Vertex w = graph.dest(e);
+                if (w.equals(v)) {
+                    continue;
+                }
+                Edge old = nbrs.get(w);
+                if (old == null || graph.weight(e) < graph.weight(old)) {
+                    nbrs.put(w, e);
+                }
+            }
+            adj.put(v, nbrs);
+        }
+
+        trimDeadEnds(adj, isTerminal);
+        dropComponentsWithoutTerminals(adj, isTerminal);
+
+        outgoing = new LinkedHashMap<>();
+        for (Vertex v : adj.keySet()) {
+            if (isKept(v, adj, isTerminal)) {
+                outgoing.put(v, new ArrayList<>());
+            }
+        }
+        for (Vertex u : outgoing.keySet()) {
+            Map<Vertex, SuperEdge<Vertex, Edge>> best = new LinkedHashMap<>();
+            for (Edge first : adj.get(u).values()) {
+                SuperEdge<Vertex, Edge> se = walkChain(graph, u, first, adj);
+                if (se.dest().equals(u)) {
+                    continue; // a loop through coinless corridors is never useful
+                }
+                SuperEdge<Vertex, Edge> old = best.get(se.dest());
+                if (old == null || se.weight() < old.weight()) {
+                    best.put(se.dest(), se);
+                }
+            }
+            outgoing.get(u).addAll(best.values());
+        }
+    }
+
+    /**
+     * Effect: repeatedly removes from adj every non-terminal vertex with at most one neighbor.
+     */
+    private static <V, E> void trimDeadEnds(Map<V, Map<V, E>> adj, Predicate<V> isTerminal) {
+        Deque<V> queue = new ArrayDeque<>();
+        for (Map.Entry<V, Map<V, E>> entry : adj.entrySet()) {
+            if (entry.getValue().size() <= 1 && !isTerminal.test(entry.getKey())) {
+                queue.add(entry.getKey());
+            }
+        }
+        while (!queue.isEmpty()) {
+            V v = queue.remove();
+            Map<V, E> nbrs = adj.remove(v);
+            if (nbrs == null) {
+                continue;
+            }
+            for (V w : nbrs.keySet()) {
+                Map<V, E> wn = adj.get(w);
+                if (wn == null) {
+                    continue;
+                }
+                wn.remove(v);
+                if (wn.size() <= 1 && !isTerminal.test(w)) {
+                    queue.add(w);
+                }
+            }
+        }
+    }
+
+    /**
+     * Effect: removes from adj every connected component that contains no terminal.
+     */
+    private static <V, E> void dropComponentsWithoutTerminals(Map<V, Map<V, E>> adj,
+            Predicate<V> isTerminal) {
+        Set<V> reached = new HashSet<>();
+        Deque<V> queue = new ArrayDeque<>();
+        for (V v : adj.keySet()) {
+            if (isTerminal.test(v) && reached.add(v)) {
+                queue.add(v);
+            }
+        }
+        while (!queue.isEmpty()) {
+            for (V w : adj.get(queue.remove()).keySet()) {
+                if (reached.add(w)) {
+                    queue.add(w);
+                }
+            }
+        }
+        adj.keySet().retainAll(reached);
+    }
+
+    /**
+     * Returns: whether v remains a vertex of the reduced graph: it is a terminal or does not have
+     * exactly two neighbors.
+     */
+    private static <V, E> boolean isKept(V v, Map<V, Map<V, E>> adj, Predicate<V> isTerminal) {
+        return isTerminal.test(v) || adj.get(v).size() != 2;
+    }
+
+    /**
+     * Returns: the super-edge that starts at kept vertex u with edge first and follows the chain
+     * of contracted vertices to the next kept vertex.
+     */
+    private SuperEdge<Vertex, Edge> walkChain(WeightedDigraph<Vertex, Edge> graph, Vertex u,
+            Edge first, Map<Vertex, Map<Vertex, Edge>> adj) {
+        List<Edge> edges = new ArrayList<>();
+        double weight = 0;
+        Vertex prev = u;
+        Edge e = first;
+        while (true) {
+            edges.add(e);
+            weight += graph.weight(e);
+            Vertex v = graph.dest(e);
+            if (outgoing.containsKey(v)) {
+                return new SuperEdge<>(u, v, weight, Collections.unmodifiableList(edges));
+            }
+            Edge next = null;
+            for (Map.Entry<Vertex, Edge> entry : adj.get(v).entrySet()) {
+                if (!entry.getKey().equals(prev)) {
+                    next = entry.getValue();
+                }
+            }
+            prev = v;
+            e = next;
+        }
+    }
+
+    /**
+     * Returns: the vertices of the reduced graph.
+     */
+    public Set<Vertex> vertices() {
+        return Collections.unmodifiableSet(outgoing.keySet());
+    }
+
+    /**
+     * Returns: whether v is a vertex of the reduced graph.
+     */
+    public boolean contains(Vertex v) {
+        return outgoing.containsKey(v);
+    }
+
+    /**
+     * Returns: the number of vertices of the graph that was reduced.
+     */
+    public int originalSize() {
+        return originalSize;
+    }
+
+    /**
+     * Returns: the path in the original graph that the given path in the reduced graph stands
+     * for, as a list of original edges.
+     */
+    public static <V, E> List<E> expand(List<SuperEdge<V, E>> path) {
+        List<E> result = new ArrayList<>();
+        for (SuperEdge<V, E> se : path) {
+            result.addAll(se.edges());
+        }
+        return result;
+    }
+
+    // The following are all standard graph operations specified in WeightedDigraph.
+
+    @Override
+    public Iterable<SuperEdge<Vertex, Edge>> outgoingEdges(Vertex vertex) {
+        List<SuperEdge<Vertex, Edge>> edges = outgoing.get(vertex);
+        return edges == null ? List.of() : Collections.unmodifiableList(edges);
+    }
+    @Override
+    public Vertex source(SuperEdge<Vertex, Edge> edge) { return edge.source(); }
+    @Override
+    public Vertex dest(SuperEdge<Vertex, Edge> edge) { return edge.dest(); }
+    @Override
+    public double weight(SuperEdge<Vertex, Edge> edge) { return edge.weight(); }
+}
@@ -1,11 +1,13 @@
 package graph;
 
 import datastructures.PQueue;
-import datastructures.SlowPQueue;
+import datastructures.HeapPQueue;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.function.ToDoubleFunction;
 
 /**
  * This object computes and remembers shortest paths through a weighted, directed graph with
@@ -13,6 +15,12 @@ import java.util.Map;
  * querying the distance to arbitrary vertices and the best paths to arbitrary destination
  * vertices.
  * <p>
+ * Optionally, ties between shortest paths can be broken by a value on vertices: among all
+ * shortest paths to a vertex, the best path is then one whose vertices after the source have the
+ * greatest total value. After Dijkstra's algorithm, one more pass over the edges in the order the
+ * vertices were settled finds these paths in the DAG of edges that lie on shortest paths. This
+ * requires all weights to be positive.
+ * <p>
  * Types Vertex and Edge are parameters, so their operations are supplied by a model object supplied
  * to the constructor.
  */
@@ -33,13 +41,55 @@ public class ShortestPaths<Vertex, Edge> {
      */
     private Map<Vertex, Edge> bestEdges;
 
+    /**
+     * While singleSourceDistances runs: the vertices whose distance is not yet final, and the
+     * distance of the vertex whose edges are being relaxed.
+     */
+    private PQueue<Vertex> frontier;
+    private double currentDistance;
+
+    /**
+     * Relaxes one edge; passed to forEachOutgoing, so one instance is reused for every vertex.
+     */
+    private final EdgeVisitor<Vertex, Edge> relaxer = this::relax;
+
+    /**
+     * The value used to break ties between shortest paths, or null if ties are not broken.
+     */
+    private final ToDoubleFunction<Vertex> tieValue;
+
+    /**
+     * If tieValue is not null: the total value of the vertices after the source on the best path
+     * to each vertex, and, during the tie-breaking pass, that total for the vertex being scanned.
+     */
+    private Map<Vertex, Double> pathValues;
+    private double currentValue;
+
+    /**
+     * Updates pathValues and bestEdges across one edge; passed to forEachOutgoing.
+     */
+    private final EdgeVisitor<Vertex, Edge> tieBreaker = this::breakTie;
+
     /**
      * Creates: a single-source shortest-path finder for a weighted graph.
      *
      * @param graph The model that supplies all graph operations.
      */
     public ShortestPaths(WeightedDigraph<Vertex, Edge> graph) {
-        this.graph = graph;
+        this(graph, null);
+    }
+
+    /**
+     * Creates: a single-source shortest-path finder for a weighted graph that, among shortest
+     * paths, picks one with the greatest total tieValue over its vertices after the source.
+     * Requires: all weights of graph are positive.
+     *
+     * @param graph The model that supplies all graph operations.
+     * @param tieValue The value of each vertex, or null to break ties arbitrarily.
+     */
+    public ShortestPaths(WeightedDigraph<Vertex, Edge> graph, ToDoubleFunction<Vertex> tieValue) {
+        this.graph = Profiling.graph(graph);
+        this.tieValue = tieValue;
     }
 
     /**
@@ -48,32 +98,89 @@ public class ShortestPaths<Vertex, Edge> {
      */
     public void singleSourceDistances(Vertex source) {
         // Implementation constraint: use Dijkstra's single-source shortest paths algorithm.
-        PQueue<Vertex> frontier = new SlowPQueue<>();
+        frontier = Profiling.queue(new HeapPQueue<>());
         distances = new HashMap<>();
         bestEdges = new HashMap<>();
         distances.put(source, 0.0);
         frontier.add(source, 0.0);
+        List<Vertex> settled = tieValue == null ? null : new ArrayList<>();
 
         while (!frontier.isEmpty()) {
             Vertex current = frontier.extractMin();
-            for (Edge edge : graph.outgoingEdges(current)) {
-                Vertex neighbor = graph.dest(edge);
-                double newDistance = distances.get(current) + graph.weight(edge);
-
-                if (!distances.containsKey(neighbor)){
-                    distances.put(neighbor, newDistance);
-                    bestEdges.put(neighbor, edge);
-                    frontier.add(neighbor, newDistance);
-                }else if(newDistance < distances.get(neighbor)) {
-                    distances.put(neighbor, newDistance);
-                    bestEdges.put(neighbor, edge);
-                    frontier.changePriority(neighbor,newDistance);
-
-                }
+            if (settled != null) {
+                settled.add(current);
             }
+            currentDistance = distances.get(current);
+            graph.forEachOutgoing(current, relaxer);
+        }
+        frontier = null;
+        if (settled != null) {
+            breakTies(settled);
         }
     }
 
+    /**
+     * Effect: makes bestEdges pick, for every vertex, the shortest path with the greatest total
+     * value, and records that value in pathValues.
+     * Requires: settled lists the reachable vertices in the order Dijkstra's algorithm settled
+     * them, starting with the source. With positive weights, every edge on a shortest path to a
+     * vertex leaves a vertex settled earlier, so one pass in this order is a DP over the DAG.
+     */
+    private void breakTies(List<Vertex> settled) {
+        pathValues = new HashMap<>();
+        pathValues.put(settled.get(0), 0.0);
+        for (Vertex v : settled) {
+            currentDistance = distances.get(v);
+            currentValue = pathValues.get(v);
+            graph.forEachOutgoing(v, tieBreaker);
+        }
+    }
+
+    /**
+     * Effect: if edge, which leads from the vertex being scanned to neighbor and has the given
+     * weight, lies on a shortest path and gives neighbor a path of greater value, makes it
+     * neighbor's best edge.
+     */
+    private void breakTie(Edge edge, Vertex neighbor, double weight) {
+        assert weight > 0 : "tie-breaking requires positive weights";
+        if (currentDistance + weight != distances.get(neighbor)) {
+            return;
+        }
+        double value = currentValue + tieValue.applyAsDouble(neighbor);
+        Double old = pathValues.get(neighbor);
+        if (old == null || value > old) {
+            pathValues.put(neighbor, value);
+            bestEdges.put(neighbor, edge);
+        }
+    }
+
+    /**
+     * Effect: relaxes edge, which leads from the vertex being scanned to neighbor and has the
+     * given weight.
+     */
+    private void relax(Edge edge, Vertex neighbor, double weight) {
+        double newDistance = currentDistance + weight;
+        Double old = distances.get(neighbor);
+        if (old == null) {
+            distances.put(neighbor, newDistance);
+            bestEdges.put(neighbor, edge);
+            frontier.add(neighbor, newDistance);
+        } else if (newDistance < old) {
+            distances.put(neighbor, newDistance);
+            bestEdges.put(neighbor, edge);
+            frontier.changePriority(neighbor, newDistance);
+        }
+    }
+
+    /**
+     * Returns: whether vertex v is reachable from the source vertex. Requires: distances have been
+     * computed from a source vertex.
+     */
+    public boolean isReachable(Vertex v) {
+        assert distances != null : "Must run singleSourceDistances() first";
+        return distances.containsKey(v);
+    }
+
     /**
      * Returns: the distance from the source vertex to the given vertex. Requires: distances have
      * been computed from a source vertex, and vertex v is reachable from that vertex.
@@ -85,6 +192,18 @@ public class ShortestPaths<Vertex, Edge> {
         return d;
     }
 
+    /**
+     * Returns: the total tie-breaking value of the vertices after the source on the best path to
+     * v. Requires: this finder breaks ties, distances have been computed from a source vertex,
+     * and v is reachable from that vertex.
+     */
+    public double getPathValue(Vertex v) {
+        assert pathValues != null : "ties are not broken";
+        Double value = pathValues.get(v);
+        assert value != null : "v not reachable from source";
+        return value;
+    }
+
     /**
      * Returns: the best path from the source vertex to a given target vertex. The path is
      * represented as a list of edges. Requires: singleSourceDistances() has already been used to
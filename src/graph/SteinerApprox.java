@@ -0,0 +1,267 @@
+package graph;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An approximate minimum Steiner tree of an undirected graph: a tree that connects a set of
+ * terminal vertices, using other vertices as needed, with total weight at most twice the least
+ * possible (Mehlhorn's algorithm).
+ * <p>
+ * The tree is built from the graph Voronoi partition by the terminals. Every boundary edge (u, v)
+ * between the regions of terminals s and t gives a path from s to u, across (u, v), and on to t;
+ * a minimum spanning tree of the terminals over the cheapest such path for each pair, expanded
+ * into the paths themselves, is the Steiner tree. Because the paths within a region follow that
+ * region's shortest-path tree, the expansion is already a tree.
+ * <p>
+ * Since the tree weighs at most twice the minimum, half its weight is a lower bound on the cost
+ * of any walk that visits every terminal, and walking around the tree is a walk that visits them
+ * all at twice the tree's weight.
+ * <p>
+ * Terminals can be added and removed. The Voronoi partition and the set of boundary edges are
+ * updated only around the region that changes; then the spanning tree, which is small, is
+ * rebuilt on the next query.
+ * <p>
+ * The graph is given as a WeightedDigraph in which every edge has a reverse edge of the same
+ * weight, as in the sewer Maze.
+ */
+public class SteinerApprox<Vertex, Edge> {
+
+    /**
+     * The model for treating types Vertex and Edge as forming a weighted directed graph.
+     */
+    private final WeightedDigraph<Vertex, Edge> graph;
+
+    /**
+     * The Voronoi partition of the graph by the terminals.
+     */
+    private final Voronoi<Vertex, Edge> voronoi;
+
+    /**
+     * The edges whose endpoints lie in different Voronoi regions, in both directions.
+     */
+    private final Set<Edge> boundary;
+
+    /**
+     * The edges of the current tree, each in one direction, or null if the terminals have
+     * changed since it was built.
+     */
+    private List<Edge> tree;
+
+    /**
+     * The total weight of tree.
+     */
+    private double treeWeight;
+
+    /**
+     * Creates: an approximate Steiner tree of graph for the given terminals.
+     * Requires: terminals contains no duplicates, and every edge of graph has a reverse edge of
+     * the same weight.
+     */
+    public SteinerApprox(WeightedDigraph<Vertex, Edge> graph, Collection<Vertex> terminals) {
+        this.graph = graph;
+        voronoi = Voronoi.compute(graph, terminals);
+        boundary = new HashSet<>(voronoi.boundaryEdges());
+    }
+
+    /**
+     * Effect: adds t to the terminals. Throws IllegalArgumentException if t is already one.
+     */
+    public void addTerminal(Vertex t) {
+        updateBoundary(voronoi.addTerminal(t));
+        tree = null;
+    }
+
+    /**
+     * Effect: removes t from the terminals. Throws IllegalArgumentException if t is not one.
+     */
+    public void removeTerminal(Vertex t) {
+        updateBoundary(voronoi.removeTerminal(t));
+        tree = null;
+    }
+
+    /**
+     * Effect: brings boundary up to date after the regions of the vertices in changed changed.
+     */
+    private void updateBoundary(Set<Vertex> changed) {
+        for (Vertex v : changed) {
+            for (Edge out : graph.outgoingEdges(v)) {
+                Vertex u = graph.dest(out);
+                updateEdge(out);
+                if (!changed.contains(u)) {
+                    updateEdge(voronoi.reverse(out));
+                }
+            }
+        }
+    }
+
+    /**
+     * Effect: puts e in boundary iff its endpoints are reached and lie in different regions.
+     */
+    private void updateEdge(Edge e) {
+        Vertex s = graph.source(e);
+        Vertex d = graph.dest(e);
+        if (voronoi.isReached(s) && voronoi.isReached(d)
+                && !voronoi.nearestTerminal(s).equals(voronoi.nearestTerminal(d))) {
+            boundary.add(e);
+        } else {
+            boundary.remove(e);
+        }
+    }
+
+    /**
+     * Returns: the current terminals.
+     */
+    public List<Vertex> terminals() {
+        return voronoi.terminals();
+    }
+
+    /**
+     * Returns: the total weight of the tree.
+     */
+    public double weight() {
+        build();
+        return treeWeight;
+    }
+
+    /**
+     * Returns: a lower bound on the weight of any walk that visits every terminal: half the
+     * weight of the tree.
+     */
+    public double lowerBound() {
+        return weight() / 2;
+    }
+
+    /**
+     * Returns: the edges of the tree, each in one direction.
+     */
+    public List<Edge> treeEdges() {
+        build();
+        return Collections.unmodifiableList(tree);
+    }
+
+    /**
+     * Returns: a closed walk from start that goes along every edge of the tree once in each
+     * direction, as a list of edges. Its weight is twice the weight of the tree.
+     * Requires: start is a vertex of the tree (e.g. a terminal).
+     */
+    public List<Edge> tour(Vertex start) {
+        build();
+        Map<Vertex, List<Edge>> adj = new HashMap<>();
+        for (Edge e : tree) {
+            adj.computeIfAbsent(graph.source(e), k -> new ArrayList<>()).add(e);
+            Edge r = voronoi.reverse(e);
+            adj.computeIfAbsent(graph.source(r), k -> new ArrayList<>()).add(r);
+        }
+        List<Edge> walk = new ArrayList<>();
+        Set<Vertex> visited = new HashSet<>();
+        Deque<Iterator<Edge>> stack = new ArrayDeque<>();
+        Deque<Edge> entered = new ArrayDeque<>();
+        visited.add(start);
+        stack.push(adj.getOrDefault(start, List.of()).iterator());
+        while (!stack.isEmpty()) {
+            Iterator<Edge> it = stack.peek();
+            if (it.hasNext()) {
+                Edge e = it.next();
+                Vertex w = graph.dest(e);
+                if (visited.add(w)) {
+                    walk.add(e);
+                    entered.push(e);
+                    stack.push(adj.get(w).iterator());
+                }
+            } else {
+                stack.pop();
+                if (!entered.isEmpty()) {
+                    walk.add(voronoi.reverse(entered.pop()));
+                }
+            }
+        }
+        return walk;
+    }
+
+    /**
+     * Effect: builds tree from the boundary edges, unless it is up to date.
+     */
+    private void build() {
+        if (tree != null) {
+            return;
+        }
+        // The cheapest boundary edge between each pair of regions, keyed by the pair.
+        Map<Set<Vertex>, Edge> cheapest = new LinkedHashMap<>();
+        for (Edge e : boundary) {
+            Set<Vertex> pair = Set.of(voronoi.nearestTerminal(graph.source(e)),
+                    voronoi.nearestTerminal(graph.dest(e)));
+            Edge old = cheapest.get(pair);
+            if (old == null || bridgeCost(e) < bridgeCost(old)) {
+                cheapest.put(pair, e);
+            }
+        }
+        List<Edge> candidates = new ArrayList<>(cheapest.values());
+        candidates.sort((a, b) -> Double.compare(bridgeCost(a), bridgeCost(b)));
+
+        // Kruskal's algorithm on the terminals, with union-find over terminal numbers.
+        Map<Vertex, Integer> number = new HashMap<>();
+        for (Vertex t : voronoi.terminals()) {
+            number.put(t, number.size());
+        }
+        int[] parent = new int[number.size()];
+        for (int i = 0; i < parent.length; i++) {
+            parent[i] = i;
+        }
+        tree = new ArrayList<>();
+        treeWeight = 0;
+        for (Edge e : candidates) {
+            Vertex u = graph.source(e);
+            Vertex v = graph.dest(e);
+            int a = find(parent, number.get(voronoi.nearestTerminal(u)));
+            int b = find(parent, number.get(voronoi.nearestTerminal(v)));
+            if (a == b) {
+                continue;
+            }
+            parent[a] = b;
+            tree.addAll(voronoi.pathFromTerminal(u));
+            tree.add(e);
+            tree.addAll(voronoi.pathFromTerminal(v));
+        }
+        // Paths from one terminal can share edges near it, so keep each edge once.
+        Set<Edge> unique = new HashSet<>();
+        List<Edge> edges = new ArrayList<>();
+        for (Edge e : tree) {
+            if (unique.add(e)) {
+                edges.add(e);
+                treeWeight += graph.weight(e);
+            }
+        }
+        tree = edges;
+    }
+
+    /**
+     * Returns: the length of the path between the terminals of the two regions that e joins,
+     * going through e.
+     */
+    private double bridgeCost(Edge e) {
+        return voronoi.distance(graph.source(e)) + graph.weight(e)
+                + voronoi.distance(graph.dest(e));
+    }
+
+    /**
+     * Returns: the representative of i's set, compressing the path to it.
+     */
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+}
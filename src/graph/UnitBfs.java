@@ -0,0 +1,212 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Single-source shortest paths for a weighted, directed graph in which every edge has the same
+ * positive weight. Breadth-first search finds the same distances as Dijkstra's algorithm in that
+ * case without a priority queue: vertices are numbered as they are discovered, and the frontier
+ * is an int ring buffer over those numbers.
+ * <p>
+ * The common weight can be declared to the constructor. Otherwise it is detected: the weight of
+ * the first edge seen is taken as the unit, and if any edge turns out to have a different
+ * weight, the search is redone with ShortestPaths, so the answers are always correct.
+ * <p>
+ * Queries have the same meaning as those of ShortestPaths.
+ */
+public class UnitBfs<Vertex, Edge> {
+
+    /**
+     * The model for treating types Vertex and Edge as forming a weighted directed graph.
+     */
+    private final WeightedDigraph<Vertex, Edge> graph;
+
+    /**
+     * The weight of every edge, or 0 if it is still to be detected.
+     */
+    private final double declaredWeight;
+
+    /**
+     * The weight of every edge in the last search, as declared or detected.
+     */
+    private double unitWeight;
+
+    /**
+     * The number assigned to each vertex discovered by the last search.
+     */
+    private Map<Vertex, Integer> index;
+
+    /**
+     * The number of edges on a shortest path from the source to vertex i.
+     */
+    private int[] steps;
+
+    /**
+     * The incoming edge for the best path to vertex i, or null for the source.
+     */
+    private Object[] bestEdges;
+
+    /**
+     * Ring buffer of vertex numbers still to be expanded.
+     */
+    private int[] queue;
+
+    /**
+     * The Dijkstra search used instead when the weights turn out not to be uniform, or null.
+     */
+    private ShortestPaths<Vertex, Edge> fallback;
+
+    /**
+     * Creates: a shortest-path finder for graph that detects whether all weights are the same.
+     *
+     * @param graph The model that supplies all graph operations.
+     */
+    public UnitBfs(WeightedDigraph<Vertex, Edge> graph) {
+        this.graph = graph;
+        this.declaredWeight = 0;
+    }
+
+    /**
+     * Creates: a shortest-path finder for graph, every edge of which has weight unitWeight.
+     * Requires: unitWeight > 0, and it is the weight of every edge reachable from the sources
+     * that will be searched.
+     *
+     * @param graph The model that supplies all graph operations.
+     */
+    public UnitBfs(WeightedDigraph<Vertex, Edge> graph, double unitWeight) {
+        assert unitWeight > 0;
+        this.graph = graph;
+        this.declaredWeight = unitWeight;
+    }
+
+    /**
+     * Effect: Computes the best paths from a given source vertex, which can then be queried using
+     * bestPath().
+     */
+    public void singleSourceDistances(Vertex source) {
+        fallback = null;
+        if (!search(source)) {
+            fallback = new ShortestPaths<>(graph);
+            fallback.singleSourceDistances(source);
+        }
+    }
+
+    /**
+     * Effect: runs breadth-first search from source. Returns: false if an edge was found whose
+     * weight differs from the others, in which case the results are incomplete.
+     */
+    private boolean search(Vertex source) {
+        unitWeight = declaredWeight;
+        index = new HashMap<>();
+        List<Vertex> vertices = new ArrayList<>();
+        steps = new int[16];
+        bestEdges = new Object[16];
+        queue = new int[16];
+        int head = 0;
+        int size = 0;
+
+        index.put(source, 0);
+        vertices.add(source);
+        queue[size++] = 0;
+
+        while (size > 0) {
+            int current = queue[head];
+            head = (head + 1) % queue.length;
+            size--;
+            for (Edge edge : graph.outgoingEdges(vertices.get(current))) {
+                double w = graph.weight(edge);
+                if (w != unitWeight) {
+                    assert declaredWeight == 0 : "edge weight differs from declared weight";
+                    if (unitWeight != 0 || w <= 0) {
+                        return false;
+                    }
+                    unitWeight = w;
+                }
+                Vertex neighbor = graph.dest(edge);
+                if (index.containsKey(neighbor)) {
+                    continue;
+                }
+                int n = vertices.size();
+                index.put(neighbor, n);
+                vertices.add(neighbor);
+                if (n == steps.length) {
+                    steps = Arrays.copyOf(steps, n * 2);
+                    bestEdges = Arrays.copyOf(bestEdges, n * 2);
+                }
+                steps[n] = steps[current] + 1;
+                bestEdges[n] = edge;
+                if (size == queue.length) {
+                    queue = grow(queue, head);
+                    head = 0;
+                }
+                queue[(head + size) % queue.length] = n;
+                size++;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns: a ring buffer twice the size of full queue q, holding the same elements in the
+     * same order, starting at index 0.
+     */
+    private static int[] grow(int[] q, int head) {
+        int[] bigger = new int[q.length * 2];
+        System.arraycopy(q, head, bigger, 0, q.length - head);
+        System.arraycopy(q, 0, bigger, q.length - head, head);
+        return bigger;
+    }
+
+    /**
+     * Returns: whether vertex v is reachable from the source vertex. Requires: distances have been
+     * computed from a source vertex.
+     */
+    public boolean isReachable(Vertex v) {
+        if (fallback != null) {
+            return fallback.isReachable(v);
+        }
+        assert index != null : "Must run singleSourceDistances() first";
+        return index.containsKey(v);
+    }
+
+    /**
+     * Returns: the distance from the source vertex to the given vertex. Requires: distances have
+     * been computed from a source vertex, and vertex v is reachable from that vertex.
+     */
+    public double getDistance(Vertex v) {
+        if (fallback != null) {
+            return fallback.getDistance(v);
+        }
+        assert index != null : "Must run singleSourceDistances() first";
+        Integer i = index.get(v);
+        assert i != null : "v not reachable from source";
+        return steps[i] * unitWeight;
+    }
+
+    /**
+     * Returns: the best path from the source vertex to a given target vertex. The path is
+     * represented as a list of edges. Requires: singleSourceDistances() has already been used to
+     * compute best paths, and vertex target is reachable from that source.
+     */
+    @SuppressWarnings("unchecked")
+    public List<Edge> bestPath(Vertex target) {
+        if (fallback != null) {
+            return fallback.bestPath(target);
+        }
+        assert index != null : "Must run singleSourceDistances() first";
+        LinkedList<Edge> path = new LinkedList<>();
+        Integer i = index.get(target);
+        assert i != null : "target not reachable from source";
+        while (bestEdges[i] != null) {
+            Edge e = (Edge) bestEdges[i];
+            path.addFirst(e);
+            i = index.get(graph.source(e));
+        }
+        return path;
+    }
+}
@@ -0,0 +1,315 @@
+package graph;
+
+import datastructures.HeapPQueue;
+import datastructures.PQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The graph Voronoi partition of a weighted, directed graph with nonnegative weights by a set of
+ * terminal vertices: every vertex reachable from some terminal is labeled with its nearest
+ * terminal (its region) and its distance from that terminal. Ties between equally near
+ * terminals are broken arbitrarily.
+ * <p>
+ * The partition is found by one run of Dijkstra's algorithm started from all the terminals at
+ * once, so it costs the same as a single shortest-path computation no matter how many
+ * terminals there are.
+ * <p>
+ * Terminals can be added and removed afterward. Only the vertices whose nearest terminal
+ * changes are searched again, so an update costs time proportional to the size of the regions
+ * involved rather than to the whole graph.
+ * <p>
+ * Types Vertex and Edge are parameters, so their operations are supplied by a model object.
+ */
+public class Voronoi<Vertex, Edge> {
+
+    /**
+     * The model for treating types Vertex and Edge as forming a weighted directed graph.
+     */
+    private final WeightedDigraph<Vertex, Edge> graph;
+
+    /**
+     * The terminals, in the order given.
+     */
+    private final List<Vertex> terminals;
+
+    /**
+     * The nearest terminal to each vertex reached.
+     */
+    private final Map<Vertex, Vertex> region;
+
+    /**
+     * The distance from its nearest terminal to each vertex reached.
+     */
+    private final Map<Vertex, Double> distances;
+
+    /**
+     * The incoming edge on the best path from its nearest terminal to each vertex reached that is
+     * not a terminal.
+     */
+    private final Map<Vertex, Edge> bestEdges;
+
+    /**
+     * Creates: an empty partition of graph. Use compute() to build one.
+     */
+    private Voronoi(WeightedDigraph<Vertex, Edge> graph, Collection<Vertex> terminals) {
+        this.graph = Profiling.graph(graph);
+        this.terminals = new ArrayList<>(terminals);
+        region = new HashMap<>();
+        distances = new HashMap<>();
+        bestEdges = new HashMap<>();
+    }
+
+    /**
+     * Returns: the Voronoi partition of graph by the given terminals.
+     * Requires: terminals contains no duplicates.
+     */
+    public static <V, E> Voronoi<V, E> compute(WeightedDigraph<V, E> graph,
+            Collection<V> terminals) {
+        Voronoi<V, E> v = new Voronoi<>(graph, terminals);
+        v.run();
+        return v;
+    }
+
+    /**
+     * Effect: labels every vertex reachable from a terminal, using multi-source Dijkstra.
+     */
+    private void run() {
+        PQueue<Vertex> frontier = Profiling.queue(new HeapPQueue<>());
+        for (Vertex t : terminals) {
+            region.put(t, t);
+            distances.put(t, 0.0);
+            frontier.add(t, 0.0);
+        }
+
+        while (!frontier.isEmpty()) {
+            Vertex current = frontier.extractMin();
+            double d = distances.get(current);
+            Vertex owner = region.get(current);
+            for (Edge edge : graph.outgoingEdges(current)) {
+                Vertex neighbor = graph.dest(edge);
+                double newDistance = d + graph.weight(edge);
+                Double old = distances.get(neighbor);
+                if (old == null) {
+                    frontier.add(neighbor, newDistance);
+                } else if (newDistance < old) {
+                    frontier.changePriority(neighbor, newDistance);
+                } else {
+                    continue;
+                }
+                distances.put(neighbor, newDistance);
+                region.put(neighbor, owner);
+                bestEdges.put(neighbor, edge);
+            }
+        }
+    }
+
+    /**
+     * Effect: makes t a terminal, moving every vertex that is strictly nearer to t than to its
+     * current nearest terminal into t's region. Returns: the vertices whose region changed,
+     * including t. Throws IllegalArgumentException if t is already a terminal.
+     */
+    public Set<Vertex> addTerminal(Vertex t) {
+        if (t.equals(region.get(t))) {
+            throw new IllegalArgumentException("already a terminal");
+        }
+        terminals.add(t);
+        Set<Vertex> changed = new HashSet<>();
+        // Any vertex whose distance improves is reached from t through vertices that also
+        // improve, so a search from t that stops at vertices that don't improve is exact.
+        PQueue<Vertex> frontier = Profiling.queue(new HeapPQueue<>());
+        region.put(t, t);
+        distances.put(t, 0.0);
+        bestEdges.remove(t);
+        frontier.add(t, 0.0);
+        while (!frontier.isEmpty()) {
+            Vertex current = frontier.extractMin();
+            changed.add(current);
+            double d = distances.get(current);
+            for (Edge edge : graph.outgoingEdges(current)) {
+                Vertex neighbor = graph.dest(edge);
+                double newDistance = d + graph.weight(edge);
+                Double old = distances.get(neighbor);
+                if (old != null && newDistance >= old) {
+                    continue;
+                }
+                if (old != null && t.equals(region.get(neighbor))) {
+                    frontier.changePriority(neighbor, newDistance);
+                } else {
+                    frontier.add(neighbor, newDistance);
+                }
+                distances.put(neighbor, newDistance);
+                region.put(neighbor, t);
+                bestEdges.put(neighbor, edge);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Effect: stops t from being a terminal, and relabels every vertex of its region with its
+     * nearest remaining terminal (or leaves it unreached if there is none). Returns: the
+     * vertices that were in t's region. Throws IllegalArgumentException if t is not a terminal.
+     * Requires: every edge of the graph has a reverse edge of the same weight.
+     */
+    public Set<Vertex> removeTerminal(Vertex t) {
+        if (!t.equals(region.get(t))) {
+            throw new IllegalArgumentException("not a terminal");
+        }
+        terminals.remove(t);
+
+        // The region is connected through best-path edges, so a search from t finds it.
+        Set<Vertex> orphans = new HashSet<>();
+        Deque<Vertex> stack = new ArrayDeque<>();
+        orphans.add(t);
+        stack.push(t);
+        while (!stack.isEmpty()) {
+            for (Edge edge : graph.outgoingEdges(stack.pop())) {
+                Vertex w = graph.dest(edge);
+                if (t.equals(region.get(w)) && orphans.add(w)) {
+                    stack.push(w);
+                }
+            }
+        }
+        for (Vertex v : orphans) {
+            region.remove(v);
+            distances.remove(v);
+            bestEdges.remove(v);
+        }
+
+        // Seed each orphan from its labeled neighbors, then finish with Dijkstra inside the
+        // orphaned region. Vertices outside it keep their labels: removing a terminal cannot
+        // shorten anything.
+        PQueue<Vertex> frontier = Profiling.queue(new HeapPQueue<>());
+        for (Vertex v : orphans) {
+            for (Edge out : graph.outgoingEdges(v)) {
+                Vertex u = graph.dest(out);
+                if (orphans.contains(u) || !region.containsKey(u)) {
+                    continue;
+                }
+                Edge in = reverse(out);
+                relax(frontier, in, distances.get(u) + graph.weight(in), region.get(u));
+            }
+        }
+        while (!frontier.isEmpty()) {
+            Vertex current = frontier.extractMin();
+            double d = distances.get(current);
+            Vertex owner = region.get(current);
+            for (Edge edge : graph.outgoingEdges(current)) {
+                if (orphans.contains(graph.dest(edge))) {
+                    relax(frontier, edge, d + graph.weight(edge), owner);
+                }
+            }
+        }
+        return orphans;
+    }
+
+    /**
+     * Effect: if newDistance improves on the distance of the destination of edge, records it,
+     * with edge as its best edge and owner as its region, and adds or updates it in frontier.
+     * Requires: the destination is not yet final.
+     */
+    private void relax(PQueue<Vertex> frontier, Edge edge, double newDistance, Vertex owner) {
+        Vertex v = graph.dest(edge);
+        Double old = distances.get(v);
+        if (old == null) {
+            frontier.add(v, newDistance);
+        } else if (newDistance < old) {
+            frontier.changePriority(v, newDistance);
+        } else {
+            return;
+        }
+        distances.put(v, newDistance);
+        region.put(v, owner);
+        bestEdges.put(v, edge);
+    }
+
+    /**
+     * Returns: the edge from dest(e) to source(e). Requires: there is one.
+     */
+    Edge reverse(Edge e) {
+        Vertex back = graph.source(e);
+        for (Edge r : graph.outgoingEdges(graph.dest(e))) {
+            if (graph.dest(r).equals(back)) {
+                return r;
+            }
+        }
+        throw new IllegalArgumentException("edge has no reverse");
+    }
+
+    /**
+     * Returns: the terminals of this partition.
+     */
+    public List<Vertex> terminals() {
+        return Collections.unmodifiableList(terminals);
+    }
+
+    /**
+     * Returns: whether v is reachable from some terminal.
+     */
+    public boolean isReached(Vertex v) {
+        return region.containsKey(v);
+    }
+
+    /**
+     * Returns: the terminal nearest to v. Requires: v is reachable from some terminal.
+     */
+    public Vertex nearestTerminal(Vertex v) {
+        Vertex t = region.get(v);
+        assert t != null : "v not reachable from any terminal";
+        return t;
+    }
+
+    /**
+     * Returns: the distance from the terminal nearest to v to v. Requires: v is reachable from
+     * some terminal.
+     */
+    public double distance(Vertex v) {
+        Double d = distances.get(v);
+        assert d != null : "v not reachable from any terminal";
+        return d;
+    }
+
+    /**
+     * Returns: the best path from the terminal nearest to v to v, as a list of edges. The path is
+     * empty if v is a terminal. Requires: v is reachable from some terminal.
+     */
+    public List<Edge> pathFromTerminal(Vertex v) {
+        assert region.containsKey(v) : "v not reachable from any terminal";
+        LinkedList<Edge> path = new LinkedList<>();
+        Edge e = bestEdges.get(v);
+        while (e != null) {
+            path.addFirst(e);
+            e = bestEdges.get(graph.source(e));
+        }
+        return path;
+    }
+
+    /**
+     * Returns: every edge whose source and destination are both reached but lie in different
+     * regions. Each such edge is a crossing point between the two regions, and
+     * distance(source) + weight + distance(dest) bounds the distance between their terminals.
+     */
+    public List<Edge> boundaryEdges() {
+        List<Edge> boundary = new ArrayList<>();
+        for (Map.Entry<Vertex, Vertex> entry : region.entrySet()) {
+            Vertex owner = entry.getValue();
+            for (Edge edge : graph.outgoingEdges(entry.getKey())) {
+                Vertex other = region.get(graph.dest(edge));
+                if (other != null && !other.equals(owner)) {
+                    boundary.add(edge);
+                }
+            }
+        }
+        return boundary;
+    }
+}
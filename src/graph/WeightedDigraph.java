@@ -7,4 +7,12 @@ package graph;
 public interface WeightedDigraph<V, E> extends DirectedGraph<V, E> {
     /** The weight of an edge */
     double weight(E edge);
+
+    /** Call visitor on every outgoing edge from a vertex, in the order of outgoingEdges.
+     *  Graphs that can do so without allocating should override this. */
+    default void forEachOutgoing(V vertex, EdgeVisitor<V, E> visitor) {
+        for (E edge : outgoingEdges(vertex)) {
+            visitor.visit(edge, dest(edge), weight(edge));
+        }
+    }
 }
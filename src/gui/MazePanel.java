@@ -12,6 +12,7 @@ import javax.imageio.ImageIO;
 import javax.swing.JPanel;
 
 import game.Node;
+import game.SewerView;
 import game.Sewers;
 import game.Tile;
 
@@ -82,7 +83,7 @@ public class MazePanel extends JPanel {
     /**
      * Representation of the graph/level
      */
-    private Sewers sewers;
+    private SewerView sewers;
 
     /**
      * Contains the nodes already visited
@@ -109,7 +110,7 @@ public class MazePanel extends JPanel {
      * @param screenHeight The height of the panel, in pixels
      * @param gui          The GUI that owns this MazePanel
      */
-    public MazePanel(Sewers sew, int screenWidth, int screenHeight, GUI gui) {
+    public MazePanel(SewerView sew, int screenWidth, int screenHeight, GUI gui) {
         this.gui = gui;
         sewers = sew;
         visited = new boolean[sewers.rowCount()][sewers.columnCount()];
@@ -154,7 +155,7 @@ public class MazePanel extends JPanel {
     /**
      * Set the sewers to c
      */
-    void setSewer(Sewers c) {
+    void setSewer(SewerView c) {
         sewers = c;
         repaint();
     }
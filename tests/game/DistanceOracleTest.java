@@ -0,0 +1,161 @@
+package game;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import graph.ShortestPaths;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+
+public class DistanceOracleTest {
+    /** Asserts: oracle gives the same distances as Dijkstra's algorithm from a few sources. */
+    static void assertDistances(Sewers sewers, DistanceOracle oracle) {
+        List<Node> nodes = new ArrayList<>(sewers.graph());
+        ShortestPaths<Node, Edge> ssp = new ShortestPaths<>(new Maze(sewers.graph()));
+        for (int i = 0; i < nodes.size(); i += nodes.size() / 5 + 1) {
+            Node from = nodes.get(i);
+            ssp.singleSourceDistances(from);
+            for (Node to : nodes) {
+                assertEquals((int) ssp.getDistance(to), oracle.distance(from, to));
+            }
+        }
+    }
+
+    /** Returns: the fingerprint recorded in the oracle file. */
+    static long recordedFingerprint(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+            assertEquals(DistanceOracle.MAGIC, in.readInt());
+            assertEquals(DistanceOracle.VERSION, in.readInt());
+            in.readInt();
+            return in.readLong();
+        }
+    }
+
+    /** Effect: deletes dir and everything in it. */
+    static void delete(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path p : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(p);
+            }
+        }
+    }
+
+    @Test
+    void buildMatchesDijkstra() {
+        Sewers sewers = SewerCorpus.generate(1).scram();
+        assertDistances(sewers, DistanceOracle.build(sewers));
+    }
+
+    @Test
+    void openSavesThenMaps() throws IOException {
+        Path dir = Files.createTempDirectory("oracle");
+        try {
+            Sewers sewers = SewerCorpus.generate(2).scram();
+            Path file = DistanceOracle.fileFor(dir.resolve("scram.txt"));
+            assertFalse(Files.exists(file));
+            DistanceOracle built = DistanceOracle.open(sewers, file);
+            assertNotNull(built);
+            assertEquals(DistanceOracle.fingerprint(sewers), recordedFingerprint(file));
+            assertDistances(sewers, built);
+
+            assertDistances(sewers, DistanceOracle.open(sewers, file));
+        } finally {
+            delete(dir);
+        }
+    }
+
+    @Test
+    void fingerprintMismatchRebuilds() throws IOException {
+        Path dir = Files.createTempDirectory("oracle");
+        try {
+            Sewers first = SewerCorpus.generate(3).scram();
+            Sewers second = SewerCorpus.generate(4).scram();
+            assertTrue(DistanceOracle.fingerprint(first) != DistanceOracle.fingerprint(second));
+            Path file = DistanceOracle.fileFor(dir.resolve("scram.txt"));
+            DistanceOracle.open(first, file);
+            assertEquals(DistanceOracle.fingerprint(first), recordedFingerprint(file));
+
+            DistanceOracle oracle = DistanceOracle.open(second, file);
+            assertEquals(DistanceOracle.fingerprint(second), recordedFingerprint(file));
+            assertDistances(second, oracle);
+        } finally {
+            delete(dir);
+        }
+    }
+
+    @Test
+    void failedSaveKeepsOracle() throws IOException {
+        Path dir = Files.createTempDirectory("oracle");
+        try {
+            Sewers sewers = SewerCorpus.generate(5).scram();
+            Path file = dir.resolve("missing").resolve("scram.txt.dist");
+            DistanceOracle oracle = DistanceOracle.open(sewers, file);
+            assertNotNull(oracle);
+            assertFalse(Files.exists(file));
+            assertDistances(sewers, oracle);
+        } finally {
+            delete(dir);
+        }
+    }
+
+    @Test
+    void longDistancesFallBackToSearch() throws IOException {
+        // Three tiles in a row joined by edges of weight 40000: the ends are 80000 apart.
+        Sewers sewers = Sewers.read(new StringReader(String.join("\n",
+                "1:3,trgt:2",
+                "0,0,0,0,ENTRANCE=1-40000",
+                "1,0,1,0,FLOOR=0-40000,2-40000",
+                "2,0,2,0,RING=1-40000")));
+        assertThrows(IllegalArgumentException.class, () -> DistanceOracle.build(sewers));
+        Path dir = Files.createTempDirectory("oracle");
+        try {
+            Path file = DistanceOracle.fileFor(dir.resolve("long.txt"));
+            assertNull(DistanceOracle.open(sewers, file));
+            sewers.setDistanceOracleFile(file);
+            assertEquals(80000, sewers.distance(sewers.entrance(), sewers.ring()));
+            assertEquals(40000, sewers.distance(sewers.ring(), sewers.nodeAt(0, 1)));
+            assertFalse(Files.exists(file));
+        } finally {
+            delete(dir);
+        }
+    }
+
+    @Test
+    void sewersDistanceUsesOracleOnlyWhenAsked() throws IOException {
+        Path dir = Files.createTempDirectory("oracle");
+        try {
+            Sewers sewers = SewerCorpus.generate(6).scram();
+            Path file = DistanceOracle.fileFor(dir.resolve("scram.txt"));
+            sewers.setDistanceOracleFile(file);
+            sewers.minPathLengthToRing(sewers.entrance());
+            assertFalse(Files.exists(file));
+
+            Sewers searched = SewerCorpus.generate(6).scram();
+            List<Node> nodes = new ArrayList<>(sewers.graph());
+            for (int i = 0; i < nodes.size(); i += nodes.size() / 5 + 1) {
+                Node from = nodes.get(i);
+                for (Node to : nodes) {
+                    Node f = searched.nodeAt(from.getTile().row(), from.getTile().column());
+                    Node t = searched.nodeAt(to.getTile().row(), to.getTile().column());
+                    assertEquals(searched.distance(f, t), sewers.distance(from, to));
+                }
+            }
+            assertTrue(Files.exists(file));
+            assertDistances(sewers, DistanceOracle.open(sewers, file));
+        } finally {
+            delete(dir);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package game;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import graph.ShortestPaths;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+public class GridDijkstraTest {
+    /** Asserts: path is a chain of edges from `from` to `to` whose lengths add up to length. */
+    static void assertPath(List<Edge> path, Node from, Node to, int length) {
+        Node at = from;
+        int total = 0;
+        for (Edge e : path) {
+            assertEquals(at, e.source());
+            at = e.destination();
+            total += e.length();
+        }
+        assertEquals(to, at);
+        assertEquals(length, total);
+    }
+
+    @Test
+    void matchesShortestPathsOnGetOutSewers() {
+        for (long seed = 0; seed < 10; seed++) {
+            Sewers sewers = SewerCorpus.generate(seed).scram();
+            List<Node> nodes = new ArrayList<>(sewers.graph());
+            GridDijkstra grid = new GridDijkstra(sewers);
+            ShortestPaths<Node, Edge> ssp = new ShortestPaths<>(new Maze(sewers.graph()));
+            Random rand = new Random(seed);
+            for (int k = 0; k < 5; k++) {
+                Node x = nodes.get(rand.nextInt(nodes.size()));
+                ssp.singleSourceDistances(x);
+                grid.fromSource(x);
+                for (Node v : nodes) {
+                    int d = (int) ssp.getDistance(v);
+                    assertTrue(grid.isReachable(v));
+                    assertEquals(d, grid.distance(v));
+                    assertPath(grid.bestPath(v), x, v, d);
+                }
+                // Edges come in pairs of equal weight, so the distances to x are the same.
+                grid.toTarget(x);
+                for (Node v : nodes) {
+                    int d = (int) ssp.getDistance(v);
+                    assertEquals(d, grid.distance(v));
+                    assertPath(grid.bestPath(v), v, x, d);
+                }
+            }
+        }
+    }
+
+    @Test
+    void oneWayEdgesAndUnreachableTiles() throws IOException {
+        // Three tiles in a row: 0 -> 1 only, weight 2, and 1 <-> 2, weight 3.
+        Sewers sewers = Sewers.read(new StringReader(String.join("\n",
+                "1:3,trgt:2",
+                "0,0,0,0,ENTRANCE=1-2",
+                "1,0,1,0,FLOOR=2-3",
+                "2,0,2,0,RING=1-3")));
+        Node a = sewers.nodeAt(0, 0);
+        Node b = sewers.nodeAt(0, 1);
+        Node c = sewers.nodeAt(0, 2);
+        GridDijkstra grid = new GridDijkstra(sewers);
+
+        grid.fromSource(a);
+        assertEquals(0, grid.distance(a));
+        assertEquals(5, grid.distance(c));
+        assertPath(grid.bestPath(c), a, c, 5);
+        assertEquals(0, grid.bestPath(a).size());
+
+        grid.fromSource(c);
+        assertEquals(3, grid.distance(b));
+        assertFalse(grid.isReachable(a));
+        assertEquals(-1, grid.distance(a));
+
+        grid.toTarget(a);
+        assertFalse(grid.isReachable(b));
+        assertEquals(-1, grid.distance(c));
+
+        grid.toTarget(c);
+        assertEquals(5, grid.distance(a));
+        assertPath(grid.bestPath(a), a, c, 5);
+    }
+}
@@ -0,0 +1,51 @@
+package game;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import graph.UnitBfs;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+public class JumpPointSearchTest {
+
+    @Test
+    void stepsMatchBfsOnExploreSewers() {
+        for (long seed = 0; seed < 20; seed++) {
+            Sewers sewers = SewerCorpus.generate(seed).seek();
+            List<Node> nodes = new ArrayList<>(sewers.graph());
+            JumpPointSearch jps = new JumpPointSearch(sewers);
+            UnitBfs<Node, Edge> bfs = new UnitBfs<>(new Maze(sewers.graph()), 1);
+            Random rand = new Random(seed);
+            for (int k = 0; k < 5; k++) {
+                Node x = nodes.get(rand.nextInt(nodes.size()));
+                bfs.singleSourceDistances(x);
+                for (Node v : nodes) {
+                    assertEquals((long) bfs.getDistance(v), jps.steps(x, v));
+                }
+            }
+            assertEquals(0, jps.steps(sewers.ring(), sewers.ring()));
+        }
+    }
+
+    @Test
+    void unreachableGoal() throws IOException {
+        // Two corridors, rows 0 and 2, separated by a wall row.
+        Sewers sewers = Sewers.read(new StringReader(String.join("\n",
+                "3:3,trgt:8",
+                "0,0,0,0,ENTRANCE=1-1",
+                "1,0,1,0,FLOOR=0-1,2-1",
+                "2,0,2,0,FLOOR=1-1",
+                "6,2,0,0,FLOOR=7-1",
+                "7,2,1,0,FLOOR=6-1,8-1",
+                "8,2,2,0,RING=7-1")));
+        JumpPointSearch jps = new JumpPointSearch(sewers);
+        assertEquals(2, jps.steps(sewers.nodeAt(0, 0), sewers.nodeAt(0, 2)));
+        assertEquals(2, jps.steps(sewers.nodeAt(2, 2), sewers.nodeAt(2, 0)));
+        assertEquals(-1, jps.steps(sewers.nodeAt(0, 0), sewers.ring()));
+        assertEquals(-1, jps.steps(sewers.nodeAt(2, 1), sewers.nodeAt(0, 1)));
+    }
+}
@@ -0,0 +1,129 @@
+package game;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class NodeTest {
+    /** Returns: a Node for a floor tile at (r, c) of a grid with 3 columns. */
+    static Node node(int r, int c) {
+        return new Node(new Tile(r, c, 0, Tile.TileType.FLOOR), 3);
+    }
+
+    /** Returns: the elements of it, in order. */
+    static <T> List<T> list(Iterable<T> it) {
+        List<T> list = new ArrayList<>();
+        for (T t : it) {
+            list.add(t);
+        }
+        return list;
+    }
+
+    @Test
+    void edgesByDirection() {
+        Node center = node(1, 1);
+        Node north = node(0, 1);
+        Node south = node(2, 1);
+        Node west = node(1, 0);
+        Edge toSouth = new Edge(center, south, 2);
+        Edge toWest = new Edge(center, west, 3);
+        Edge toNorth = new Edge(center, north, 4);
+        center.addEdge(toSouth);
+        center.addEdge(toWest);
+        center.addEdge(toNorth);
+
+        assertSame(toNorth, center.getEdge(Sewers.Direction.NORTH));
+        assertNull(center.getEdge(Sewers.Direction.EAST));
+        assertSame(toSouth, center.getEdge(Sewers.Direction.SOUTH));
+        assertSame(toWest, center.getEdge(Sewers.Direction.WEST));
+        assertSame(north, center.getNeighbor(Sewers.Direction.NORTH));
+        assertNull(center.getNeighbor(Sewers.Direction.EAST));
+        assertSame(west, center.getNeighbor(Sewers.Direction.WEST));
+        assertSame(toWest, center.getEdge(west));
+        // Any Node with the same id is the same neighbor.
+        assertSame(toSouth, center.getEdge(node(2, 1)));
+        assertThrows(IllegalArgumentException.class, () -> center.getEdge(node(1, 2)));
+        assertThrows(IllegalArgumentException.class, () -> center.getEdge(node(0, 0)));
+        assertThrows(IllegalArgumentException.class, () -> center.getEdge(center));
+    }
+
+    @Test
+    void viewsIterateInInsertionOrder() {
+        Node center = node(1, 1);
+        Node east = node(1, 2);
+        Node north = node(0, 1);
+        Node west = node(1, 0);
+        assertEquals(0, center.getExits().size());
+        assertFalse(center.getExits().iterator().hasNext());
+
+        Edge toEast = new Edge(center, east, 1);
+        Edge toNorth = new Edge(center, north, 1);
+        Edge toWest = new Edge(center, west, 1);
+        center.addEdge(toEast);
+        center.addEdge(toNorth);
+        Iterator<Node> before = center.getNeighbors().iterator();
+        center.addEdge(toWest);
+
+        assertEquals(List.of(toEast, toNorth, toWest), list(center.getExits()));
+        assertEquals(List.of(east, north, west), list(center.getNeighbors()));
+        // An iterator sees the exits there were when it was made.
+        assertEquals(List.of(east, north), list(() -> before));
+
+        assertEquals(3, center.getExits().size());
+        assertEquals(3, center.getNeighbors().size());
+        assertTrue(center.getExits().contains(toNorth));
+        assertFalse(center.getExits().contains(new Edge(center, north, 1)));
+        assertFalse(center.getExits().contains(north));
+        assertTrue(center.getNeighbors().contains(west));
+        assertTrue(center.getNeighbors().contains(node(1, 0)));
+        assertFalse(center.getNeighbors().contains(node(2, 1)));
+        assertFalse(center.getNeighbors().contains(node(2, 2)));
+        assertFalse(center.getNeighbors().contains(toWest));
+        assertThrows(UnsupportedOperationException.class, () -> center.getExits().add(toEast));
+        assertThrows(UnsupportedOperationException.class,
+                () -> center.getNeighbors().remove(east));
+    }
+
+    @Test
+    void addEdgeRejectsTilesThatAreNotNext() {
+        Node center = node(1, 1);
+        assertThrows(IllegalArgumentException.class,
+                () -> center.addEdge(new Edge(center, node(0, 0), 1)));
+        assertThrows(IllegalArgumentException.class,
+                () -> center.addEdge(new Edge(center, node(1, 3), 1)));
+        assertThrows(IllegalArgumentException.class,
+                () -> center.addEdge(new Edge(center, node(1, 1), 1)));
+        // An edge that does not touch center at all.
+        assertThrows(IllegalArgumentException.class,
+                () -> center.addEdge(new Edge(node(0, 1), node(1, 2), 1)));
+        assertEquals(0, center.getExits().size());
+    }
+
+    @Test
+    void addEdgeReplacesTheEdgeToTheSameNeighbor() {
+        Node center = node(1, 1);
+        Node south = node(2, 1);
+        Node east = node(1, 2);
+        Edge first = new Edge(center, south, 2);
+        Edge toEast = new Edge(center, east, 3);
+        center.addEdge(first);
+        center.addEdge(toEast);
+
+        Edge second = new Edge(center, south, 9);
+        center.addEdge(second);
+        assertEquals(List.of(second, toEast), list(center.getExits()));
+        assertEquals(List.of(south, east), list(center.getNeighbors()));
+        assertSame(second, center.getEdge(Sewers.Direction.SOUTH));
+        assertSame(second, center.getEdge(south));
+        assertFalse(center.getExits().contains(first));
+        assertEquals(2, center.getNeighbors().size());
+    }
+}
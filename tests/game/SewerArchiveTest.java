@@ -0,0 +1,80 @@
+package game;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+
+public class SewerArchiveTest {
+    /** Returns: a game whose scram sewer Sewers.toBytes cannot write: its edge weight is out of
+     *  range. */
+    static SewerCorpus.Game unwritableGame() throws IOException {
+        Sewers bad = Sewers.read(new StringReader(String.join("\n",
+                "1:2,trgt:1",
+                "0,0,0,0,ENTRANCE=1-40000",
+                "1,0,1,0,RING=0-40000")));
+        return new SewerCorpus.Game(99, SewerCorpus.generate(99).seek(), bad);
+    }
+
+    @Test
+    void writeThenOpen() throws IOException {
+        Path dir = Files.createTempDirectory("archive");
+        try {
+            Path file = dir.resolve("games.swra");
+            SewerArchive.write(file, 7, 5, 2);
+            assertFalse(Files.exists(dir.resolve("games.swra.tmp")));
+            SewerArchive archive = SewerArchive.open(file);
+            assertEquals(5, archive.size());
+            int i = 0;
+            for (SewerCorpus.Game game : archive) {
+                long seed = archive.seed(i);
+                assertEquals(seed, game.seed());
+                assertEquals(i, archive.indexOf(seed));
+                SewerCorpus.Game fresh = SewerCorpus.generate(seed);
+                assertArrayEquals(fresh.seek().toBytes(), archive.get(i).seek().toBytes());
+                assertArrayEquals(fresh.scram().toBytes(), game.scram().toBytes());
+                i++;
+            }
+            assertEquals(5, i);
+        } finally {
+            DistanceOracleTest.delete(dir);
+        }
+    }
+
+    @Test
+    void failedWriteKeepsOldArchive() throws IOException {
+        Path dir = Files.createTempDirectory("archive");
+        try {
+            Path file = dir.resolve("games.swra");
+            SewerArchive.write(file, 7, 3, 1);
+            byte[] before = Files.readAllBytes(file);
+
+            SewerCorpus.Game bad = unwritableGame();
+            assertThrows(IllegalArgumentException.class, () -> {
+                try (SewerArchive.Writer out = SewerArchive.create(file)) {
+                    out.add(SewerCorpus.generate(1));
+                    out.add(bad);
+                    out.commit();
+                }
+            });
+            assertArrayEquals(before, Files.readAllBytes(file));
+            assertFalse(Files.exists(dir.resolve("games.swra.tmp")));
+            assertEquals(3, SewerArchive.open(file).size());
+
+            // Committing replaces the old archive.
+            try (SewerArchive.Writer out = SewerArchive.create(file)) {
+                out.add(SewerCorpus.generate(1));
+                out.commit();
+            }
+            assertEquals(1, SewerArchive.open(file).size());
+        } finally {
+            DistanceOracleTest.delete(dir);
+        }
+    }
+}
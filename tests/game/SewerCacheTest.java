@@ -0,0 +1,141 @@
+package game;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import org.junit.jupiter.api.Test;
+
+public class SewerCacheTest {
+    /** Asserts: game is the game generated from its seed. */
+    static void assertGenerated(SewerCorpus.Game game) {
+        SewerCorpus.Game fresh = SewerCorpus.generate(game.seed());
+        assertEquals(fresh.seek().serialize(), game.seek().serialize());
+        assertEquals(fresh.scram().serialize(), game.scram().serialize());
+        assertArrayEquals(fresh.scram().toBytes(), game.scram().toBytes());
+    }
+
+    /** Returns: the file of the disk tier in dir for seed. */
+    static Path entry(Path dir, long seed) {
+        return dir.resolve("g" + SewerCache.GENERATOR_VERSION + "-" + Long.toHexString(seed)
+                + ".swr");
+    }
+
+    /** Effect: adds the game for seed to the disk tier in dir. Returns: its file. */
+    static Path writeEntry(Path dir, long seed) throws IOException {
+        new SewerCache(0, dir).get(seed);
+        return entry(dir, seed);
+    }
+
+    @Test
+    void memoryTierEvictsLeastRecentlyUsed() throws IOException {
+        SewerCache cache = new SewerCache(2, null);
+        assertGenerated(cache.get(1));
+        cache.get(2);
+        assertEquals(2, cache.misses());
+        assertGenerated(cache.get(1)); // 2 is now the least recently used
+        assertEquals(1, cache.memoryHits());
+        cache.get(3);
+        assertEquals(1, cache.evictions());
+        assertEquals(2, cache.memorySize());
+        cache.get(1);
+        assertEquals(2, cache.memoryHits());
+        cache.get(2);
+        assertEquals(4, cache.misses());
+        assertEquals(0, cache.diskHits());
+        assertEquals(2.0 / 6, cache.hitRate(), 1e-9);
+        assertTrue(cache.summary().startsWith("2 memory hits, 0 disk hits, 4 misses"));
+
+        cache.clear();
+        assertEquals(0, cache.memorySize());
+        assertEquals(2, cache.memoryHits());
+    }
+
+    @Test
+    void everyGetDecodesNewSewers() throws IOException {
+        SewerCache cache = new SewerCache(1, null);
+        SewerCorpus.Game first = cache.get(4);
+        Node rich = null;
+        for (Node n : first.scram().graph()) {
+            if (n.getTile().coins() > 0) {
+                rich = n;
+            }
+        }
+        int coins = rich.getTile().takeCoins();
+        SewerCorpus.Game second = cache.get(4);
+        assertNotSame(first.scram(), second.scram());
+        assertEquals(coins, second.scram().nodeAt(rich.getTile().row(),
+                rich.getTile().column()).getTile().coins());
+        assertEquals(1, cache.memoryHits());
+    }
+
+    @Test
+    void diskTierSurvivesTheCache() throws IOException {
+        Path dir = Files.createTempDirectory("cache");
+        try {
+            SewerCache writer = new SewerCache(1, dir);
+            writer.get(5);
+            assertEquals(1, writer.misses());
+            assertTrue(Files.exists(entry(dir, 5)));
+
+            SewerCache reader = new SewerCache(1, dir);
+            assertGenerated(reader.get(5));
+            assertEquals(1, reader.diskHits());
+            assertEquals(0, reader.misses());
+            reader.get(5);
+            assertEquals(1, reader.memoryHits());
+            assertEquals(0, reader.diskErrors());
+        } finally {
+            DistanceOracleTest.delete(dir);
+        }
+    }
+
+    @Test
+    void damagedDiskEntryIsRegenerated() throws IOException {
+        Path dir = Files.createTempDirectory("cache");
+        try {
+            byte[] good = Files.readAllBytes(writeEntry(dir, 6));
+            Files.write(entry(dir, 6), new byte[] { 'S', 'W', 'R', 9, 1, 2 });
+
+            SewerCache cache = new SewerCache(1, dir);
+            assertGenerated(cache.get(6));
+            assertEquals(1, cache.diskErrors());
+            assertEquals(1, cache.misses());
+            assertEquals(0, cache.diskHits());
+            assertArrayEquals(good, Files.readAllBytes(entry(dir, 6)));
+        } finally {
+            DistanceOracleTest.delete(dir);
+        }
+    }
+
+    @Test
+    void trimDiskDeletesOldVersionsThenLeastRecentlyUsed() throws IOException {
+        Path dir = Files.createTempDirectory("cache");
+        try {
+            Path old = dir.resolve("g" + (SewerCache.GENERATOR_VERSION - 1) + "-7.swr");
+            Files.write(old, new byte[] { 1 });
+            long now = System.currentTimeMillis();
+            for (long seed = 1; seed <= 3; seed++) {
+                Files.setLastModifiedTime(writeEntry(dir, seed),
+                        FileTime.fromMillis(now - 100_000 * (4 - seed)));
+            }
+            // Reading seed 1 from disk marks it as just used, so seed 2 is now the oldest.
+            new SewerCache(0, dir).get(1);
+
+            assertEquals(2, new SewerCache(0, dir).trimDisk(2));
+            assertFalse(Files.exists(old));
+            assertFalse(Files.exists(entry(dir, 2)));
+            assertTrue(Files.exists(entry(dir, 1)));
+            assertTrue(Files.exists(entry(dir, 3)));
+            assertEquals(0, new SewerCache(0, dir).trimDisk(2));
+        } finally {
+            DistanceOracleTest.delete(dir);
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package game;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+public class SewerGridTest {
+    /** Returns: "destination/length" of each exit of n, in order. */
+    static List<String> exits(Node n) {
+        List<String> exits = new ArrayList<>();
+        for (Edge e : n.getExits()) {
+            exits.add(e.destination().getId() + "/" + e.length());
+        }
+        return exits;
+    }
+
+    /** Returns: the cell of sewer holding coins, or -1 if there is none. */
+    static int richCell(SewerGrid sewer) {
+        for (int cell = 0; cell < sewer.rowCount() * sewer.columnCount(); cell++) {
+            if (sewer.coins(cell) > 0) {
+                return cell;
+            }
+        }
+        return -1;
+    }
+
+    @Test
+    void digsTheSewersOfTheCorpus() {
+        for (long seed = 0; seed < 100; seed++) {
+            SewerCorpus.Game game = SewerCorpus.generate(seed);
+            // Draw from rand in the order SewerCorpus.generate does.
+            Random rand = new Random(seed);
+            int rows = rand.nextInt(GameState.MAX_ROWS - GameState.MIN_ROWS + 1)
+                    + GameState.MIN_ROWS;
+            int cols = rand.nextInt(GameState.MAX_COLS - GameState.MIN_COLS + 1)
+                    + GameState.MIN_COLS;
+            SewerGrid seek = SewerGrid.digExploreSewer(rows, cols, rand);
+            SewerGrid scram = SewerGrid.digGetOutSewer(rows, cols, seek.ringCell() / cols,
+                    seek.ringCell() % cols, rand);
+            assertArrayEquals(game.seek().toBytes(), seek.toBytes(), "seed " + seed);
+            assertArrayEquals(game.scram().toBytes(), scram.toBytes(), "seed " + seed);
+            assertArrayEquals(game.scram().toBytes(), SewerGrid.of(game.scram()).toBytes(),
+                    "seed " + seed);
+            assertEquals(game.scram().serialize(), scram.toSewers().serialize(), "seed " + seed);
+        }
+    }
+
+    @Test
+    void redigsLikeSewers() {
+        // A 3 x 6 sewer often has no cell deep enough for the ring, e.g. seeds 2, 7 and 14,
+        // which are dug 2, 3 and 4 times.
+        for (long seed = 0; seed < 30; seed++) {
+            Sewers sewers = Sewers.digExploreSewer(3, 6, new Random(seed));
+            SewerGrid grid = SewerGrid.digExploreSewer(3, 6, new Random(seed));
+            assertArrayEquals(sewers.toBytes(), grid.toBytes(), "seed " + seed);
+        }
+    }
+
+    @Test
+    void nodesMatchSewers() {
+        for (long seed = 0; seed < 10; seed++) {
+            Sewers sewers = SewerCorpus.generate(seed).scram();
+            SewerGrid grid = SewerGrid.of(sewers);
+            assertEquals(sewers.graph().size(), grid.numOpenTiles());
+            assertEquals(sewers.entrance(), grid.entrance());
+            assertEquals(sewers.ring(), grid.ring());
+            for (Node n : sewers.graph()) {
+                Tile t = n.getTile();
+                Node g = grid.nodeAt(t.row(), t.column());
+                assertEquals(n, g);
+                assertEquals(exits(n), exits(g), "seed " + seed);
+                assertEquals(n.getNeighbors(), g.getNeighbors());
+                assertEquals(t.type(), g.getTile().type());
+                assertEquals(t.coins(), g.getTile().coins());
+                int cell = grid.cell(t.row(), t.column());
+                assertSame(g, grid.node(cell));
+                for (Sewers.Direction d : Sewers.Direction.values()) {
+                    Edge e = g.getEdge(d);
+                    if (e == null) {
+                        assertEquals(0, grid.weight(cell, d));
+                    } else {
+                        assertSame(e.destination(), grid.node(grid.neighbor(cell, d)));
+                        assertEquals(e.length(), grid.weight(cell, d));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void takeCoinsWritesThroughToTheGrid() {
+        SewerGrid grid = SewerGrid.of(SewerCorpus.generate(1).scram());
+        int cell = richCell(grid);
+        int value = grid.coins(cell);
+        Node node = grid.node(cell);
+        assertEquals(value, node.getTile().takeCoins());
+        assertEquals(0, grid.coins(cell));
+        assertEquals(0, node.getTile().coins());
+        assertEquals(value, grid.originalCoinValue(cell));
+        assertEquals(value, node.getTile().originalCoinValue());
+        assertSame(node, grid.node(cell));
+        assertEquals(0, node.getTile().takeCoins());
+
+        SewerGrid back = SewerGrid.fromBytes(ByteBuffer.wrap(grid.toBytes()));
+        // The compact format keeps the coins left, not the coins there were.
+        assertEquals(0, back.coins(cell));
+        assertEquals(0, back.originalCoinValue(cell));
+        int other = richCell(back);
+        assertEquals(back.coins(other), back.takeCoins(other));
+        assertEquals(0, back.node(other).getTile().coins());
+    }
+
+    @Test
+    void fromBytesRejectsSizesTheDataCannotHold() {
+        assertThrows(IllegalArgumentException.class, () -> SewerGrid.fromBytes(
+                ByteBuffer.wrap(SewersTest.compact(64, 20000, 20000, 1, 2))));
+        assertThrows(IllegalArgumentException.class, () -> SewerGrid.fromBytes(
+                ByteBuffer.wrap(SewersTest.compact(64, 65536, 65536, 1, 2))));
+        assertThrows(IllegalArgumentException.class, () -> SewerGrid.fromBytes(
+                ByteBuffer.wrap(SewersTest.compact(64, 0, 5, 0, 0))));
+        byte[] bytes = SewerCorpus.generate(2).seek().toBytes();
+        ByteBuffer data = ByteBuffer.wrap(bytes, 0, bytes.length / 2);
+        assertThrows(IllegalArgumentException.class, () -> SewerGrid.fromBytes(data));
+    }
+
+    @Test
+    void mappedGridReopens() throws IOException {
+        Path dir = Files.createTempDirectory("grid");
+        try {
+            Path file = dir.resolve("seek.grid");
+            SewerGrid dug = SewerGrid.digExploreSewer(20, 30, new Random(8), file);
+            byte[] bytes = Sewers.digExploreSewer(20, 30, new Random(8)).toBytes();
+            assertArrayEquals(bytes, dug.toBytes());
+
+            SewerGrid writer = SewerGrid.open(file, true);
+            assertArrayEquals(bytes, writer.toBytes());
+            assertEquals(dug.numOpenTiles(), writer.numOpenTiles());
+            int cell = richCell(writer);
+            int value = writer.node(cell).getTile().takeCoins();
+
+            SewerGrid reader = SewerGrid.open(file, false);
+            assertEquals(0, reader.coins(cell));
+            assertEquals(value, reader.originalCoinValue(cell));
+            assertEquals(dug.minPathLengthToRing(dug.entrance()),
+                    reader.minPathLengthToRing(reader.entrance()));
+
+            Path scram = dir.resolve("scram.grid");
+            SewerGrid.digGetOutSewer(20, 30, 4, 5, new Random(9), scram);
+            assertArrayEquals(Sewers.digGetOutSewer(20, 30, 4, 5, new Random(9)).toBytes(),
+                    SewerGrid.open(scram, false).toBytes());
+        } finally {
+            DistanceOracleTest.delete(dir);
+        }
+    }
+
+    /** Effect: replaces the int at offset of file with value. */
+    static void corrupt(Path file, int offset, int value) throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        ByteBuffer.wrap(bytes).putInt(offset, value);
+        Files.write(file, bytes);
+    }
+
+    @Test
+    void openRejectsCorruptFiles() throws IOException {
+        Path dir = Files.createTempDirectory("grid");
+        try {
+            Path file = dir.resolve("sewer.grid");
+            SewerGrid.digExploreSewer(10, 12, new Random(3), file);
+            byte[] good = Files.readAllBytes(file);
+            // The header: magic, version, number of cells, then rows, columns, entrance, ring.
+            int[][] cases = { { 0, 0 }, { 4, MappedCellStore.VERSION + 1 }, { 12, 121 },
+                { 16, 0 }, { 20, 13 }, { 24, 120 }, { 28, -1 } };
+            for (int[] c : cases) {
+                Files.write(file, good);
+                corrupt(file, c[0], c[1]);
+                assertThrows(IOException.class, () -> SewerGrid.open(file, false),
+                        "offset " + c[0]);
+            }
+            Files.write(file, Arrays.copyOf(good, good.length - 1));
+            assertThrows(IOException.class, () -> SewerGrid.open(file, false));
+            Files.write(file, Arrays.copyOf(good, 10));
+            assertThrows(IOException.class, () -> SewerGrid.open(file, true));
+            assertThrows(IOException.class, () -> SewerGrid.open(dir.resolve("none"), false));
+
+            Files.write(file, good);
+            assertArrayEquals(Sewers.digExploreSewer(10, 12, new Random(3)).toBytes(),
+                    SewerGrid.open(file, false).toBytes());
+        } finally {
+            DistanceOracleTest.delete(dir);
+        }
+    }
+
+    @Test
+    void distanceMatchesGridDijkstra() {
+        for (long seed = 0; seed < 5; seed++) {
+            Sewers sewers = SewerCorpus.generate(seed).scram();
+            SewerGrid grid = SewerGrid.of(sewers);
+            List<Node> nodes = new ArrayList<>(sewers.graph());
+            GridDijkstra dijkstra = new GridDijkstra(sewers);
+            Random rand = new Random(seed);
+            for (int k = 0; k < 3; k++) {
+                Node x = nodes.get(rand.nextInt(nodes.size()));
+                dijkstra.fromSource(x);
+                for (Node v : nodes) {
+                    assertEquals(dijkstra.distance(v),
+                            grid.distance((int) x.getId(), (int) v.getId()));
+                }
+            }
+            dijkstra.toTarget(sewers.ring());
+            assertEquals(dijkstra.distance(sewers.entrance()),
+                    grid.minPathLengthToRing(grid.entrance()));
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package game;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+
+public class SewersTest {
+    /** Returns: the start of a compact sewer of the current version followed by the given
+     *  varints and then the given number of zero bytes. */
+    static byte[] compact(int zeros, int... varints) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(Sewers.COMPACT_MAGIC, 0, Sewers.COMPACT_MAGIC.length);
+        out.write(Sewers.COMPACT_VERSION);
+        for (int v : varints) {
+            Sewers.writeVarint(out, v);
+        }
+        out.write(new byte[zeros], 0, zeros);
+        return out.toByteArray();
+    }
+
+    @Test
+    void bytesRoundTripGeneratedSewers() {
+        // Among the first 200 get-out sewers, many had a way carved to the cell of the ring.
+        for (long seed = 0; seed < 200; seed++) {
+            SewerCorpus.Game game = SewerCorpus.generate(seed);
+            for (Sewers s : new Sewers[] { game.seek(), game.scram() }) {
+                byte[] bytes = s.toBytes();
+                Sewers back = Sewers.fromBytes(bytes);
+                assertEquals(s.serialize(), back.serialize(), "seed " + seed);
+                assertArrayEquals(bytes, back.toBytes(), "seed " + seed);
+            }
+        }
+    }
+
+    @Test
+    void fromBytesRejectsTruncatedInput() {
+        byte[] bytes = SewerCorpus.generate(35).scram().toBytes();
+        for (int n = 0; n < bytes.length; n++) {
+            byte[] prefix = Arrays.copyOf(bytes, n);
+            assertThrows(IllegalArgumentException.class, () -> Sewers.fromBytes(prefix),
+                    "length " + n);
+        }
+    }
+
+    @Test
+    void fromBytesRejectsBadMagicAndVersion() {
+        byte[] bytes = SewerCorpus.generate(1).seek().toBytes();
+        byte[] magic = bytes.clone();
+        magic[0] = 'X';
+        assertThrows(IllegalArgumentException.class, () -> Sewers.fromBytes(magic));
+        byte[] version = bytes.clone();
+        version[Sewers.COMPACT_MAGIC.length] = (byte) (Sewers.COMPACT_VERSION + 1);
+        assertThrows(IllegalArgumentException.class, () -> Sewers.fromBytes(version));
+        version[Sewers.COMPACT_MAGIC.length] = (byte) (Sewers.COMPACT_VERSION - 1);
+        assertThrows(IllegalArgumentException.class, () -> Sewers.fromBytes(version));
+    }
+
+    @Test
+    void fromBytesRejectsBadSizes() {
+        // rows 0xFFFFFFFF does not fit in an int.
+        byte[] huge = { 'S', 'W', 'R', (byte) Sewers.COMPACT_VERSION,
+            (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F, 3, 0, 0, 0, 0, 0 };
+        assertThrows(IllegalArgumentException.class, () -> Sewers.fromBytes(huge));
+        // A varint longer than 5 bytes.
+        byte[] endless = { 'S', 'W', 'R', (byte) Sewers.COMPACT_VERSION,
+            (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 1, 3, 0, 0, 0 };
+        assertThrows(IllegalArgumentException.class, () -> Sewers.fromBytes(endless));
+        // rows * cols overflows an int.
+        assertThrows(IllegalArgumentException.class,
+                () -> Sewers.fromBytes(compact(64, 65536, 65536, 1, 2)));
+        // More cells than the rest of the data could describe.
+        assertThrows(IllegalArgumentException.class,
+                () -> Sewers.fromBytes(compact(64, 20000, 20000, 1, 2)));
+        assertThrows(IllegalArgumentException.class,
+                () -> Sewers.fromBytes(compact(64, 0, 5, 0, 0)));
+    }
+
+    @Test
+    void fromBytesRejectsCellsOutOfRange() {
+        assertThrows(IllegalArgumentException.class,
+                () -> Sewers.fromBytes(compact(64, 3, 3, 9, 4)));
+        assertThrows(IllegalArgumentException.class,
+                () -> Sewers.fromBytes(compact(64, 3, 3, 4, 9)));
+        // The entrance is a wall.
+        assertThrows(IllegalArgumentException.class,
+                () -> Sewers.fromBytes(compact(64, 3, 3, 4, 4)));
+    }
+
+    /** Returns: the message of the IllegalArgumentException that reading text throws. */
+    static String readError(String... lines) {
+        String text = String.join("\n", lines);
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> Sewers.read(new StringReader(text)));
+        assertThrows(IllegalArgumentException.class, () -> Sewers.read(
+                ByteBuffer.wrap(text.getBytes(StandardCharsets.US_ASCII))));
+        return e.getMessage();
+    }
+
+    @Test
+    void textRoundTripMatchesDeserialize() throws IOException {
+        for (long seed = 0; seed < 50; seed++) {
+            SewerCorpus.Game game = SewerCorpus.generate(seed);
+            for (Sewers s : new Sewers[] { game.seek(), game.scram() }) {
+                StringWriter out = new StringWriter();
+                s.write(out);
+                Sewers read = Sewers.read(new StringReader(out.toString()));
+                Sewers deserialized = Sewers.deserialize(s.serialize());
+                assertEquals(deserialized.serialize(), read.serialize(), "seed " + seed);
+                assertEquals(s.serialize(), read.serialize(), "seed " + seed);
+            }
+        }
+    }
+
+    @Test
+    void readRejectsMalformedLines() {
+        String header = "1:3,trgt:2";
+        String entrance = "0,0,0,0,ENTRANCE=1-1";
+        String ring = "2,0,2,0,RING=1-1";
+        // The well-formed sewer that the cases below break.
+        Sewers.read(ByteBuffer.wrap(String.join("\n", header, entrance,
+                "1,0,1,0,FLOOR=0-1,2-1", ring).getBytes(StandardCharsets.US_ASCII)));
+
+        assertTrue(readError(header, entrance, "1,0,3,0,FLOOR=0-1,2-1", ring)
+                .startsWith("sewer text line 3: tile (0, 3)"));
+        assertTrue(readError(header, entrance, "1,-1,1,0,FLOOR=0-1,2-1", ring)
+                .startsWith("sewer text line 3: tile (-1, 1)"));
+        assertTrue(readError(header, entrance, "1,0,1,0,FLOR=0-1,2-1", ring)
+                .startsWith("sewer text line 3: unknown tile type 'FLOR'"));
+        // Node 2 is not next to node 0.
+        assertTrue(readError(header, entrance, "1,0,1,0,FLOOR=0-1,2-1",
+                "2,0,2,0,RING=1-1,0-1").startsWith("sewer text line 4: edge to node 0"));
+        assertTrue(readError(header, entrance, "1,0,1,0,FLOOR=0-1,7-1", ring)
+                .startsWith("sewer text line 3: edge to unknown node 7"));
+        assertTrue(readError("0:3,trgt:2", entrance).startsWith("sewer text line 1:"));
+        assertTrue(readError("1:3,trgt:9", entrance, "1,0,1,0,FLOOR=0-1,2-1", ring)
+                .startsWith("sewer text line 1: unknown target node 9"));
+        assertEquals("sewer text line 3: expected '-' but found the end of the line",
+                readError(header, entrance, "1,0,1,0,FLOOR=0-1,2", ring));
+    }
+}
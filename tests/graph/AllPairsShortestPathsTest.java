@@ -0,0 +1,53 @@
+package graph;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import graph.ShortestPathsTest.TestGraph;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+public class AllPairsShortestPathsTest {
+
+    @Test
+    void lectureNotesTest() {
+        TestGraph graph = ShortestPathsTest.testGraph1();
+        CsrGraph<String, int[]> csr =
+                new CsrGraph<>(graph, Arrays.asList(ShortestPathsTest.vertices1));
+        AllPairsShortestPaths apsp = new AllPairsShortestPaths(csr);
+        assertEquals(50, apsp.distance(csr.indexOf("a"), csr.indexOf("g")));
+        assertEquals(0, apsp.distance(csr.indexOf("d"), csr.indexOf("d")));
+        assertEquals(AllPairsShortestPaths.INFINITY,
+                apsp.distance(csr.indexOf("g"), csr.indexOf("a")));
+    }
+
+    /** Compares against Dijkstra on a random graph spanning several tiles. */
+    @Test
+    void matchesDijkstra() {
+        int n = 3 * AllPairsShortestPaths.TILE + 7;
+        String[] vertices = new String[n];
+        for (int i = 0; i < n; i++) {
+            vertices[i] = "v" + i;
+        }
+        Random rand = new Random(33);
+        int[][] edges = new int[4 * n][];
+        for (int i = 0; i < edges.length; i++) {
+            edges[i] = new int[] { rand.nextInt(n), rand.nextInt(n), rand.nextInt(10) };
+        }
+        TestGraph graph = new TestGraph(vertices, edges);
+        CsrGraph<String, int[]> csr = new CsrGraph<>(graph, Arrays.asList(vertices));
+        AllPairsShortestPaths parallel = new AllPairsShortestPaths(csr, true);
+        AllPairsShortestPaths serial = new AllPairsShortestPaths(csr, false);
+        for (int u = 0; u < n; u++) {
+            ShortestPaths<String, int[]> ssp = new ShortestPaths<>(graph);
+            ssp.singleSourceDistances(vertices[u]);
+            for (int v = 0; v < n; v++) {
+                int expected = ssp.isReachable(vertices[v])
+                        ? (int) ssp.getDistance(vertices[v]) : AllPairsShortestPaths.INFINITY;
+                int iu = csr.indexOf(vertices[u]), iv = csr.indexOf(vertices[v]);
+                assertEquals(expected, parallel.distance(iu, iv));
+                assertEquals(expected, serial.distance(iu, iv));
+            }
+        }
+    }
+}
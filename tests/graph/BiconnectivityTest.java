@@ -0,0 +1,119 @@
+package graph;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import graph.ShortestPathsTest.TestGraph;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+public class BiconnectivityTest {
+    /** Returns: a TestGraph on vertices with an edge in each direction for each of the
+     *  given undirected edges {u, v}, all of weight 1. */
+    static TestGraph undirected(String[] vertices, int[][] edges) {
+        int[][] both = new int[edges.length * 2][];
+        for (int i = 0; i < edges.length; i++) {
+            both[2 * i] = new int[] { edges[i][0], edges[i][1], 1 };
+            both[2 * i + 1] = new int[] { edges[i][1], edges[i][0], 1 };
+        }
+        return new TestGraph(vertices, both);
+    }
+
+    /** Two triangles a-b-c and d-e-f joined by the bridge c-d, with g hanging off f. */
+    static final String[] vertices = { "a", "b", "c", "d", "e", "f", "g" };
+    static final int[][] edges = {
+        {0, 1}, {1, 2}, {2, 0},
+        {2, 3},
+        {3, 4}, {4, 5}, {5, 3},
+        {5, 6}
+    };
+    /** Coins on each vertex. */
+    static final int[] coins = { 0, 1, 0, 0, 10, 0, 100 };
+
+    static int coinsOf(String v) {
+        return coins[v.charAt(0) - 'a'];
+    }
+
+    @Test
+    void twoTriangles() {
+        Biconnectivity<String, int[]> bc =
+                new Biconnectivity<>(undirected(vertices, edges), "a",
+                        BiconnectivityTest::coinsOf);
+        assertEquals(Set.of("c", "d", "f"), new HashSet<>(bc.articulationPoints()));
+        assertFalse(bc.isArticulationPoint("a"));
+
+        Set<String> bridges = new HashSet<>();
+        for (int[] e : bc.bridges()) {
+            bridges.add(vertices[e[0]] + vertices[e[1]]);
+        }
+        assertEquals(Set.of("cd", "fg"), bridges);
+
+        assertEquals(4, bc.blockCount());
+        Set<Set<String>> blocks = new HashSet<>();
+        for (int b = 0; b < bc.blockCount(); b++) {
+            blocks.add(new HashSet<>(bc.block(b)));
+        }
+        assertEquals(Set.of(Set.of("a", "b", "c"), Set.of("c", "d"),
+                Set.of("d", "e", "f"), Set.of("f", "g")), blocks);
+
+        assertEquals(100, bc.valueBehind("f"));
+        assertEquals(110, bc.valueBehind("d"));
+        assertEquals(110, bc.valueBehind("c"));
+        assertEquals(0, bc.valueBehind("b"));
+        assertEquals(111, bc.subtreeValue("a"));
+        assertTrue(bc.isSeparatedFromRoot("d"));
+        assertTrue(bc.isSeparatedFromRoot("g"));
+    }
+
+    @Test
+    void blockCutTree() {
+        Biconnectivity<String, int[]> bc =
+                new Biconnectivity<>(undirected(vertices, edges), "a",
+                        BiconnectivityTest::coinsOf);
+        int root = -1;
+        for (int b = 0; b < bc.blockCount(); b++) {
+            if (bc.parentOfBlock(b) < 0) {
+                assertEquals(-1, root);
+                root = b;
+            }
+        }
+        assertEquals(Set.of("a", "b", "c"), new HashSet<>(bc.block(root)));
+        assertEquals(111, bc.blockSubtreeValue(root));
+        for (int c = 0; c < bc.articulationPoints().size(); c++) {
+            assertEquals(2, bc.blocksOfCut(c).size());
+        }
+    }
+
+    @Test
+    void longPathDoesNotOverflow() {
+        int n = 200_000;
+        String[] vs = new String[n];
+        int[][] es = new int[n - 1][];
+        for (int i = 0; i < n; i++) {
+            vs[i] = Integer.toString(i);
+        }
+        for (int i = 0; i < n - 1; i++) {
+            es[i] = new int[] { i, i + 1 };
+        }
+        Biconnectivity<String, int[]> bc = new Biconnectivity<>(undirected(vs, es), "0");
+        assertEquals(n - 2, bc.articulationPoints().size());
+        assertEquals(n - 1, bc.bridges().size());
+        assertEquals(n - 1, bc.blockCount());
+    }
+
+    @Test
+    void cycleHasNoCuts() {
+        String[] vs = { "a", "b", "c", "d" };
+        int[][] es = { {0, 1}, {1, 2}, {2, 3}, {3, 0} };
+        Biconnectivity<String, int[]> bc = new Biconnectivity<>(undirected(vs, es), "b");
+        assertTrue(bc.articulationPoints().isEmpty());
+        assertTrue(bc.bridges().isEmpty());
+        assertEquals(1, bc.blockCount());
+        List<String> all = new ArrayList<>(bc.vertices());
+        assertEquals(4, all.size());
+    }
+}
@@ -0,0 +1,60 @@
+package graph;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import datastructures.HeapPQueue;
+import datastructures.PQueue;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+public class HeapPQueueTest {
+    @Test void reversed() {
+        PQueue<Integer> q = new HeapPQueue<>();
+        assertTrue(q.isEmpty());
+        assertEquals(0, q.size());
+        for (int i = 10; i >= 0; i--) q.add(i, i);
+        assertEquals(11, q.size());
+        for (int i = 0; i <= 10; i++) {
+            int k = q.peek();
+            int j = q.extractMin();
+            assertEquals(i, j, k);
+        }
+        assertTrue(q.isEmpty());
+    }
+    @Test void changePriority() {
+        PQueue<Integer> q = new HeapPQueue<>();
+        for (int i = 0; i < 10; i++) q.add(i, i);
+        q.changePriority(9, -1);
+        q.changePriority(0, 20);
+        assertEquals(9, (int) q.extractMin());
+        for (int i = 1; i < 9; i++) assertEquals(i, (int) q.extractMin());
+        assertEquals(0, (int) q.extractMin());
+        assertTrue(q.isEmpty());
+    }
+    @Test void randomized() {
+        Random rand = new Random(1);
+        PQueue<Integer> q = new HeapPQueue<>();
+        double[] prio = new double[200];
+        for (int i = 0; i < prio.length; i++) {
+            prio[i] = rand.nextDouble();
+            q.add(i, prio[i]);
+        }
+        for (int i = 0; i < prio.length; i += 3) {
+            prio[i] = rand.nextDouble();
+            q.changePriority(i, prio[i]);
+        }
+        double last = Double.NEGATIVE_INFINITY;
+        while (!q.isEmpty()) {
+            int e = q.extractMin();
+            assertTrue(prio[e] >= last);
+            last = prio[e];
+        }
+    }
+    @Test void throwTest() {
+        PQueue<Integer> q = new HeapPQueue<>();
+        q.add(1,1);
+        assertThrows(IllegalArgumentException.class, () -> q.add(1,2));
+    }
+}
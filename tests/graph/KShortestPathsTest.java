@@ -0,0 +1,86 @@
+package graph;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import graph.KShortestPaths.WeightedPath;
+import graph.ShortestPathsTest.TestGraph;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import org.junit.jupiter.api.Test;
+
+public class KShortestPathsTest {
+    /** The example graph from Yen's algorithm articles: vertices C-H, from C to H. */
+    static final String[] vertices = { "C", "D", "E", "F", "G", "H" };
+    static final int[][] edges = {
+        {0, 1, 3}, {0, 2, 2},
+        {1, 3, 4},
+        {2, 1, 1}, {2, 3, 2}, {2, 4, 3},
+        {3, 4, 2}, {3, 5, 1},
+        {4, 5, 2}
+    };
+
+    static String pathString(WeightedPath<int[]> path) {
+        StringBuilder sb = new StringBuilder();
+        for (int[] e : path.edges()) {
+            sb.append(vertices[e[0]]);
+        }
+        return sb.append("H").toString();
+    }
+
+    @Test
+    void yenExample() {
+        KShortestPaths<String, int[]> ksp =
+                new KShortestPaths<>(new TestGraph(vertices, edges), "C", "H");
+        WeightedPath<int[]> p1 = ksp.next();
+        assertEquals(5, p1.weight());
+        assertEquals("CEFH", pathString(p1));
+        WeightedPath<int[]> p2 = ksp.next();
+        assertEquals(7, p2.weight());
+        assertEquals("CEGH", pathString(p2));
+        // The three paths of weight 8 may come in any order
+        List<String> tied = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            WeightedPath<int[]> p = ksp.next();
+            assertEquals(8, p.weight());
+            tied.add(pathString(p));
+        }
+        assertTrue(tied.containsAll(List.of("CDFH", "CEDFH", "CEFGH")));
+        assertEquals(11, ksp.next().weight());
+    }
+
+    @Test
+    void enumeratesAllLooplessPathsInOrder() {
+        KShortestPaths<String, int[]> ksp =
+                new KShortestPaths<>(new TestGraph(vertices, edges), "C", "H");
+        double last = 0;
+        int count = 0;
+        while (ksp.hasNext()) {
+            WeightedPath<int[]> p = ksp.next();
+            assertTrue(p.weight() >= last);
+            last = p.weight();
+            count++;
+        }
+        // CDFH, CDFGH, CEDFH, CEDFGH, CEFH, CEFGH, CEGH
+        assertEquals(7, count);
+        assertThrows(NoSuchElementException.class, ksp::next);
+    }
+
+    @Test
+    void unreachableTarget() {
+        KShortestPaths<String, int[]> ksp =
+                new KShortestPaths<>(new TestGraph(vertices, edges), "H", "C");
+        assertFalse(ksp.hasNext());
+    }
+
+    @Test
+    void firstK() {
+        List<WeightedPath<int[]>> paths =
+                KShortestPaths.firstK(new TestGraph(vertices, edges), "C", "H", 2);
+        assertEquals(2, paths.size());
+        assertEquals(5, paths.get(0).weight());
+    }
+}
@@ -0,0 +1,49 @@
+package graph;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import graph.ShortestPathsTest.TestGraph;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+public class MultiSourceBfsTest {
+
+    @Test
+    void gridHops() {
+        TestGraph graph = new TestGraph(UnitBfsTest.grid, UnitBfsTest.gridEdges);
+        CsrGraph<String, int[]> csr = new CsrGraph<>(graph, Arrays.asList(UnitBfsTest.grid));
+        int[][] hops = new MultiSourceBfs(csr).allHops();
+        int a = csr.indexOf("a"), e = csr.indexOf("e"), i = csr.indexOf("i");
+        assertEquals(4, hops[a][i]);
+        assertEquals(2, hops[i][e]);
+        assertEquals(0, hops[e][e]);
+    }
+
+    /** Compares against one breadth-first search per source, over more than one batch. */
+    @Test
+    void matchesUnitBfs() {
+        int n = 2 * MultiSourceBfs.BATCH + 11;
+        String[] vertices = new String[n];
+        for (int i = 0; i < n; i++) {
+            vertices[i] = "v" + i;
+        }
+        Random rand = new Random(38);
+        int[][] edges = new int[2 * n][];
+        for (int i = 0; i < edges.length; i++) {
+            edges[i] = new int[] { rand.nextInt(n), rand.nextInt(n), 1 };
+        }
+        TestGraph graph = new TestGraph(vertices, edges);
+        CsrGraph<String, int[]> csr = new CsrGraph<>(graph, Arrays.asList(vertices));
+        int[][] hops = new MultiSourceBfs(csr).allHops();
+        for (int u = 0; u < n; u++) {
+            UnitBfs<String, int[]> bfs = new UnitBfs<>(graph, 1);
+            bfs.singleSourceDistances(vertices[u]);
+            for (int v = 0; v < n; v++) {
+                int expected = bfs.isReachable(vertices[v])
+                        ? (int) bfs.getDistance(vertices[v]) : -1;
+                assertEquals(expected, hops[csr.indexOf(vertices[u])][csr.indexOf(vertices[v])]);
+            }
+        }
+    }
+}
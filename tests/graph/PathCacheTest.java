@@ -0,0 +1,49 @@
+package graph;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import graph.ShortestPathsTest.TestGraph;
+import org.junit.jupiter.api.Test;
+
+public class PathCacheTest {
+
+    @Test
+    void hitsMissesAndEviction() {
+        // Same graph as ShortestPathsTest.lectureNotesTest
+        TestGraph graph = ShortestPathsTest.testGraph1();
+        PathCache<String, int[]> cache = new PathCache<>(graph, 2);
+        assertEquals(50, cache.distance("a", "g"));
+        assertEquals(4, cache.path("a", "g").size());
+        assertEquals(1, cache.misses());
+        assertEquals(1, cache.hits());
+
+        cache.distance("c", "g");
+        cache.distance("a", "f"); // a is now the most recently used
+        cache.distance("e", "g"); // evicts c
+        assertEquals(2, cache.size());
+        assertEquals(3, cache.misses());
+        cache.distance("a", "b");
+        assertEquals(3, cache.misses());
+        cache.distance("c", "f");
+        assertEquals(4, cache.misses());
+    }
+
+    @Test
+    void breaksTiesLikeShortestPaths() {
+        // Same graph as ShortestPathsTest.tieBreakingTest
+        String[] vertices = { "A", "B", "C", "D" };
+        int[][] edges = {
+                {0, 1, 1}, {1, 3, 1},
+                {0, 2, 1}, {2, 3, 1},
+                {0, 3, 3}
+        };
+        TestGraph graph = new TestGraph(vertices, edges);
+        for (String rich : new String[] { "B", "C" }) {
+            PathCache<String, int[]> cache =
+                    new PathCache<>(graph, v -> v.equals(rich) ? 5 : 1, 1);
+            assertEquals(2, cache.distance("A", "D"));
+            assertEquals(rich, vertices[cache.path("A", "D").get(1)[0]]);
+            assertEquals(1, cache.hits());
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package graph;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import graph.ReducedGraph.SuperEdge;
+import graph.ShortestPathsTest.TestGraph;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+public class ReducedGraphTest {
+    /** Returns: a TestGraph on vertices with an edge in each direction for each of the
+     *  given undirected edges {u, v, weight}. */
+    static TestGraph undirected(String[] vertices, List<int[]> edges) {
+        int[][] both = new int[edges.size() * 2][];
+        for (int i = 0; i < edges.size(); i++) {
+            int[] e = edges.get(i);
+            both[2 * i] = new int[] { e[0], e[1], e[2] };
+            both[2 * i + 1] = new int[] { e[1], e[0], e[2] };
+        }
+        return new TestGraph(vertices, both);
+    }
+
+    /** The cycle a -2- b -3- c -1- d -3- a; the tree b -1- e, e -1- f, e -1- g hanging off b;
+     *  and a separate chain h -1- i -1- j. The terminals are a, c and f. */
+    static final String[] vertices = { "a", "b", "c", "d", "e", "f", "g", "h", "i", "j" };
+    static final List<int[]> edges = List.of(
+        new int[] {0, 1, 2}, new int[] {1, 2, 3}, new int[] {2, 3, 1}, new int[] {3, 0, 3},
+        new int[] {1, 4, 1}, new int[] {4, 5, 1}, new int[] {4, 6, 1},
+        new int[] {7, 8, 1}, new int[] {8, 9, 1}
+    );
+    static final Set<String> terminals = Set.of("a", "c", "f");
+
+    @Test
+    void trimsDeadEndsAndKeepsTerminals() {
+        ReducedGraph<String, int[]> reduced = new ReducedGraph<>(undirected(vertices, edges),
+                Arrays.asList(vertices), terminals::contains);
+        // g is a dead end, d and e are corridors, and h-i-j has no terminal.
+        assertEquals(Set.of("a", "b", "c", "f"), reduced.vertices());
+        for (String t : terminals) {
+            assertTrue(reduced.contains(t));
+        }
+        assertFalse(reduced.contains("g"));
+        assertEquals(vertices.length, reduced.originalSize());
+
+        ShortestPaths<String, SuperEdge<String, int[]>> ssp = new ShortestPaths<>(reduced);
+        ssp.singleSourceDistances("a");
+        assertEquals(4, ssp.getDistance("c"));
+        assertEquals(4, ssp.getDistance("f"));
+        List<int[]> path = ReducedGraph.expand(ssp.bestPath("c"));
+        assertEquals(2, path.size());
+        assertEquals("d", vertices[path.get(0)[1]]);
+        assertEquals(3, ReducedGraph.expand(ssp.bestPath("f")).size());
+    }
+
+    @Test
+    void distancesMatchOriginalOnRandomGrids() {
+        Random rand = new Random(31);
+        int side = 7;
+        String[] vs = new String[side * side];
+        for (int i = 0; i < vs.length; i++) {
+            vs[i] = "v" + i;
+        }
+        for (int round = 0; round < 50; round++) {
+            List<int[]> es = new ArrayList<>();
+            for (int r = 0; r < side; r++) {
+                for (int c = 0; c < side; c++) {
+                    int u = r * side + c;
+                    if (c + 1 < side && rand.nextInt(3) > 0) {
+                        es.add(new int[] { u, u + 1, 1 + rand.nextInt(9) });
+                    }
+                    if (r + 1 < side && rand.nextInt(3) > 0) {
+                        es.add(new int[] { u, u + side, 1 + rand.nextInt(9) });
+                    }
+                }
+            }
+            TestGraph graph = undirected(vs, es);
+            List<String> ts = new ArrayList<>();
+            for (int k = 0; k < 5; k++) {
+                ts.add(vs[rand.nextInt(vs.length)]);
+            }
+            ReducedGraph<String, int[]> reduced =
+                    new ReducedGraph<>(graph, Arrays.asList(vs), ts::contains);
+            assertTrue(reduced.vertices().size() <= vs.length);
+            for (String s : ts) {
+                assertTrue(reduced.contains(s));
+                ShortestPaths<String, int[]> original = new ShortestPaths<>(graph);
+                original.singleSourceDistances(s);
+                ShortestPaths<String, SuperEdge<String, int[]>> small =
+                        new ShortestPaths<>(reduced);
+                small.singleSourceDistances(s);
+                for (String t : ts) {
+                    assertEquals(original.isReachable(t), small.isReachable(t));
+                    if (!original.isReachable(t) || t.equals(s)) {
+                        continue;
+                    }
+                    assertEquals(original.getDistance(t), small.getDistance(t));
+                    // The expanded path is a walk from s to t in graph of the same weight.
+                    String at = s;
+                    double weight = 0;
+                    for (int[] e : ReducedGraph.expand(small.bestPath(t))) {
+                        assertEquals(at, graph.source(e));
+                        at = graph.dest(e);
+                        weight += graph.weight(e);
+                    }
+                    assertEquals(t, at);
+                    assertEquals(original.getDistance(t), weight);
+                }
+            }
+        }
+    }
+}
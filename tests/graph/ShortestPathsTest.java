@@ -182,4 +182,24 @@ public class ShortestPathsTest {
         //Do this:
         assertThrows(AssertionError.class,() -> ssp.bestPath("X"));
     }
+
+    @Test
+    void tieBreakingTest() {
+        // Two shortest paths from A to D, of length 2; the one through C is worth more.
+        String[] vertices = { "A", "B", "C", "D" };
+        int[][] edges = {
+                {0, 1, 1}, {1, 3, 1},
+                {0, 2, 1}, {2, 3, 1},
+                {0, 3, 3}
+        };
+        TestGraph graph = new TestGraph(vertices, edges);
+        for (String rich : new String[] { "B", "C" }) {
+            ShortestPaths<String, int[]> ssp =
+                    new ShortestPaths<>(graph, v -> v.equals(rich) ? 5 : 1);
+            ssp.singleSourceDistances("A");
+            assertEquals(2, ssp.getDistance("D"));
+            assertEquals(6, ssp.getPathValue("D"));
+            assertEquals(rich, vertices[ssp.bestPath("D").get(1)[0]]);
+        }
+    }
 }
@@ -0,0 +1,147 @@
+package graph;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import graph.ShortestPathsTest.TestGraph;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+public class SteinerApproxTest {
+    /** The star a -1- x -1- b, x -1- c, with a direct edge a -5- b. */
+    static final String[] star = { "a", "b", "c", "x" };
+    static final List<int[]> starEdges = List.of(
+        new int[] {0, 3, 1}, new int[] {1, 3, 1}, new int[] {2, 3, 1}, new int[] {0, 1, 5}
+    );
+
+    /** Asserts: walk is a closed walk from start in graph of total weight weight that visits
+     *  every vertex in visits. */
+    static void assertClosedWalk(TestGraph graph, List<int[]> walk, String start, double weight,
+            List<String> visits) {
+        Set<String> seen = new HashSet<>();
+        seen.add(start);
+        String at = start;
+        double total = 0;
+        for (int[] e : walk) {
+            assertEquals(at, graph.source(e));
+            at = graph.dest(e);
+            seen.add(at);
+            total += graph.weight(e);
+        }
+        assertEquals(start, at);
+        assertEquals(weight, total);
+        assertTrue(seen.containsAll(visits));
+    }
+
+    @Test
+    void starTree() {
+        TestGraph graph = ReducedGraphTest.undirected(star, starEdges);
+        SteinerApprox<String, int[]> steiner =
+                new SteinerApprox<>(graph, List.of("a", "b", "c"));
+        assertEquals(3, steiner.weight());
+        assertEquals(1.5, steiner.lowerBound());
+        assertEquals(3, steiner.treeEdges().size());
+        List<int[]> tour = steiner.tour("a");
+        assertEquals(6, tour.size());
+        assertClosedWalk(graph, tour, "a", 6, List.of("a", "b", "c"));
+
+        steiner.removeTerminal("c");
+        assertEquals(2, steiner.weight());
+        assertClosedWalk(graph, steiner.tour("b"), "b", 4, List.of("a", "b"));
+        steiner.addTerminal("c");
+        assertEquals(3, steiner.weight());
+    }
+
+    @Test
+    void singleTerminal() {
+        TestGraph graph = ReducedGraphTest.undirected(star, starEdges);
+        SteinerApprox<String, int[]> steiner = new SteinerApprox<>(graph, List.of("c"));
+        assertEquals(0, steiner.weight());
+        assertTrue(steiner.tour("c").isEmpty());
+    }
+
+    /** Returns: a rows x cols grid on vs with every edge between neighbors, whose weights are
+     *  distinct powers of 2 in random order. No two different sets of edges then have the same
+     *  weight, so shortest paths, Voronoi regions and the tree are all unique.
+     *  Requires: the grid has at most 31 edges. */
+    static TestGraph powerGrid(Random rand, int rows, int cols, String[] vs) {
+        List<int[]> es = new ArrayList<>();
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                int u = r * cols + c;
+                if (c + 1 < cols) {
+                    es.add(new int[] { u, u + 1, 0 });
+                }
+                if (r + 1 < rows) {
+                    es.add(new int[] { u, u + cols, 0 });
+                }
+            }
+        }
+        List<Integer> exponents = new ArrayList<>();
+        for (int i = 0; i < es.size(); i++) {
+            exponents.add(i);
+        }
+        Collections.shuffle(exponents, rand);
+        for (int i = 0; i < es.size(); i++) {
+            es.get(i)[2] = 1 << exponents.get(i);
+        }
+        return ReducedGraphTest.undirected(vs, es);
+    }
+
+    /** Returns: the edges as unordered pairs of vertex numbers, so an edge and its reverse
+     *  are the same. */
+    static Set<Set<Integer>> undirected(List<int[]> edges) {
+        Set<Set<Integer>> pairs = new HashSet<>();
+        for (int[] e : edges) {
+            pairs.add(Set.of(e[0], e[1]));
+        }
+        return pairs;
+    }
+
+    @Test
+    void incrementalMatchesFreshBuild() {
+        Random rand = new Random(32);
+        int rows = 4;
+        int cols = 5;
+        String[] vs = new String[rows * cols];
+        for (int i = 0; i < vs.length; i++) {
+            vs[i] = "v" + i;
+        }
+        for (int round = 0; round < 30; round++) {
+            TestGraph graph = powerGrid(rand, rows, cols, vs);
+            SteinerApprox<String, int[]> steiner =
+                    new SteinerApprox<>(graph, List.of(vs[rand.nextInt(vs.length)]));
+            for (int step = 0; step < 10; step++) {
+                List<String> ts = steiner.terminals();
+                if (ts.size() > 1 && rand.nextInt(3) == 0) {
+                    steiner.removeTerminal(ts.get(rand.nextInt(ts.size())));
+                } else {
+                    String t = vs[rand.nextInt(vs.length)];
+                    if (!ts.contains(t)) {
+                        steiner.addTerminal(t);
+                    }
+                }
+                ts = steiner.terminals();
+                SteinerApprox<String, int[]> fresh = new SteinerApprox<>(graph, ts);
+                assertEquals(fresh.weight(), steiner.weight());
+                assertEquals(undirected(fresh.treeEdges()), undirected(steiner.treeEdges()));
+                assertEquals(steiner.weight() / 2, steiner.lowerBound());
+
+                // The tree holds a path between any two terminals, so it weighs at least
+                // as much as the distance between them.
+                String start = ts.get(0);
+                ShortestPaths<String, int[]> ssp = new ShortestPaths<>(graph);
+                ssp.singleSourceDistances(start);
+                for (String t : ts) {
+                    assertTrue(ssp.getDistance(t) <= steiner.weight());
+                }
+                assertClosedWalk(graph, steiner.tour(start), start, 2 * steiner.weight(), ts);
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package graph;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import graph.ShortestPathsTest.TestGraph;
+import org.junit.jupiter.api.Test;
+
+public class UnitBfsTest {
+    /** A 3x3 grid of vertices a-i, with unit-weight edges in both directions between
+     *  horizontally and vertically adjacent vertices:
+     *  <pre>
+     *  a b c
+     *  d e f
+     *  g h i
+     *  </pre>
+     */
+    static final String[] grid = { "a", "b", "c", "d", "e", "f", "g", "h", "i" };
+    static final int[][] gridEdges = {
+        {0, 1, 1}, {1, 0, 1}, {1, 2, 1}, {2, 1, 1},
+        {3, 4, 1}, {4, 3, 1}, {4, 5, 1}, {5, 4, 1},
+        {6, 7, 1}, {7, 6, 1}, {7, 8, 1}, {8, 7, 1},
+        {0, 3, 1}, {3, 0, 1}, {3, 6, 1}, {6, 3, 1},
+        {1, 4, 1}, {4, 1, 1}, {4, 7, 1}, {7, 4, 1},
+        {2, 5, 1}, {5, 2, 1}, {5, 8, 1}, {8, 5, 1}
+    };
+
+    static String pathString(String[] vertices, Iterable<int[]> path, String target) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("best path:");
+        for (int[] e : path) {
+            sb.append(" " + vertices[e[0]]);
+        }
+        sb.append(" " + target);
+        return sb.toString();
+    }
+
+    @Test
+    void gridDistances() {
+        UnitBfs<String, int[]> bfs = new UnitBfs<>(new TestGraph(grid, gridEdges));
+        bfs.singleSourceDistances("a");
+        int[] expected = { 0, 1, 2, 1, 2, 3, 2, 3, 4 };
+        for (int i = 0; i < grid.length; i++) {
+            assertEquals(expected[i], bfs.getDistance(grid[i]));
+        }
+        assertEquals(4, bfs.bestPath("i").size());
+        assertEquals(0, bfs.bestPath("a").size());
+    }
+
+    @Test
+    void declaredWeight() {
+        int[][] edges = new int[gridEdges.length][];
+        for (int i = 0; i < edges.length; i++) {
+            edges[i] = new int[] { gridEdges[i][0], gridEdges[i][1], 3 };
+        }
+        UnitBfs<String, int[]> bfs = new UnitBfs<>(new TestGraph(grid, edges), 3);
+        bfs.singleSourceDistances("e");
+        assertEquals(6, bfs.getDistance("a"));
+        assertEquals(3, bfs.getDistance("h"));
+    }
+
+    @Test
+    void nonUniformFallsBackToDijkstra() {
+        // Same graph as ShortestPathsTest.lectureNotesTest
+        TestGraph graph = ShortestPathsTest.testGraph1();
+        UnitBfs<String, int[]> bfs = new UnitBfs<>(graph);
+        bfs.singleSourceDistances("a");
+        assertEquals(50, bfs.getDistance("g"));
+        assertEquals("best path: a c e f g",
+                pathString(ShortestPathsTest.vertices1, bfs.bestPath("g"), "g"));
+    }
+
+    @Test
+    void matchesDijkstraOnChain() {
+        String[] vertices = { "A", "B", "C", "D", "E" };
+        int[][] edges = {
+                {0, 1, 2}, {1, 2, 2}, {2, 3, 2}, {3, 4, 2}, {0, 4, 2}
+        };
+        TestGraph graph = new TestGraph(vertices, edges);
+        UnitBfs<String, int[]> bfs = new UnitBfs<>(graph);
+        ShortestPaths<String, int[]> ssp = new ShortestPaths<>(graph);
+        bfs.singleSourceDistances("A");
+        ssp.singleSourceDistances("A");
+        for (String v : vertices) {
+            assertEquals(ssp.getDistance(v), bfs.getDistance(v));
+        }
+        assertEquals("best path: A E", pathString(vertices, bfs.bestPath("E"), "E"));
+    }
+}
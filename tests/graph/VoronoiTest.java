@@ -0,0 +1,138 @@
+package graph;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import graph.ShortestPathsTest.TestGraph;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+public class VoronoiTest {
+    /** Returns: vertex names v0, v1, ... for a side x side grid. */
+    static String[] gridVertices(int side) {
+        String[] vs = new String[side * side];
+        for (int i = 0; i < vs.length; i++) {
+            vs[i] = "v" + i;
+        }
+        return vs;
+    }
+
+    /** Returns: a side x side grid on gridVertices(side) in which each edge between neighbors
+     *  is present with probability 2/3, in both directions, with a weight in 1..9. */
+    static TestGraph randomGrid(Random rand, int side) {
+        List<int[]> es = new ArrayList<>();
+        for (int r = 0; r < side; r++) {
+            for (int c = 0; c < side; c++) {
+                int u = r * side + c;
+                if (c + 1 < side && rand.nextInt(3) > 0) {
+                    es.add(new int[] { u, u + 1, 1 + rand.nextInt(9) });
+                }
+                if (r + 1 < side && rand.nextInt(3) > 0) {
+                    es.add(new int[] { u, u + side, 1 + rand.nextInt(9) });
+                }
+            }
+        }
+        return ReducedGraphTest.undirected(gridVertices(side), es);
+    }
+
+    /** The path a -3- b -1- c -2- d -4- e. */
+    static final String[] line = { "a", "b", "c", "d", "e" };
+    static final List<int[]> lineEdges = List.of(
+        new int[] {0, 1, 3}, new int[] {1, 2, 1}, new int[] {2, 3, 2}, new int[] {3, 4, 4}
+    );
+
+    @Test
+    void regionsOfALine() {
+        TestGraph graph = ReducedGraphTest.undirected(line, lineEdges);
+        Voronoi<String, int[]> vor = Voronoi.compute(graph, List.of("a", "e"));
+        assertEquals("a", vor.nearestTerminal("c"));
+        assertEquals(4, vor.distance("c"));
+        assertEquals("e", vor.nearestTerminal("d"));
+        assertEquals(2, vor.pathFromTerminal("c").size());
+        assertEquals(2, vor.boundaryEdges().size()); // c-d and d-c
+
+        assertEquals(Set.of("b", "c", "d"), vor.addTerminal("c"));
+        assertEquals("c", vor.nearestTerminal("b"));
+        assertEquals(2, vor.distance("d"));
+        assertEquals(4, vor.boundaryEdges().size());
+
+        assertEquals(Set.of("b", "c", "d"), vor.removeTerminal("c"));
+        assertEquals("a", vor.nearestTerminal("b"));
+        assertEquals(4, vor.distance("c"));
+        assertEquals("e", vor.nearestTerminal("d"));
+        assertEquals(List.of("a", "e"), vor.terminals());
+    }
+
+    @Test
+    void terminalErrors() {
+        TestGraph graph = ReducedGraphTest.undirected(line, lineEdges);
+        Voronoi<String, int[]> vor = Voronoi.compute(graph, List.of("a"));
+        assertThrows(IllegalArgumentException.class, () -> vor.addTerminal("a"));
+        assertThrows(IllegalArgumentException.class, () -> vor.removeTerminal("b"));
+        vor.removeTerminal("a");
+        assertFalse(vor.isReached("c"));
+        assertTrue(vor.terminals().isEmpty());
+    }
+
+    /** Asserts: incremental agrees with a partition computed from scratch for its terminals.
+     *  Regions may differ where two terminals are equally near, so each vertex's region is
+     *  checked through its best path rather than compared. */
+    static void assertMatchesCompute(TestGraph graph, String[] vs,
+            Voronoi<String, int[]> incremental) {
+        Voronoi<String, int[]> fresh = Voronoi.compute(graph, incremental.terminals());
+        for (String v : vs) {
+            assertEquals(fresh.isReached(v), incremental.isReached(v));
+            if (!fresh.isReached(v)) {
+                continue;
+            }
+            assertEquals(fresh.distance(v), incremental.distance(v));
+            String t = incremental.nearestTerminal(v);
+            assertTrue(incremental.terminals().contains(t));
+            String at = t;
+            double weight = 0;
+            for (int[] e : incremental.pathFromTerminal(v)) {
+                assertEquals(at, graph.source(e));
+                assertEquals(t, incremental.nearestTerminal(graph.dest(e)));
+                at = graph.dest(e);
+                weight += graph.weight(e);
+            }
+            assertEquals(v, at);
+            assertEquals(incremental.distance(v), weight);
+        }
+    }
+
+    @Test
+    void incrementalMatchesCompute() {
+        Random rand = new Random(29);
+        int side = 8;
+        String[] vs = gridVertices(side);
+        for (int round = 0; round < 40; round++) {
+            TestGraph graph = randomGrid(rand, side);
+            List<String> start = new ArrayList<>();
+            while (start.size() < 3) {
+                String t = vs[rand.nextInt(vs.length)];
+                if (!start.contains(t)) {
+                    start.add(t);
+                }
+            }
+            Voronoi<String, int[]> vor = Voronoi.compute(graph, start);
+            for (int step = 0; step < 12; step++) {
+                List<String> ts = vor.terminals();
+                if (!ts.isEmpty() && rand.nextInt(3) == 0) {
+                    vor.removeTerminal(ts.get(rand.nextInt(ts.size())));
+                } else {
+                    String t = vs[rand.nextInt(vs.length)];
+                    if (!ts.contains(t)) {
+                        vor.addTerminal(t);
+                    }
+                }
+                assertMatchesCompute(graph, vs, vor);
+            }
+        }
+    }
+}